@@ -65,6 +65,7 @@ import scouter.agent.asm.redis.LettuceASM;
 import scouter.agent.asm.redis.RedisCacheKeyASM;
 import scouter.agent.asm.redis.RedisKeyASM;
 import scouter.agent.asm.util.AsmUtil;
+import scouter.agent.netio.data.DataProxy;
 import scouter.agent.util.AsyncRunner;
 import scouter.lang.conf.ConfObserver;
 import scouter.util.FileUtil;
@@ -205,36 +206,65 @@ public class AgentTransformer implements ClassFileTransformer {
             ObjTypeDetector.check(className);
             final ClassDesc classDesc = new ClassDesc();
             ClassReader cr = new ClassReader(classfileBuffer);
-            cr.accept(new ClassVisitor(Opcodes.ASM7) {
-                public void visit(int version, int access, String name, String signature, String superName,
-                                  String[] interfaces) {
-                    classDesc.set(version, access, name, signature, superName, interfaces);
-                    if (conf._hook_map_impl_enabled) {
-                        classDesc.isMapImpl = isMapImpl(superName, interfaces, loader);
+            long start = System.nanoTime();
+            TransformStat.classes.incrementAndGet();
+            if (conf._hook_header_prefilter_enabled) {
+                readHeader(cr, classfileBuffer, classDesc, loader);
+            } else {
+                cr.accept(new ClassVisitor(Opcodes.ASM7) {
+                    public void visit(int version, int access, String name, String signature, String superName,
+                                      String[] interfaces) {
+                        classDesc.set(version, access, name, signature, superName, interfaces);
+                        if (conf._hook_map_impl_enabled) {
+                            classDesc.isMapImpl = isMapImpl(superName, interfaces, loader);
+                        }
+                        super.visit(version, access, name, signature, superName, interfaces);
                     }
-                    super.visit(version, access, name, signature, superName, interfaces);
-                }
 
-                @Override
-                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                    classDesc.anotation += desc;
-                    return super.visitAnnotation(desc, visible);
-                }
-            }, 0);
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        classDesc.anotation += desc;
+                        return super.visitAnnotation(desc, visible);
+                    }
+                }, 0);
+            }
             if (AsmUtil.isInterface(classDesc.access)) {
+                TransformStat.rejected.incrementAndGet();
+                TransformStat.nanos.addAndGet(System.nanoTime() - start);
                 return null;
             }
             classDesc.classBeingRedefined = classBeingRedefined;
             ClassWriter cw = getClassWriter(classDesc);
             ClassVisitor cv = cw;
+            boolean matched = false;
+            boolean cacheable = conf._hook_class_cache_enabled && classBeingRedefined == null;
+            byte[] original = classfileBuffer;
+            List<String> methodNames = null;
             List<IASM> workAsms = asms;
             for (int i = workAsms.size() - 1; i >= 0; i--) {
+                long asmStart = System.nanoTime();
                 cv = workAsms.get(i).transform(cv, className, classDesc);
                 if (cv != cw) {
+                    if (cacheable && matched == false) {
+                        TransformCache.Entry cached = TransformCache.getInstance().get(className, original);
+                        if (cached != null) {
+                            TransformCache.replay(cached);
+                            TransformStat.cacheHit.incrementAndGet();
+                            TransformStat.cacheSavedNanos.addAndGet(cached.nanos);
+                            TransformStat.transformed.incrementAndGet();
+                            TransformStat.nanos.addAndGet(System.nanoTime() - start);
+                            return cached.body;
+                        }
+                        TransformStat.cacheMiss.incrementAndGet();
+                        methodNames = new ArrayList<String>();
+                        DataProxy.recordMethodName(methodNames);
+                    }
                     cr = new ClassReader(classfileBuffer);
                     cr.accept(cv, ClassReader.EXPAND_FRAMES);
                     classfileBuffer = cw.toByteArray();
                     cv = cw = getClassWriter(classDesc);
+                    matched = true;
+                    TransformStat.match(workAsms.get(i), System.nanoTime() - asmStart);
                     if (conf._log_asm_enabled) {
                         if (this.bciOut == null) {
                             this.bciOut = new Logger.FileLog("./scouter.bci");
@@ -243,16 +273,89 @@ public class AgentTransformer implements ClassFileTransformer {
                     }
                 }
             }
+            (matched ? TransformStat.transformed : TransformStat.rejected).incrementAndGet();
+            long elapsed = System.nanoTime() - start;
+            TransformStat.nanos.addAndGet(elapsed);
+            if (methodNames != null) {
+                DataProxy.recordMethodName(null);
+                TransformCache.getInstance().put(className, original, classfileBuffer, elapsed, methodNames);
+            }
             return classfileBuffer;
         } catch (Throwable t) {
             Logger.println("A101", "Transformer Error : " + className, t);
             t.printStackTrace();
         } finally {
+            DataProxy.recordMethodName(null);
             hookingCtx.set(null);
         }
         return null;
     }
 
+    /**
+     * the annotations are read only when the constant pool has one of these descriptors, see SpringReqMapASM.
+     */
+    private static final byte[][] ANNOTATION_HINTS = toBytes(SpringReqMapASM.springControllerNames);
+
+    private static byte[][] toBytes(String[] names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * fills the class description from the header and the constant pool only.
+     * none of the hooks needs more than these to decide, so a class no hook takes is never parsed in full.
+     */
+    private void readHeader(ClassReader cr, byte[] bytes, ClassDesc classDesc, ClassLoader loader) {
+        String superName = cr.getSuperName();
+        String[] interfaces = cr.getInterfaces();
+        classDesc.set(cr.readInt(4), cr.getAccess(), cr.getClassName(), null, superName, interfaces);
+        if (conf._hook_map_impl_enabled) {
+            classDesc.isMapImpl = isMapImpl(superName, interfaces, loader);
+        }
+        if (hasUtf8(cr, bytes, ANNOTATION_HINTS)) {
+            final ClassDesc desc = classDesc;
+            cr.accept(new ClassVisitor(Opcodes.ASM7) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+                    desc.anotation += annotation;
+                    return super.visitAnnotation(annotation, visible);
+                }
+            }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        }
+    }
+
+    private static boolean hasUtf8(ClassReader cr, byte[] bytes, byte[][] values) {
+        for (int i = 1, max = cr.getItemCount(); i < max; i++) {
+            int offset = cr.getItem(i);
+            // 1 : CONSTANT_Utf8
+            if (offset == 0 || bytes[offset - 1] != 1) {
+                continue;
+            }
+            int len = cr.readUnsignedShort(offset);
+            for (int v = 0; v < values.length; v++) {
+                if (equals(bytes, offset + 2, len, values[v])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean equals(byte[] bytes, int offset, int len, byte[] value) {
+        if (len != value.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (bytes[offset + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean isMapImpl(String superName, String[] interfaces, ClassLoader loader) {
         String[] classes = new String[interfaces.length + 1];
         System.arraycopy(interfaces, 0, classes, 0, interfaces.length);
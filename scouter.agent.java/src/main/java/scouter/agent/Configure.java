@@ -161,6 +161,8 @@ public class Configure extends Thread {
     public boolean profile_method_enabled = true;
     @ConfigDesc("Profile Buffer Size")
     public int profile_step_max_count = 1024;
+    @ConfigDesc("Reuse profile step buffers and the serialization buffer per thread")
+    public boolean profile_step_pool_enabled = false;
     @ConfigDesc("Stack profile in occurrence of service error")
     public boolean profile_fullstack_service_error_enabled = false;
     @ConfigDesc("Stack profile in occurrence of apicall error")
@@ -608,6 +610,12 @@ public class Configure extends Thread {
     public boolean _hook_map_impl_enabled = false;
     @ConfigDesc("")
     public int _hook_map_impl_warning_size = 50000;
+    @ConfigDesc("Building the class description from the class file header only and rejecting the classes no hook matches before any full parse")
+    public boolean _hook_header_prefilter_enabled = true;
+    @ConfigDesc("Keeping the woven classes in the classcache directory of the agent so a restart skips weaving the same classes again")
+    public boolean _hook_class_cache_enabled = false;
+    @ConfigDesc("Max size of the classcache directory in MB")
+    public int _hook_class_cache_max_mb = 100;
 
     //Control
     @ConfigDesc("Activating Reject service")
@@ -933,6 +941,7 @@ public class Configure extends Thread {
         this.profile_step_max_count = getInt("profile_step_max_count", 1024);
         if (this.profile_step_max_count < 100)
             this.profile_step_max_count = 100;
+        this.profile_step_pool_enabled = getBoolean("profile_step_pool_enabled", false);
         this._log_background_sql = getBoolean("_log_background_sql", false);
         this.profile_fullstack_service_error_enabled = getBoolean("profile_fullstack_service_error_enabled", false);
         this.profile_fullstack_apicall_error_enabled = getBoolean("profile_fullstack_apicall_error_enabled", false);
@@ -985,6 +994,9 @@ public class Configure extends Thread {
         this._hook_boot_prefix = getValue("_hook_boot_prefix");
         this._hook_map_impl_enabled = getBoolean("_hook_map_impl_enabled", false);
         this._hook_map_impl_warning_size = getInt("_hook_map_impl_warning_size", 50000);
+        this._hook_header_prefilter_enabled = getBoolean("_hook_header_prefilter_enabled", true);
+        this._hook_class_cache_enabled = getBoolean("_hook_class_cache_enabled", false);
+        this._hook_class_cache_max_mb = getInt("_hook_class_cache_max_mb", 100);
 
         this.counter_recentuser_valid_ms = getLong("counter_recentuser_valid_ms", DateUtil.MILLIS_PER_FIVE_MINUTE);
         this.counter_object_registry_path = getValue("counter_object_registry_path", "/tmp/scouter");
@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package scouter.agent;
+
+import scouter.Version;
+import scouter.agent.netio.data.DataProxy;
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+import scouter.lang.conf.ConfObserver;
+import scouter.lang.conf.ConfigValueUtil;
+import scouter.util.FileUtil;
+import scouter.util.HashUtil;
+import scouter.util.Hexa32;
+import scouter.util.StringEnumer;
+import scouter.util.StringKeyLinkedMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * the woven classes on disk, so a restart with the same classes and the same hook options skips the weaving.
+ * an entry is keyed by the class name and the hash of the original bytes,
+ * and lives in a directory named after the agent version and every hook_* and _hook_* option,
+ * so a new agent or a change of the hook options starts an empty directory and the old ones are deleted.
+ * the method names sent while weaving are kept with the entry and sent again on a hit.
+ */
+public class TransformCache {
+
+	public static class Entry {
+		public byte[] body;
+		public long nanos;
+		public List<String> methodNames;
+	}
+
+	private static final String ROOT = "classcache";
+
+	private static TransformCache instance;
+
+	public final static synchronized TransformCache getInstance() {
+		if (instance == null) {
+			instance = new TransformCache();
+		}
+		return instance;
+	}
+
+	private Configure conf = Configure.getInstance();
+	private File dir;
+	private ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<String, Integer>();
+	private AtomicLong size = new AtomicLong();
+	private String signature;
+
+	private TransformCache() {
+		open();
+		ConfObserver.add("TransformCache", new Runnable() {
+			public void run() {
+				if (getSignature().equals(signature) == false) {
+					open();
+				}
+			}
+		});
+	}
+
+	private synchronized void open() {
+		this.signature = getSignature();
+		File root = new File(Configure.agent_dir_path, ROOT);
+		File[] olds = root.listFiles();
+		if (olds != null) {
+			for (int i = 0; i < olds.length; i++) {
+				if (olds[i].getName().equals(signature) == false) {
+					delete(olds[i]);
+				}
+			}
+		}
+		File d = new File(root, signature);
+		d.mkdirs();
+		ConcurrentHashMap<String, Integer> idx = new ConcurrentHashMap<String, Integer>();
+		long total = 0;
+		File[] files = d.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				idx.put(files[i].getName(), (int) files[i].length());
+				total += files[i].length();
+			}
+		}
+		this.index = idx;
+		this.size.set(total);
+		this.dir = d;
+		Logger.println("A184", "class cache " + d + " entries=" + idx.size() + " bytes=" + total);
+	}
+
+	private static void delete(File f) {
+		File[] files = f.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				files[i].delete();
+			}
+		}
+		f.delete();
+	}
+
+	private String getSignature() {
+		StringBuilder sb = new StringBuilder(Version.getAgentFullVersion());
+		StringKeyLinkedMap<Object> map = ConfigValueUtil.getConfigDefault(conf);
+		StringEnumer keys = map.keys();
+		while (keys.hasMoreElements()) {
+			String key = keys.nextString();
+			if ((key.startsWith("hook_") || key.startsWith("_hook_")) && key.startsWith("_hook_class_cache_") == false) {
+				sb.append('\n').append(key).append('=').append(map.get(key));
+			}
+		}
+		return Hexa32.toString32(HashUtil.hash(sb.toString()));
+	}
+
+	/**
+	 * @return null when the class is not in the cache
+	 */
+	public Entry get(String className, byte[] original) {
+		String name = getName(className, original);
+		if (index.containsKey(name) == false)
+			return null;
+		try {
+			byte[] b = FileUtil.readAll(new File(dir, name));
+			if (b == null)
+				return null;
+			DataInputX in = new DataInputX(b);
+			if (className.equals(in.readText()) == false || in.readDecimal() != original.length
+					|| in.readLong() != fnv64(original))
+				return null;
+			Entry e = new Entry();
+			e.nanos = in.readDecimal();
+			int cnt = (int) in.readDecimal();
+			e.methodNames = new ArrayList<String>(cnt);
+			for (int i = 0; i < cnt; i++) {
+				e.methodNames.add(in.readText());
+			}
+			e.body = in.readBlob();
+			return e;
+		} catch (Throwable t) {
+			Logger.println("A185", "class cache read error : " + className + " " + t);
+			index.remove(name);
+			return null;
+		}
+	}
+
+	public void put(String className, byte[] original, byte[] body, long nanos, List<String> methodNames) {
+		String name = getName(className, original);
+		if (index.containsKey(name))
+			return;
+		try {
+			DataOutputX out = new DataOutputX();
+			out.writeText(className);
+			out.writeDecimal(original.length);
+			out.writeLong(fnv64(original));
+			out.writeDecimal(nanos);
+			out.writeDecimal(methodNames.size());
+			for (int i = 0; i < methodNames.size(); i++) {
+				out.writeText(methodNames.get(i));
+			}
+			out.writeBlob(body);
+			byte[] b = out.toByteArray();
+			if (size.get() + b.length > conf._hook_class_cache_max_mb * 1024L * 1024L)
+				return;
+			FileUtil.save(new File(dir, name), b);
+			index.put(name, b.length);
+			size.addAndGet(b.length);
+		} catch (Throwable t) {
+			Logger.println("A186", "class cache write error : " + className + " " + t);
+		}
+	}
+
+	public static void replay(Entry e) {
+		for (int i = 0; i < e.methodNames.size(); i++) {
+			DataProxy.sendMethodName(e.methodNames.get(i));
+		}
+	}
+
+	private static String getName(String className, byte[] original) {
+		return className.replace('/', '.') + "_" + Hexa32.toString32(HashUtil.hash(original)) + ".class";
+	}
+
+	/**
+	 * 64 bit FNV-1a, to check the original bytes in addition to the crc32 in the file name.
+	 */
+	private static long fnv64(byte[] b) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < b.length; i++) {
+			h ^= (b[i] & 0xff);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+}
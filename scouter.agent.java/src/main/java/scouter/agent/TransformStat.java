@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package scouter.agent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * statistics of AgentTransformer, in total and for each IASM that matched a class.
+ * they are sent as agent counters by the TransformPerf counter task.
+ */
+public class TransformStat {
+
+	public static class Item {
+		public final AtomicLong match = new AtomicLong();
+		public final AtomicLong nanos = new AtomicLong();
+	}
+
+	public static final AtomicLong classes = new AtomicLong();
+	public static final AtomicLong rejected = new AtomicLong();
+	public static final AtomicLong transformed = new AtomicLong();
+	public static final AtomicLong nanos = new AtomicLong();
+	public static final AtomicLong cacheHit = new AtomicLong();
+	public static final AtomicLong cacheMiss = new AtomicLong();
+	// the weaving time the cache hits took when they were woven
+	public static final AtomicLong cacheSavedNanos = new AtomicLong();
+
+	private static final ConcurrentHashMap<String, Item> items = new ConcurrentHashMap<String, Item>();
+
+	public static void match(Object asm, long elapsedNanos) {
+		String name = asm.getClass().getSimpleName();
+		Item item = items.get(name);
+		if (item == null) {
+			Item old = items.putIfAbsent(name, item = new Item());
+			if (old != null) {
+				item = old;
+			}
+		}
+		item.match.incrementAndGet();
+		item.nanos.addAndGet(elapsedNanos);
+	}
+
+	public static Map<String, Item> getItems() {
+		return items;
+	}
+}
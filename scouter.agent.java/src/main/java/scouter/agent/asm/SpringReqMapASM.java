@@ -33,7 +33,7 @@ import java.util.Set;
  */
 public class SpringReqMapASM implements IASM, Opcodes {
 
-    static String springControllerNames[] = {"Lorg/springframework/stereotype/Controller;",
+    public static String springControllerNames[] = {"Lorg/springframework/stereotype/Controller;",
                                              "Lorg/springframework/web/bind/annotation/RestController;"};
 
     static Set<String> springRequestMappingAnnotations = new HashSet<String>();
@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package scouter.agent.counter.task;
+
+import scouter.agent.TransformStat;
+import scouter.agent.counter.CounterBasket;
+import scouter.agent.counter.anotation.Counter;
+import scouter.lang.TimeTypeEnum;
+import scouter.lang.pack.PerfCounterPack;
+import scouter.lang.value.DecimalValue;
+
+import java.util.Map;
+
+/**
+ * class transform counters, the counts since the start of the agent.
+ * BciMatch.xxx and BciTime.xxx are sent for each hook that matched a class.
+ */
+public class TransformPerf {
+	public static final String BCI_CLASSES = "BciClasses";
+	public static final String BCI_REJECTED = "BciRejected";
+	public static final String BCI_TRANSFORMED = "BciTransformed";
+	public static final String BCI_TIME = "BciTime";
+	public static final String BCI_CACHE_HIT = "BciCacheHit";
+	public static final String BCI_CACHE_MISS = "BciCacheMiss";
+	public static final String BCI_CACHE_SAVED_TIME = "BciCacheSavedTime";
+	public static final String BCI_MATCH_PREFIX = "BciMatch.";
+	public static final String BCI_TIME_PREFIX = "BciTime.";
+
+	@Counter
+	public void transformPerf(CounterBasket pw) {
+		PerfCounterPack p = pw.getPack(TimeTypeEnum.REALTIME);
+		p.put(BCI_CLASSES, new DecimalValue(TransformStat.classes.get()));
+		p.put(BCI_REJECTED, new DecimalValue(TransformStat.rejected.get()));
+		p.put(BCI_TRANSFORMED, new DecimalValue(TransformStat.transformed.get()));
+		p.put(BCI_TIME, new DecimalValue(TransformStat.nanos.get() / 1000000));
+		p.put(BCI_CACHE_HIT, new DecimalValue(TransformStat.cacheHit.get()));
+		p.put(BCI_CACHE_MISS, new DecimalValue(TransformStat.cacheMiss.get()));
+		p.put(BCI_CACHE_SAVED_TIME, new DecimalValue(TransformStat.cacheSavedNanos.get() / 1000000));
+
+		for (Map.Entry<String, TransformStat.Item> e : TransformStat.getItems().entrySet()) {
+			p.put(BCI_MATCH_PREFIX + e.getKey(), new DecimalValue(e.getValue().match.get()));
+			p.put(BCI_TIME_PREFIX + e.getKey(), new DecimalValue(e.getValue().nanos.get() / 1000000));
+		}
+	}
+}
@@ -18,6 +18,7 @@ package scouter.agent.netio.data;
 import scouter.agent.Configure;
 import scouter.agent.Logger;
 import scouter.agent.netio.data.net.DataUdpAgent;
+import scouter.agent.trace.ProfileStepPool;
 import scouter.agent.trace.TraceContext;
 import scouter.io.DataOutputX;
 import scouter.lang.TextTypes;
@@ -104,7 +105,20 @@ public class DataProxy {
 		return hash;
 	}
 	private static IntLinkedSet methodName = new IntLinkedSet().setMax(10000);
+	// the method names sent while a class is woven, kept by TransformCache to send them again on a cache hit
+	private static ThreadLocal<List<String>> methodNameRecorder = new ThreadLocal<List<String>>();
+	public static void recordMethodName(List<String> recorder) {
+		if (recorder == null) {
+			methodNameRecorder.remove();
+		} else {
+			methodNameRecorder.set(recorder);
+		}
+	}
 	public static int sendMethodName(String name) {
+		List<String> recorder = methodNameRecorder.get();
+		if (recorder != null) {
+			recorder.add(name);
+		}
 		int hash = HashUtil.hash(name);
 		if (methodName.contains(hash)) {
 			return hash;
@@ -225,6 +239,21 @@ public class DataProxy {
 		context.profileCount += p.length;
 		sendDirect(pk);
 	}
+	/**
+	 * send the first count steps. they are serialized before return, so the array can be reused.
+	 */
+	public static void sendProfile(Step[] p, int count, TraceContext context) {
+		if (p == null || count == 0)
+			return;
+		XLogProfilePack pk = new XLogProfilePack();
+		pk.txid = context.txid;
+		pk.objHash = conf.getObjHash();
+		pk.profile = Step.toBytes(p, count, ProfileStepPool.getOutput());
+		pk.service = context.serviceHash;
+		pk.elapsed = (int) (System.currentTimeMillis() - context.startTime);
+		context.profileCount += count;
+		sendDirect(pk);
+	}
 	public static void sendProfile(List<Step> p, TraceContext x) {
 		if (p == null || p.size() == 0)
 			return;
@@ -23,10 +23,13 @@ import scouter.lang.step.DumpStep;
 import scouter.lang.step.Step;
 import scouter.lang.step.StepSingle;
 
+import java.util.Arrays;
+
 public class ProfileCollector implements IProfileCollector {
     private Configure conf = Configure.getInstance();
     private TraceContext context;
-    protected Step[] steps = new Step[conf.profile_step_max_count];
+    private final boolean pooled = conf.profile_step_pool_enabled;
+    protected Step[] steps = pooled ? ProfileStepPool.take(conf.profile_step_max_count) : new Step[conf.profile_step_max_count];
     protected int pos = 0;
     private boolean doingDumpStepJob = false;
 
@@ -57,8 +60,17 @@ public class ProfileCollector implements IProfileCollector {
      */
     protected void process(StepSingle stepSingle) {
         checkDumpStep();
+        if (steps == null) {
+            return; //already closed and the buffer is returned to the pool.
+        }
         steps[pos++] = stepSingle;
         if (pos >= steps.length) {
+            if (pooled) {
+                DataProxy.sendProfile(steps, pos, context);
+                Arrays.fill(steps, null);
+                pos = 0;
+                return;
+            }
             Step[] o = steps;
             steps = new Step[conf.profile_step_max_count];
             pos = 0;
@@ -96,6 +108,18 @@ public class ProfileCollector implements IProfileCollector {
      */
     public void close(boolean ok) {
         checkDumpStep();
+        if (pooled) {
+            if (steps == null) {
+                return;
+            }
+            if (ok && pos > 0) {
+                DataProxy.sendProfile(steps, pos, context);
+            }
+            ProfileStepPool.release(steps, pos);
+            steps = null;
+            pos = 0;
+            return;
+        }
         if (ok && pos > 0) {
             StepSingle[] newSteps = new StepSingle[pos];
             System.arraycopy(steps, 0, newSteps, 0, pos);
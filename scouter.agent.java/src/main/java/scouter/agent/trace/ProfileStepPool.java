@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2015 the original author or authors. 
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); 
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. 
+ */
+
+package scouter.agent.trace;
+
+import scouter.io.DataOutputX;
+import scouter.lang.step.Step;
+
+import java.util.Arrays;
+
+/**
+ * per-thread pool of profile step arrays and the profile serialization buffer.
+ * a transaction may end on another thread, so each thread keeps at most MAX_POOLED arrays.
+ */
+public class ProfileStepPool {
+    private static final int MAX_POOLED = 4;
+    private static final int MAX_OUTPUT_SIZE = 256 * 1024;
+
+    private static ThreadLocal<ProfileStepPool> local = new ThreadLocal<ProfileStepPool>() {
+        protected ProfileStepPool initialValue() {
+            return new ProfileStepPool();
+        }
+    };
+
+    private final Step[][] arrays = new Step[MAX_POOLED][];
+    private int count;
+    private DataOutputX output = new DataOutputX(8192);
+
+    public static Step[] take(int size) {
+        ProfileStepPool pool = local.get();
+        while (pool.count > 0) {
+            Step[] steps = pool.arrays[--pool.count];
+            pool.arrays[pool.count] = null;
+            if (steps.length == size) {
+                return steps;
+            }
+        }
+        return new Step[size];
+    }
+
+    /**
+     * @param used the number of slots to clear before the array is reused.
+     */
+    public static void release(Step[] steps, int used) {
+        if (steps == null)
+            return;
+        Arrays.fill(steps, 0, Math.min(used, steps.length), null);
+        ProfileStepPool pool = local.get();
+        if (pool.count < MAX_POOLED) {
+            pool.arrays[pool.count++] = steps;
+        }
+    }
+
+    /**
+     * reusable buffer of the current thread. a buffer grown too large by a big profile is dropped.
+     */
+    public static DataOutputX getOutput() {
+        ProfileStepPool pool = local.get();
+        if (pool.output.size() > MAX_OUTPUT_SIZE) {
+            pool.output = new DataOutputX(8192);
+        }
+        return pool.output;
+    }
+}
@@ -29,9 +29,11 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
@@ -41,13 +43,24 @@ public class DataInputX {
 	private int offset;
 	private DataInput inner;
 	private DataInputStream din;
+	// a byte array or a buffer is read straight from this buffer
+	private ByteBuffer buf;
+	private final byte[] scratch = new byte[8];
 
 	public DataInputX(byte[] buff) {
-		this(new ByteArrayInputStream(buff));
+		this(ByteBuffer.wrap(buff));
 	}
 
 	public DataInputX(byte[] buff, int offset) {
-		this(new ByteArrayInputStream(buff, offset, buff.length - offset));
+		this(ByteBuffer.wrap(buff));
+		((Buffer) this.buf).position(Math.min(offset, buff.length));
+	}
+
+	/**
+	 * reads from the position to the limit of the buffer, a heap or a direct one.
+	 */
+	public DataInputX(ByteBuffer buf) {
+		this.buf = buf;
 	}
 
 	public DataInputX(ByteArrayInputStream in) {
@@ -68,55 +81,52 @@ public class DataInputX {
 		this.inner = in;
 	}
 
+	private ByteBuffer need(int len) throws IOException {
+		if (this.buf.remaining() < len)
+			throw new EOFException();
+		return this.buf;
+	}
+
 	public byte[] readIntBytes() throws IOException {
 		int len = readInt();
 		return read(len);
 	}
 	public byte[] read(int len) throws IOException {
-		offset += len;
 		byte[] buff = new byte[len];
-		this.inner.readFully(buff);
+		readFully(buff, 0, len);
 		return buff;
 	}
 
 	public byte[] readShortBytes() throws IOException {
 		int len = readUnsignedShort();
-		offset += len;
-		byte[] buff = new byte[len];
-		this.inner.readFully(buff);
-		return buff;
+		return read(len);
 	}
 
-	public byte[] readBlob() throws IOException {
+	private int readBlobLength() throws IOException {
 		int baselen = readUnsignedByte();
 		switch (baselen) {
-		case 255: {
-			int len = readUnsignedShort();
-			byte[] buffer = read(len);
-			return buffer;
-		}
-		case 254: {
-			int len = this.readInt();
-			byte[] buffer = read(len);
-			return buffer;
-		}
-		case 0: {
-			return new byte[0];
-		}
+		case 255:
+			return readUnsignedShort();
+		case 254:
+			return this.readInt();
 		default:
-			byte[] buffer = read(baselen);
-			return buffer;
+			return baselen;
 		}
 	}
+
+	public byte[] readBlob() throws IOException {
+		int len = readBlobLength();
+		return len == 0 ? new byte[0] : read(len);
+	}
 	
 	public int readInt3() throws IOException {
-		byte[] readBuffer = read(3);
-		return toInt3(readBuffer, 0);
+		readFully(scratch, 0, 3);
+		return toInt3(scratch, 0);
 	}
 
 	public long readLong5() throws IOException {
-		byte[] readBuffer =read(5);
-		return toLong5(readBuffer, 0);
+		readFully(scratch, 0, 5);
+		return toLong5(scratch, 0);
 	}
 
 	public long readDecimal() throws IOException {
@@ -140,6 +150,14 @@ public class DataInputX {
 	}
 
 	public String readText() throws IOException {
+		if (this.buf != null && this.buf.hasArray()) {
+			int len = readBlobLength();
+			need(len);
+			String s = new String(this.buf.array(), this.buf.arrayOffset() + this.buf.position(), len, "UTF8");
+			((Buffer) this.buf).position(this.buf.position() + len);
+			this.offset += len;
+			return s;
+		}
 		byte[] buffer = readBlob();
 		return new String(buffer, "UTF8");
 	}
@@ -251,91 +269,193 @@ public class DataInputX {
 	}
 
 	public Value readValue() throws IOException {
-		this.offset++;
-		byte type = this.inner.readByte();
+		byte type = readByte();
 		return ValueEnum.create(type).read(this);
 	}
 
+	/**
+	 * skips a value written by DataOutputX.writeValue without creating it.
+	 */
+	public void skipValue() throws IOException {
+		byte type = readByte();
+		switch (type) {
+		case ValueEnum.NULL:
+			return;
+		case ValueEnum.BOOLEAN:
+			skipFully(1);
+			return;
+		case ValueEnum.DECIMAL:
+			skipDecimal();
+			return;
+		case ValueEnum.FLOAT:
+		case ValueEnum.TEXT_HASH:
+		case ValueEnum.IP4ADDR:
+			skipFully(4);
+			return;
+		case ValueEnum.DOUBLE:
+			skipFully(8);
+			return;
+		case ValueEnum.DOUBLE_SUMMARY:
+		case ValueEnum.LONG_SUMMARY:
+			skipFully(28);
+			return;
+		case ValueEnum.TEXT:
+		case ValueEnum.BLOB:
+			skipBlob();
+			return;
+		case ValueEnum.LIST: {
+			int count = (int) readDecimal();
+			for (int i = 0; i < count; i++) {
+				skipValue();
+			}
+			return;
+		}
+		case ValueEnum.MAP: {
+			int count = (int) readDecimal();
+			for (int i = 0; i < count; i++) {
+				skipBlob();
+				skipValue();
+			}
+			return;
+		}
+		case ValueEnum.ARRAY_INT:
+		case ValueEnum.ARRAY_FLOAT:
+			skipFully(readShort() * 4);
+			return;
+		case ValueEnum.ARRAY_LONG:
+			skipFully(readShort() * 8);
+			return;
+		case ValueEnum.ARRAY_TEXT: {
+			int count = readShort();
+			for (int i = 0; i < count; i++) {
+				skipBlob();
+			}
+			return;
+		}
+		default:
+			ValueEnum.create(type).read(this);
+		}
+	}
+
+	public void skipDecimal() throws IOException {
+		byte len = readByte();
+		skipFully(len >= 0 && len <= 5 ? len : 8);
+	}
+
+	public void skipBlob() throws IOException {
+		int len = readBlobLength();
+		skipFully(len);
+	}
+
+	private void skipFully(int n) throws IOException {
+		if (this.buf != null) {
+			need(n);
+		}
+		skipBytes(n);
+	}
+
+	/**
+	 * the buffer that is read, null when reading a stream. its position is the next byte to read.
+	 */
+	public ByteBuffer getBuffer() {
+		return this.buf;
+	}
+
 	public Step readStep() throws IOException {
-		this.offset++;
-		byte type = this.inner.readByte();
+		byte type = readByte();
 		return StepEnum.create(type).read(this);
 	}
 
 	public Pack readPack() throws IOException {
-		this.offset++;
-		byte type = this.inner.readByte();
+		byte type = readByte();
 		return PackEnum.create(type).read(this);
 	}
 	public MapPack readMapPack() throws IOException {
 		return (MapPack)readPack();
 	}
 	public void readFully(byte[] b) throws IOException {
-		this.offset += b.length;
-		this.inner.readFully(b);
+		readFully(b, 0, b.length);
 	}
 
 	public void readFully(byte[] b, int off, int len) throws IOException {
 		this.offset += len;
-		this.inner.readFully(b, off, len);
+		if (this.buf != null) {
+			need(len).get(b, off, len);
+		} else {
+			this.inner.readFully(b, off, len);
+		}
 	}
 
 	public int skipBytes(int n) throws IOException {
 		this.offset += n;
+		if (this.buf != null) {
+			n = Math.max(0, Math.min(n, this.buf.remaining()));
+			((Buffer) this.buf).position(this.buf.position() + n);
+			return n;
+		}
 		return this.inner.skipBytes(n);
 	}
 
 	public boolean readBoolean() throws IOException {
-		this.offset += 1;
-		return this.inner.readBoolean();
+		return readByte() != 0;
 	}
 
 	public byte readByte() throws IOException {
 		this.offset += 1;
+		if (this.buf != null) {
+			return need(1).get();
+		}
 		return this.inner.readByte();
 	}
 
 	public int readUnsignedByte() throws IOException {
-		this.offset += 1;
-		return this.inner.readUnsignedByte();
+		return readByte() & 0xff;
 	}
 
 	public short readShort() throws IOException {
 		this.offset += 2;
+		if (this.buf != null) {
+			return need(2).getShort();
+		}
 		return this.inner.readShort();
 	}
 
 	public int readUnsignedShort() throws IOException {
-		this.offset += 2;
-		return this.inner.readUnsignedShort();
+		return readShort() & 0xffff;
 	}
 
 	public char readChar() throws IOException {
-		this.offset += 2;
-		return this.inner.readChar();
+		return (char) readShort();
 	}
 
 	public int readInt() throws IOException {
 		this.offset += 4;
+		if (this.buf != null) {
+			return need(4).getInt();
+		}
 		return this.inner.readInt();
 	}
 
 	public long readLong() throws IOException {
 		this.offset += 8;
+		if (this.buf != null) {
+			return need(8).getLong();
+		}
 		return this.inner.readLong();
 	}
 
 	public float readFloat() throws IOException {
-		this.offset += 4;
-		return this.inner.readFloat();
+		return Float.intBitsToFloat(readInt());
 	}
 
 	public double readDouble() throws IOException {
-		this.offset += 8;
-		return this.inner.readDouble();
+		return Double.longBitsToDouble(readLong());
 	}
 
 	public int available() throws IOException {
+		if (this.buf != null) {
+			return this.buf.remaining();
+		}
 		return this.din == null ? 0 : this.din.available();
 	}
 
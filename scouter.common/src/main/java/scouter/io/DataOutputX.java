@@ -23,6 +23,8 @@ import scouter.lang.value.NullValue;
 import scouter.lang.value.Value;
 
 import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 public class DataOutputX {
 	public final static int INT3_MIN_VALUE = 0xff800000;
@@ -33,22 +35,68 @@ public class DataOutputX {
 	private int written;
 	private DataOutput inner;
 	private ByteArrayOutputStream bout;
+	// in-memory output is written straight into this buffer, it grows as needed.
+	private ByteBuffer buf;
+	private int bufStart;
+	// the bytes of a number before it is written, so no array is allocated for each field
+	private final byte[] scratch = new byte[9];
 
 	public DataOutputX(int size) {
-		this(new ByteArrayOutputStream(size));
+		this(ByteBuffer.allocate(Math.max(size, 16)));
 	}
 
 	public DataOutputX() {
-		this(new ByteArrayOutputStream());
+		this(ByteBuffer.allocate(32));
+	}
+
+	/**
+	 * writes from the position of the buffer, a heap or a direct one.
+	 * the buffer is replaced by a bigger one of the same kind when it is full, so get the result by toByteBuffer().
+	 */
+	public DataOutputX(ByteBuffer buf) {
+		this.buf = buf;
+		this.bufStart = buf.position();
 	}
 
 	public byte[] toByteArray() {
-		if (this.bout != null)
+		if (this.buf != null) {
+			byte[] b = new byte[this.buf.position() - this.bufStart];
+			ByteBuffer d = this.buf.duplicate();
+			((Buffer) d).position(this.bufStart);
+			d.get(b);
+			return b;
+		} else if (this.bout != null)
 			return bout.toByteArray();
 		else
 			return null;
 	}
 
+	/**
+	 * the written bytes without copying them. it is valid until the next write or reset.
+	 * only for the in-memory output.
+	 */
+	public ByteBuffer toByteBuffer() {
+		if (this.buf == null)
+			return null;
+		ByteBuffer d = this.buf.duplicate();
+		((Buffer) d).limit(this.buf.position());
+		((Buffer) d).position(this.bufStart);
+		return d.slice();
+	}
+
+	/**
+	 * discard the written bytes to reuse the buffer. only for the byte array output.
+	 */
+	public DataOutputX reset() {
+		if (this.buf != null) {
+			((Buffer) this.buf).position(this.bufStart);
+		} else if (this.bout != null) {
+			this.bout.reset();
+		}
+		this.written = 0;
+		return this;
+	}
+
 	public DataOutputX(ByteArrayOutputStream byteout) {
 		this.bout = byteout;
 		this.inner = new DataOutputStream(byteout);
@@ -66,6 +114,20 @@ public class DataOutputX {
 		this.inner = out;
 	}
 
+	private void ensure(int len) {
+		if (this.buf.remaining() >= len)
+			return;
+		int cap = Math.max(this.buf.capacity() * 2, this.buf.position() + len);
+		ByteBuffer b = this.buf.isDirect() ? ByteBuffer.allocateDirect(cap) : ByteBuffer.allocate(cap);
+		((Buffer) this.buf).flip();
+		b.put(this.buf);
+		this.buf = b;
+	}
+
+	private void writeScratch(int len) throws IOException {
+		write(this.scratch, 0, len);
+	}
+
 	public DataOutputX writeIntBytes(byte[] b) throws IOException {
 		this.writeInt(b.length);
 		this.write(b);
@@ -90,20 +152,8 @@ public class DataOutputX {
 			writeByte((byte) 0);
 		} else {
 			int len = Math.min(length, value.length - offset);
-			if (len <= 253) {
-				writeByte((byte) len);
-				write(value, offset, len);
-			} else if (len <= 65535) {
-				byte[] buff = new byte[3];
-				buff[0] = (byte) 255;
-				write(toBytes(buff, 1, (short) len));
-				write(value, offset, len);
-			} else {
-				byte[] buff = new byte[5];
-				buff[0] = (byte) 254;
-				write(toBytes(buff, 1, len));
-				write(value, offset, len);
-			}
+			writeBlobLength(len);
+			write(value, offset, len);
 		}
 		return this;
 	}
@@ -112,28 +162,39 @@ public class DataOutputX {
 		if (value == null || value.length == 0) {
 			writeByte((byte) 0);
 		} else {
-			int len = value.length;
-			if (len <= 253) {
-				writeByte((byte) len);
-				write(value);
-			} else if (len <= 65535) {
-				byte[] buff = new byte[3];
-				buff[0] = (byte) 255; // 255 means value's length is more than 253 bytes.
-				write(toBytes(buff, 1, (short) len));
-				write(value);
-			} else {
-				byte[] buff = new byte[5];
-				buff[0] = (byte) 254; // 254 means value's length is more than 65535 bytes.
-				write(toBytes(buff, 1, len));
-				write(value);
-			}
+			writeBlobLength(value.length);
+			write(value);
 		}
 		return this;
 	}
 
+	private void writeBlobLength(int len) throws IOException {
+		if (len <= 253) {
+			writeByte((byte) len);
+		} else if (len <= 65535) {
+			scratch[0] = (byte) 255; // 255 means value's length is more than 253 bytes.
+			toBytes(scratch, 1, (short) len);
+			writeScratch(3);
+		} else {
+			scratch[0] = (byte) 254; // 254 means value's length is more than 65535 bytes.
+			toBytes(scratch, 1, len);
+			writeScratch(5);
+		}
+	}
+
 	public DataOutputX writeText(String s) throws IOException {
 		if (s == null) {
 			writeByte((byte) 0);
+		} else if (this.buf != null) {
+			int len = utf8Length(s);
+			if (len == 0) {
+				writeByte((byte) 0);
+			} else {
+				writeBlobLength(len);
+				ensure(len);
+				putUtf8(s);
+				this.written += len;
+			}
 		} else {
 			writeBlob(s.getBytes("UTF8"));
 		}
@@ -144,18 +205,81 @@ public class DataOutputX {
 		if (s == null) {
 			writeByte((byte) 0);
 		} else {
-			writeBlob(s.toString().getBytes("UTF8"));
+			writeText(s.toString());
 		}
 		return this;
 	}
 
+	/**
+	 * the length of s.getBytes("UTF8"). a surrogate out of a pair is encoded to '?' as the jdk does.
+	 */
+	private static int utf8Length(String s) {
+		int n = s.length();
+		int len = n;
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				continue;
+			} else if (c < 0x800) {
+				len += 1;
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+					len += 2; // 4 bytes for 2 chars
+					i++;
+				}
+			} else {
+				len += 2;
+			}
+		}
+		return len;
+	}
+
+	private void putUtf8(String s) {
+		int n = s.length();
+		int i = 0;
+		if (this.buf.hasArray()) {
+			byte[] a = this.buf.array();
+			int p = this.buf.arrayOffset() + this.buf.position();
+			for (char c; i < n && (c = s.charAt(i)) < 0x80; i++) {
+				a[p + i] = (byte) c;
+			}
+			((Buffer) this.buf).position(this.buf.position() + i);
+		}
+		ByteBuffer b = this.buf;
+		for (; i < n; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				b.put((byte) c);
+			} else if (c < 0x800) {
+				b.put((byte) (0xc0 | (c >> 6)));
+				b.put((byte) (0x80 | (c & 0x3f)));
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+					int cp = Character.toCodePoint(c, s.charAt(++i));
+					b.put((byte) (0xf0 | (cp >> 18)));
+					b.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+					b.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+					b.put((byte) (0x80 | (cp & 0x3f)));
+				} else {
+					b.put((byte) '?');
+				}
+			} else {
+				b.put((byte) (0xe0 | (c >> 12)));
+				b.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				b.put((byte) (0x80 | (c & 0x3f)));
+			}
+		}
+	}
+
 	public DataOutputX writeInt3(int v) throws IOException {
-		write(toBytes3(v), 0, 3);
+		toBytes3(scratch, 0, v);
+		writeScratch(3);
 		return this;
 	}
 
 	public DataOutputX writeLong5(long v) throws IOException {
-		write(toBytes5(v), 0, 5);
+		toBytes5(scratch, 0, v);
+		writeScratch(5);
 		return this;
 	}
 
@@ -163,31 +287,29 @@ public class DataOutputX {
 		if (v == 0) {
 			writeByte(0);
 		} else if (Byte.MIN_VALUE <= v && v <= Byte.MAX_VALUE) {
-			byte[] b = new byte[2];
-			b[0] = 1;
-			b[1] = (byte) v;
-			write(b);
+			scratch[0] = 1;
+			scratch[1] = (byte) v;
+			writeScratch(2);
 		} else if (Short.MIN_VALUE <= v && v <= Short.MAX_VALUE) {
-			byte[] b = new byte[3];
-			b[0] = 2;
-			toBytes(b, 1, (short) v);
-			write(b);
+			scratch[0] = 2;
+			toBytes(scratch, 1, (short) v);
+			writeScratch(3);
 		} else if (INT3_MIN_VALUE <= v && v <= INT3_MAX_VALUE) {
-			byte[] b = new byte[4];
-			b[0] = 3;
-			write(toBytes3(b, 1, (int) v), 0, 4);
+			scratch[0] = 3;
+			toBytes3(scratch, 1, (int) v);
+			writeScratch(4);
 		} else if (Integer.MIN_VALUE <= v && v <= Integer.MAX_VALUE) {
-			byte[] b = new byte[5];
-			b[0] = 4;
-			write(toBytes(b, 1, (int) v), 0, 5);
+			scratch[0] = 4;
+			toBytes(scratch, 1, (int) v);
+			writeScratch(5);
 		} else if (LONG5_MIN_VALUE <= v && v <= LONG5_MAX_VALUE) {
-			byte[] b = new byte[6];
-			b[0] = 5;
-			write(toBytes5(b, 1, v), 0, 6);
-		} else if (Long.MIN_VALUE <= v && v <= Long.MAX_VALUE) {
-			byte[] b = new byte[9];
-			b[0] = 8;
-			write(toBytes(b, 1, v), 0, 9);
+			scratch[0] = 5;
+			toBytes5(scratch, 1, v);
+			writeScratch(6);
+		} else {
+			scratch[0] = 8;
+			toBytes(scratch, 1, v);
+			writeScratch(9);
 		}
 		return this;
 	}
@@ -404,63 +526,63 @@ public class DataOutputX {
 	}
 
 	public DataOutputX write(byte[] b) throws IOException {
-		this.written += b.length;
-		this.inner.write(b);
-		return this;
+		return write(b, 0, b.length);
 	}
 
 	public DataOutputX write(byte[] b, int off, int len) throws IOException {
 		this.written += len;
-		this.inner.write(b, off, len);
+		if (this.buf != null) {
+			ensure(len);
+			this.buf.put(b, off, len);
+		} else {
+			this.inner.write(b, off, len);
+		}
 		return this;
 	}
 
 	public DataOutputX writeBoolean(boolean v) throws IOException {
-		this.written++;
-		this.inner.writeBoolean(v);
-		return this;
+		return writeByte(v ? 1 : 0);
 	}
 
 	public DataOutputX writeByte(int v) throws IOException {
 		this.written++;
-		this.inner.writeByte((byte) v);
+		if (this.buf != null) {
+			ensure(1);
+			this.buf.put((byte) v);
+		} else {
+			this.inner.writeByte((byte) v);
+		}
 		return this;
 	}
 
 	public DataOutputX writeShort(int v) throws IOException {
-		this.written += 2;
-		this.inner.write(toBytes((short) v));
+		toBytes(scratch, 0, (short) v);
+		writeScratch(2);
 		return this;
 	}
 
 	public DataOutputX writeChar(int v) throws IOException {
-		this.written += 2;
-		this.inner.writeChar(v);
-		return this;
+		return writeShort(v);
 	}
 
 	public DataOutputX writeInt(int v) throws IOException {
-		this.written += 4;
-		this.inner.write(toBytes(v));
+		toBytes(scratch, 0, v);
+		writeScratch(4);
 		return this;
 	}
 
 	public DataOutputX writeLong(long v) throws IOException {
-		this.written += 8;
-		this.inner.write(toBytes(v));
+		toBytes(scratch, 0, v);
+		writeScratch(8);
 		return this;
 	}
 
 	public DataOutputX writeFloat(float v) throws IOException {
-		this.written += 4;
-		this.inner.write(toBytes(v));
-		return this;
+		return writeInt(Float.floatToIntBits(v));
 	}
 
 	public DataOutputX writeDouble(double v) throws IOException {
-		this.written += 8;
-		this.inner.write(toBytes(v));
-		return this;
+		return writeLong(Double.doubleToLongBits(v));
 	}
 
 	public int size() {
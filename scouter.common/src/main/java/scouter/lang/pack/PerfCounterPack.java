@@ -23,6 +23,7 @@ import scouter.io.DataInputX;
 import scouter.io.DataOutputX;
 import scouter.lang.TimeTypeEnum;
 import scouter.lang.value.FloatValue;
+import scouter.lang.value.LazyMapValue;
 import scouter.lang.value.MapValue;
 import scouter.lang.value.NumberValue;
 import scouter.lang.value.Value;
@@ -74,7 +75,7 @@ public class PerfCounterPack implements Pack {
 		this.time = din.readLong();
 		this.objName = din.readText();
 		this.timetype = din.readByte();
-		this.data = (MapValue) din.readValue();
+		this.data = LazyMapValue.readValue(din);
 		return this;
 	}
 
@@ -172,6 +172,12 @@ public class XLogPack implements Pack {
 
 	public int profileCount;
 	public boolean b3Mode;
+
+	/**
+	 * bytes this pack was read from (not serialized).
+	 * the server stores them as they are, so it must be cleared whenever a field is changed.
+	 */
+	public byte[] wireBytes;
 	
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
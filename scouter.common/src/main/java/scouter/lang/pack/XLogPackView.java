@@ -0,0 +1,408 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.lang.pack;
+
+import scouter.io.DataInputX;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Lazy reader of a serialized XLogPack (the bytes of DataOutputX.writePack).
+ * The fields are written in a fixed order, so a getter decodes only up to the field it needs
+ * and texts are not converted into strings until they are asked.
+ * A scan can filter on a few fields and skip the full decoding of the rows it drops.
+ * One view can be reused for many rows by wrap(). It is not thread-safe.
+ */
+public class XLogPackView {
+	public static final int END_TIME = 0;
+	public static final int OBJ_HASH = 1;
+	public static final int SERVICE = 2;
+	public static final int TXID = 3;
+	public static final int CALLER = 4;
+	public static final int GXID = 5;
+	public static final int ELAPSED = 6;
+	public static final int ERROR = 7;
+	public static final int CPU = 8;
+	public static final int SQL_COUNT = 9;
+	public static final int SQL_TIME = 10;
+	public static final int IPADDR = 11;
+	public static final int KBYTES = 12;
+	public static final int STATUS = 13;
+	public static final int USERID = 14;
+	public static final int USER_AGENT = 15;
+	public static final int REFERER = 16;
+	public static final int GROUP = 17;
+	public static final int APICALL_COUNT = 18;
+	public static final int APICALL_TIME = 19;
+	public static final int COUNTRY_CODE = 20;
+	public static final int CITY = 21;
+	public static final int XTYPE = 22;
+	public static final int LOGIN = 23;
+	public static final int DESC = 24;
+	public static final int WEB_HASH = 25;
+	public static final int WEB_TIME = 26;
+	public static final int HAS_DUMP = 27;
+	public static final int THREAD_NAME_HASH = 28;
+	public static final int TEXT1 = 29;
+	public static final int TEXT2 = 30;
+	public static final int QUEUING_HOST_HASH = 31;
+	public static final int QUEUING_TIME = 32;
+	public static final int QUEUING_2ND_HOST_HASH = 33;
+	public static final int QUEUING_2ND_TIME = 34;
+	public static final int TEXT3 = 35;
+	public static final int TEXT4 = 36;
+	public static final int TEXT5 = 37;
+	public static final int PROFILE_COUNT = 38;
+	public static final int B3_MODE = 39;
+	private static final int FIELD_COUNT = 40;
+
+	private static final byte DECIMAL = 0;
+	private static final byte LONG = 1;
+	private static final byte BLOB = 2;
+	private static final byte BYTE = 3;
+
+	private static final byte[] TYPES = new byte[FIELD_COUNT];
+	/**
+	 * the fields from an optional group on are written only by the newer agents, see XLogPack.read()
+	 */
+	private static final boolean[] GROUP_START = new boolean[FIELD_COUNT];
+
+	static {
+		TYPES[TXID] = LONG;
+		TYPES[CALLER] = LONG;
+		TYPES[GXID] = LONG;
+		TYPES[IPADDR] = BLOB;
+		TYPES[COUNTRY_CODE] = BLOB;
+		TYPES[XTYPE] = BYTE;
+		TYPES[HAS_DUMP] = BYTE;
+		TYPES[TEXT1] = BLOB;
+		TYPES[TEXT2] = BLOB;
+		TYPES[TEXT3] = BLOB;
+		TYPES[TEXT4] = BLOB;
+		TYPES[TEXT5] = BLOB;
+		TYPES[B3_MODE] = BYTE;
+
+		int[] groups = {COUNTRY_CODE, XTYPE, LOGIN, WEB_HASH, HAS_DUMP, THREAD_NAME_HASH, TEXT1, QUEUING_HOST_HASH,
+				TEXT3, PROFILE_COUNT, B3_MODE};
+		for (int g : groups) {
+			GROUP_START[g] = true;
+		}
+	}
+
+	private byte[] data;
+	private int pos;
+	private int end;
+	private int next;
+
+	private final long[] values = new long[FIELD_COUNT];
+	private final int[] offsets = new int[FIELD_COUNT];
+	private final int[] lengths = new int[FIELD_COUNT];
+
+	public XLogPackView() {
+	}
+
+	public XLogPackView(byte[] data) throws IOException {
+		wrap(data);
+	}
+
+	public XLogPackView wrap(byte[] data) throws IOException {
+		if (data == null || data.length < 2 || data[0] != PackEnum.XLOG)
+			throw new IOException("not a xlog pack");
+		this.data = data;
+		this.pos = 1;
+		int len = readBlobLength();
+		this.end = pos + len;
+		if (end > data.length)
+			throw new IOException("broken xlog pack");
+		this.next = 0;
+		Arrays.fill(values, 0L);
+		Arrays.fill(lengths, -1);
+		return this;
+	}
+
+	public byte[] getBytes() {
+		return data;
+	}
+
+	/**
+	 * decodes every field, as DataInputX.readPack() does.
+	 */
+	public XLogPack toPack() throws IOException {
+		return (XLogPack) new DataInputX(data).readPack();
+	}
+
+	private void decodeTo(int field) {
+		while (next <= field) {
+			if (GROUP_START[next] && pos >= end) {
+				next = FIELD_COUNT;
+				return;
+			}
+			switch (TYPES[next]) {
+			case LONG:
+				values[next] = DataInputX.toLong(data, pos);
+				pos += 8;
+				break;
+			case BLOB:
+				int len = readBlobLength();
+				offsets[next] = pos;
+				lengths[next] = len;
+				pos += len;
+				break;
+			case BYTE:
+				values[next] = data[pos++];
+				break;
+			default:
+				values[next] = readDecimal();
+			}
+			next++;
+		}
+	}
+
+	private int readBlobLength() {
+		int baselen = data[pos++] & 0xff;
+		switch (baselen) {
+		case 255: {
+			int len = ((data[pos] & 0xff) << 8) + (data[pos + 1] & 0xff);
+			pos += 2;
+			return len;
+		}
+		case 254: {
+			int len = DataInputX.toInt(data, pos);
+			pos += 4;
+			return len;
+		}
+		default:
+			return baselen;
+		}
+	}
+
+	private long readDecimal() {
+		byte len = data[pos++];
+		long v;
+		switch (len) {
+		case 0:
+			return 0;
+		case 1:
+			v = data[pos];
+			break;
+		case 2:
+			v = DataInputX.toShort(data, pos);
+			break;
+		case 3:
+			v = DataInputX.toInt3(data, pos);
+			break;
+		case 4:
+			v = DataInputX.toInt(data, pos);
+			break;
+		case 5:
+			v = DataInputX.toLong5(data, pos);
+			break;
+		default:
+			v = DataInputX.toLong(data, pos);
+			len = 8;
+		}
+		pos += len;
+		return v;
+	}
+
+	private long value(int field) {
+		decodeTo(field);
+		return values[field];
+	}
+
+	private byte[] blob(int field) {
+		decodeTo(field);
+		int len = lengths[field];
+		if (len < 0)
+			return null;
+		return Arrays.copyOfRange(data, offsets[field], offsets[field] + len);
+	}
+
+	private String text(int field) {
+		decodeTo(field);
+		int len = lengths[field];
+		if (len < 0)
+			return null;
+		try {
+			return new String(data, offsets[field], len, "UTF8");
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public long getEndTime() {
+		return value(END_TIME);
+	}
+
+	public int getObjHash() {
+		return (int) value(OBJ_HASH);
+	}
+
+	public int getService() {
+		return (int) value(SERVICE);
+	}
+
+	public long getTxid() {
+		return value(TXID);
+	}
+
+	public long getCaller() {
+		return value(CALLER);
+	}
+
+	public long getGxid() {
+		return value(GXID);
+	}
+
+	public int getElapsed() {
+		return (int) value(ELAPSED);
+	}
+
+	public int getError() {
+		return (int) value(ERROR);
+	}
+
+	public int getCpu() {
+		return (int) value(CPU);
+	}
+
+	public int getSqlCount() {
+		return (int) value(SQL_COUNT);
+	}
+
+	public int getSqlTime() {
+		return (int) value(SQL_TIME);
+	}
+
+	public byte[] getIpaddr() {
+		return blob(IPADDR);
+	}
+
+	public int getKbytes() {
+		return (int) value(KBYTES);
+	}
+
+	public int getStatus() {
+		return (int) value(STATUS);
+	}
+
+	public long getUserid() {
+		return value(USERID);
+	}
+
+	public int getUserAgent() {
+		return (int) value(USER_AGENT);
+	}
+
+	public int getReferer() {
+		return (int) value(REFERER);
+	}
+
+	public int getGroup() {
+		return (int) value(GROUP);
+	}
+
+	public int getApicallCount() {
+		return (int) value(APICALL_COUNT);
+	}
+
+	public int getApicallTime() {
+		return (int) value(APICALL_TIME);
+	}
+
+	public String getCountryCode() {
+		return text(COUNTRY_CODE);
+	}
+
+	public int getCity() {
+		return (int) value(CITY);
+	}
+
+	public byte getXType() {
+		return (byte) value(XTYPE);
+	}
+
+	public int getLogin() {
+		return (int) value(LOGIN);
+	}
+
+	public int getDesc() {
+		return (int) value(DESC);
+	}
+
+	public int getWebHash() {
+		return (int) value(WEB_HASH);
+	}
+
+	public int getWebTime() {
+		return (int) value(WEB_TIME);
+	}
+
+	public byte getHasDump() {
+		return (byte) value(HAS_DUMP);
+	}
+
+	public int getThreadNameHash() {
+		return (int) value(THREAD_NAME_HASH);
+	}
+
+	public String getText1() {
+		return text(TEXT1);
+	}
+
+	public String getText2() {
+		return text(TEXT2);
+	}
+
+	public int getQueuingHostHash() {
+		return (int) value(QUEUING_HOST_HASH);
+	}
+
+	public int getQueuingTime() {
+		return (int) value(QUEUING_TIME);
+	}
+
+	public int getQueuing2ndHostHash() {
+		return (int) value(QUEUING_2ND_HOST_HASH);
+	}
+
+	public int getQueuing2ndTime() {
+		return (int) value(QUEUING_2ND_TIME);
+	}
+
+	public String getText3() {
+		return text(TEXT3);
+	}
+
+	public String getText4() {
+		return text(TEXT4);
+	}
+
+	public String getText5() {
+		return text(TEXT5);
+	}
+
+	public int getProfileCount() {
+		return (int) value(PROFILE_COUNT);
+	}
+
+	public boolean isB3Mode() {
+		return value(B3_MODE) != 0;
+	}
+}
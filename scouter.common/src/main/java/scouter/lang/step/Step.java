@@ -60,6 +60,23 @@ abstract public class Step implements Comparable<Step> {
 		return null;
 	}
 
+	/**
+	 * serialize the first count steps with a reusable buffer.
+	 */
+	public static byte[] toBytes(Step[] p, int count, DataOutputX dout) {
+		if (p == null)
+			return null;
+		try {
+			dout.reset();
+			for (int i = 0; i < count; i++) {
+				dout.writeStep(p[i]);
+			}
+			return dout.toByteArray();
+		} catch (IOException e) {
+		}
+		return null;
+	}
+
 	public static byte[] toBytes(List<Step> p) {
 		if (p == null)
 			return null;
@@ -0,0 +1,277 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package scouter.lang.value;
+
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MapValue over the bytes it was read from.
+ * the keys are indexed at the first access and a value is decoded when it is asked for.
+ * write() copies the bytes as they are, and writeValueBytes() copies a value without decoding it.
+ * a key added to the map is kept aside with its value, like the objHash and the time stamped on a received counter,
+ * and the received entries stay as they are.
+ * any other change of the map decodes every value into the table and works as a MapValue from then on.
+ */
+public class LazyMapValue extends MapValue {
+
+	private byte[] buf;
+	private int offset;
+	private int length;
+
+	private LinkedHashMap<String, Integer> index;
+	private int entriesStart;
+	private int[] valueStart;
+	private int[] valueEnd;
+	private Value[] values;
+	//the keys added after the map was received, none of them is in the received entries
+	private LinkedHashMap<String, Value> added;
+
+	/**
+	 * @param buf    the bytes of MapValue.write(), the count and the entries
+	 */
+	public LazyMapValue(byte[] buf, int offset, int length) {
+		this.buf = buf;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * reads a value of DataOutputX.writeValue() that must be a map.
+	 */
+	public static MapValue readValue(DataInputX din) throws IOException {
+		byte type = din.readByte();
+		if (type == ValueEnum.MAP)
+			return readMap(din);
+		return (MapValue) ValueEnum.create(type).read(din);
+	}
+
+	/**
+	 * a LazyMapValue over the array of the input, or a MapValue when the input is a stream.
+	 */
+	public static MapValue readMap(DataInputX din) throws IOException {
+		ByteBuffer b = din.getBuffer();
+		if (b == null || b.hasArray() == false)
+			return (MapValue) new MapValue().read(din);
+		int start = b.position();
+		int count = (int) din.readDecimal();
+		for (int i = 0; i < count; i++) {
+			din.skipBlob();
+			din.skipValue();
+		}
+		return new LazyMapValue(b.array(), b.arrayOffset() + start, b.position() - start);
+	}
+
+	private LinkedHashMap<String, Integer> index() {
+		if (index != null)
+			return index;
+		try {
+			DataInputX in = new DataInputX(ByteBuffer.wrap(buf, offset, length));
+			ByteBuffer b = in.getBuffer();
+			int count = (int) in.readDecimal();
+			entriesStart = b.position();
+			LinkedHashMap<String, Integer> idx = new LinkedHashMap<String, Integer>();
+			valueStart = new int[count];
+			valueEnd = new int[count];
+			values = new Value[count];
+			for (int i = 0; i < count; i++) {
+				String key = in.readText();
+				valueStart[i] = b.position();
+				in.skipValue();
+				valueEnd[i] = b.position();
+				idx.put(key, i);
+			}
+			index = idx;
+			return idx;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Value value(int slot) {
+		Value v = values[slot];
+		if (v == null) {
+			try {
+				v = new DataInputX(ByteBuffer.wrap(buf, valueStart[slot], valueEnd[slot] - valueStart[slot])).readValue();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			values[slot] = v;
+		}
+		return v;
+	}
+
+	private void materialize() {
+		if (buf == null)
+			return;
+		LinkedHashMap<String, Integer> idx = index();
+		for (Map.Entry<String, Integer> e : idx.entrySet()) {
+			table.put(e.getKey(), value(e.getValue()));
+		}
+		if (added != null) {
+			table.putAll(added);
+		}
+		buf = null;
+		index = null;
+		valueStart = null;
+		valueEnd = null;
+		values = null;
+		added = null;
+	}
+
+	private Value getAdded(String key) {
+		return added == null ? null : added.get(key);
+	}
+
+	private int addedSize() {
+		return added == null ? 0 : added.size();
+	}
+
+	private Set<String> lazyKeySet() {
+		if (added == null)
+			return Collections.unmodifiableSet(index().keySet());
+		LinkedHashSet<String> keys = new LinkedHashSet<String>(index().keySet());
+		keys.addAll(added.keySet());
+		return Collections.unmodifiableSet(keys);
+	}
+
+	public synchronized boolean isLazy() {
+		return buf != null;
+	}
+
+	/**
+	 * writes the value of the key as DataOutputX.writeValue() does, copying the received bytes.
+	 * @return false when the key is not in the map or the map has changed, the value must be written by the caller then
+	 */
+	public synchronized boolean writeValueBytes(String key, DataOutputX out) throws IOException {
+		if (buf == null)
+			return false;
+		Integer slot = index().get(key);
+		if (slot == null)
+			return false;
+		out.write(buf, valueStart[slot], valueEnd[slot] - valueStart[slot]);
+		return true;
+	}
+
+	public synchronized int size() {
+		return buf == null ? super.size() : index().size() + addedSize();
+	}
+
+	public synchronized boolean isEmpty() {
+		return buf == null ? super.isEmpty() : index().isEmpty() && addedSize() == 0;
+	}
+
+	public synchronized boolean containsKey(String key) {
+		return buf == null ? super.containsKey(key) : index().containsKey(key) || getAdded(key) != null;
+	}
+
+	public synchronized Enumeration<String> keys() {
+		return buf == null ? super.keys() : Collections.enumeration(lazyKeySet());
+	}
+
+	public synchronized Set<String> keySet() {
+		return buf == null ? super.keySet() : lazyKeySet();
+	}
+
+	public synchronized Value get(String key) {
+		if (buf == null)
+			return super.get(key);
+		Integer slot = index().get(key);
+		return slot == null ? getAdded(key) : value(slot);
+	}
+
+	public synchronized Value put(String key, Value value) {
+		if (buf != null && value != null && index().containsKey(key) == false) {
+			if (added == null) {
+				added = new LinkedHashMap<String, Value>();
+			}
+			return added.put(key, value);
+		}
+		materialize();
+		return super.put(key, value);
+	}
+
+	public synchronized Value remove(String key) {
+		if (buf != null && index().containsKey(key) == false) {
+			return added == null ? null : added.remove(key);
+		}
+		materialize();
+		return super.remove(key);
+	}
+
+	public synchronized void clear() {
+		materialize();
+		super.clear();
+	}
+
+	public synchronized void putAll(Map<String, Value> m) {
+		materialize();
+		super.putAll(m);
+	}
+
+	public synchronized ListValue getList(String key) {
+		return (ListValue) get(key);
+	}
+
+	public synchronized ListValue getListNotNull(String key) {
+		ListValue lv = (ListValue) get(key);
+		return lv == null ? new ListValue() : lv;
+	}
+
+	public synchronized String toString() {
+		materialize();
+		return super.toString();
+	}
+
+	public synchronized void write(DataOutputX dout) throws IOException {
+		if (buf == null) {
+			super.write(dout);
+		} else if (addedSize() == 0) {
+			dout.write(buf, offset, length);
+		} else {
+			dout.writeDecimal(index().size() + added.size());
+			dout.write(buf, entriesStart, offset + length - entriesStart);
+			Iterator<Map.Entry<String, Value>> en = added.entrySet().iterator();
+			while (en.hasNext()) {
+				Map.Entry<String, Value> e = en.next();
+				dout.writeText(e.getKey());
+				dout.writeValue(e.getValue());
+			}
+		}
+	}
+
+	public synchronized Object toJavaObject() {
+		materialize();
+		return super.toJavaObject();
+	}
+
+	public synchronized Map<String, Value> toMap() {
+		materialize();
+		return super.toMap();
+	}
+}
@@ -198,14 +198,18 @@ public class MapValue implements Value {
 			return true;
 		if (obj == null)
 			return false;
-		if (getClass() != obj.getClass())
+		if (obj instanceof MapValue == false)
 			return false;
 		MapValue other = (MapValue) obj;
-		if (table == null) {
-			if (other.table != null)
-				return false;
-		} else if (!table.equals(other.table))
+		if (size() != other.size())
 			return false;
+		Iterator<String> en = keySet().iterator();
+		while (en.hasNext()) {
+			String key = en.next();
+			Value value = get(key);
+			if (value == null ? other.get(key) != null : value.equals(other.get(key)) == false)
+				return false;
+		}
 		return true;
 	}
 	public void putAll(Map<String, Value> m){
@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+/**
+ * Bloom filter of long keys.
+ * mightContain() never returns false for a key that was put, so a false answer can skip the lookup of the real store.
+ * putting more keys than expected only raises the false positive rate.
+ * the bit positions are 31 bits, so the filter never takes more than 2^31 bits(256MB).
+ * It is not thread-safe.
+ */
+public class BloomFilter {
+	private static final long MAX_BITS = 1L << 31;
+
+	private final int expected;
+	private final long[] bits;
+	private final long bitSize;
+	private final int hashCount;
+	private int count;
+
+	/**
+	 * @param expected the number of keys to put
+	 * @param fpp the false positive probability at the expected number of keys (ex. 0.01)
+	 */
+	public BloomFilter(int expected, double fpp) {
+		if (expected < 1)
+			expected = 1;
+		this.expected = expected;
+		long m = Math.min(MAX_BITS, (long) (-expected * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+		int words = (int) Math.max(1, (m + 63) >>> 6);
+		this.bits = new long[words];
+		this.bitSize = (long) words << 6;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expected * Math.log(2)));
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+
+	public void put(long key) {
+		long h = mix(key);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long pos = ((h1 + i * h2) & 0x7fffffffL) % bitSize;
+			bits[(int) (pos >>> 6)] |= 1L << pos;
+		}
+		count++;
+	}
+
+	public boolean mightContain(long key) {
+		long h = mix(key);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long pos = ((h1 + i * h2) & 0x7fffffffL) % bitSize;
+			if ((bits[(int) (pos >>> 6)] & (1L << pos)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getExpected() {
+		return expected;
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded array-backed ring queue with the same API as RequestQueue.
+ * Slots are claimed with sequence numbers (Vyukov's bounded queue), so producers and consumers never share a monitor
+ * and no node is allocated per hand-off.
+ * <p>
+ * - single consumer : the waiting consumer is parked and woken up by LockSupport.unpark() without any lock.
+ * - multi consumer : waiting consumers sleep on a condition that producers signal only when someone is waiting.
+ * <p>
+ * With spin waiting, a consumer spins and yields for a while before it parks.
+ * The ring size is the capacity rounded up to a power of two. capacity 0 or less means the DEFAULT_RING_SIZE.
+ */
+public class RingRequestQueue<V> extends RequestQueue<V> {
+	public static final int DEFAULT_RING_SIZE = 65536;
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+
+	private final int mask;
+	private final AtomicReferenceArray<V> buffer;
+	private final AtomicLongArray sequence;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private volatile int limit;
+
+	private final boolean multiConsumer;
+	private final boolean spinWait;
+
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private volatile Thread consumer;
+
+	public RingRequestQueue(int capacity, boolean multiConsumer, boolean spinWait) {
+		super(capacity);
+		int size = 2;
+		int required = capacity <= 0 ? DEFAULT_RING_SIZE : capacity;
+		while (size < required) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.buffer = new AtomicReferenceArray<V>(size);
+		this.sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequence.set(i, i);
+		}
+		this.limit = required;
+		this.multiConsumer = multiConsumer;
+		this.spinWait = spinWait;
+	}
+
+	/**
+	 * queue for many producer threads and one consumer thread.
+	 */
+	public static <V> RingRequestQueue<V> mpsc(int capacity) {
+		return new RingRequestQueue<V>(capacity, false, false);
+	}
+
+	/**
+	 * queue for many producer threads and many consumer threads.
+	 */
+	public static <V> RingRequestQueue<V> mpmc(int capacity) {
+		return new RingRequestQueue<V>(capacity, true, false);
+	}
+
+	private boolean offer(V o) {
+		while (true) {
+			long t = tail.get();
+			int idx = (int) (t & mask);
+			long dif = sequence.get(idx) - t;
+			if (dif == 0) {
+				if (t - head.get() >= limit) {
+					return false;
+				}
+				if (tail.compareAndSet(t, t + 1)) {
+					buffer.lazySet(idx, o);
+					sequence.set(idx, t + 1);
+					return true;
+				}
+			} else if (dif < 0) {
+				return false;
+			}
+		}
+	}
+
+	private V poll() {
+		while (true) {
+			long h = head.get();
+			int idx = (int) (h & mask);
+			long dif = sequence.get(idx) - (h + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(h, h + 1)) {
+					V o = buffer.get(idx);
+					buffer.lazySet(idx, null);
+					sequence.set(idx, h + mask + 1);
+					return o;
+				}
+			} else if (dif < 0) {
+				return null;
+			}
+		}
+	}
+
+	private void signal(boolean all) {
+		if (waiters.get() == 0) {
+			return;
+		}
+		if (multiConsumer == false) {
+			Thread t = consumer;
+			if (t != null) {
+				LockSupport.unpark(t);
+			}
+			return;
+		}
+		lock.lock();
+		try {
+			if (all) {
+				notEmpty.signalAll();
+			} else {
+				notEmpty.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private V spin() {
+		if (spinWait == false) {
+			return null;
+		}
+		for (int i = 0; i < SPIN_TRIES + YIELD_TRIES; i++) {
+			V o = poll();
+			if (o != null) {
+				return o;
+			}
+			if (i >= SPIN_TRIES) {
+				Thread.yield();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param timeoutNanos 0 or less to wait until an item is available.
+	 */
+	private V await(long timeoutNanos) {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (true) {
+			V o = poll();
+			if (o != null) {
+				return o;
+			}
+			long remain = timeoutNanos <= 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+			if (remain <= 0) {
+				return null;
+			}
+			if (multiConsumer) {
+				lock.lock();
+				waiters.incrementAndGet();
+				try {
+					o = poll();
+					if (o != null) {
+						return o;
+					}
+					if (timeoutNanos <= 0) {
+						notEmpty.await();
+					} else {
+						notEmpty.awaitNanos(remain);
+					}
+				} catch (InterruptedException e) {
+				} finally {
+					waiters.decrementAndGet();
+					lock.unlock();
+				}
+			} else {
+				consumer = Thread.currentThread();
+				waiters.incrementAndGet();
+				try {
+					o = poll();
+					if (o != null) {
+						return o;
+					}
+					if (timeoutNanos <= 0) {
+						LockSupport.park(this);
+					} else {
+						LockSupport.parkNanos(this, remain);
+					}
+				} finally {
+					waiters.decrementAndGet();
+				}
+			}
+		}
+	}
+
+	public V get() {
+		V o = poll();
+		if (o != null) {
+			return o;
+		}
+		o = spin();
+		if (o != null) {
+			return o;
+		}
+		return await(0);
+	}
+
+	public V getNoWait() {
+		return poll();
+	}
+
+	public V get(long timeout) {
+		V o = poll();
+		if (o != null || timeout <= 0) {
+			return o;
+		}
+		o = spin();
+		if (o != null) {
+			return o;
+		}
+		return await(TimeUnit.MILLISECONDS.toNanos(timeout));
+	}
+
+	public boolean putForce(V o) {
+		boolean ok = true;
+		while (offer(o) == false) {
+			poll();
+			ok = false;
+		}
+		signal(true);
+		return ok;
+	}
+
+	public boolean put(V o) {
+		boolean ok = offer(o);
+		signal(true);
+		return ok;
+	}
+
+	public boolean putNotifySingle(V o) {
+		boolean ok = offer(o);
+		signal(false);
+		return ok;
+	}
+
+	public void clear() {
+		while (poll() != null) {
+		}
+	}
+
+	public int size() {
+		long size = tail.get() - head.get();
+		return size < 0 ? 0 : (int) size;
+	}
+
+	public int getCapacity() {
+		return this.limit;
+	}
+
+	/**
+	 * the capacity can't be larger than the ring size.
+	 */
+	public void setCapacity(int size) {
+		this.limit = size <= 0 ? mask + 1 : Math.min(size, mask + 1);
+	}
+}
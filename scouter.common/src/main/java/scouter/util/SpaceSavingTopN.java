@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy hitters of weighted keys in a fixed number of counters.
+ * When the counters are full, a new key takes over the smallest counter and inherits its count as the error.
+ * So a count is never under the real one and over it by at most the error,
+ * and every key heavier than total/capacity is kept.
+ * The counts are exact until the first key is evicted.
+ * It is not thread-safe.
+ */
+public class SpaceSavingTopN<K> {
+
+	public static class Counter<K> {
+		private final K key;
+		private double count;
+		private double error;
+		private long seq;
+
+		Counter(K key) {
+			this.key = key;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public double getCount() {
+			return count;
+		}
+
+		public double getError() {
+			return error;
+		}
+	}
+
+	private final int capacity;
+	private final HashMap<K, Counter<K>> counters = new HashMap<K, Counter<K>>();
+	private final TreeSet<Counter<K>> order = new TreeSet<Counter<K>>(new Comparator<Counter<K>>() {
+		public int compare(Counter<K> o1, Counter<K> o2) {
+			if (o1.count != o2.count)
+				return o1.count < o2.count ? -1 : 1;
+			return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
+		}
+	});
+	private long seq;
+	private double total;
+	private long evicted;
+
+	public SpaceSavingTopN(int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+	public void add(K key, double weight) {
+		total += weight;
+		Counter<K> c = counters.get(key);
+		if (c != null) {
+			order.remove(c);
+		} else if (counters.size() < capacity) {
+			c = new Counter<K>(key);
+			counters.put(key, c);
+		} else {
+			Counter<K> min = order.pollFirst();
+			counters.remove(min.key);
+			evicted++;
+			c = new Counter<K>(key);
+			c.count = min.count;
+			c.error = min.count;
+			counters.put(key, c);
+		}
+		c.count += weight;
+		c.seq = seq++;
+		order.add(c);
+	}
+
+	/**
+	 * @return the heaviest counters in descending order of count
+	 */
+	public List<Counter<K>> getTop(int n) {
+		List<Counter<K>> list = new ArrayList<Counter<K>>(Math.min(n, counters.size()));
+		Iterator<Counter<K>> itr = order.descendingIterator();
+		while (itr.hasNext() && list.size() < n) {
+			list.add(itr.next());
+		}
+		return list;
+	}
+
+	public double getTotal() {
+		return total;
+	}
+
+	public int size() {
+		return counters.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the count of keys taken over by a new key, 0 while the counts are exact
+	 */
+	public long getEvicted() {
+		return evicted;
+	}
+}
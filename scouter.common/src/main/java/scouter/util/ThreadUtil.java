@@ -27,6 +27,7 @@ import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -169,6 +170,22 @@ public class ThreadUtil {
 		return pack;
 	}
 
+	/**
+	 * the queue of the executor holds at most queueSize tasks, a task submitted beyond it runs on the submitting thread.
+	 */
+	public static ThreadPoolExecutor createExecutor(final String name, int count, int keepAlive, final boolean isDaemon, int queueSize) {
+		return new ThreadPoolExecutor(count, count, keepAlive, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+			private int threadNum = 1;
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + (threadNum++));
+				t.setDaemon(isDaemon);
+				return t;
+			}
+
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
 	public static ThreadPoolExecutor createExecutor(final String name, int count, int keepAlive, final boolean isDaemon) {
 		ThreadPoolExecutor exe = new ThreadPoolExecutor(count, count, keepAlive, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
 			private int threadNum = 1;
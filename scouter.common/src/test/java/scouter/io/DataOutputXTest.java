@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.io;
+
+import org.junit.Test;
+import scouter.lang.pack.MapPack;
+import scouter.lang.pack.Pack;
+import scouter.lang.pack.PerfCounterPack;
+import scouter.lang.pack.XLogPack;
+import scouter.lang.value.ListValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataOutputXTest {
+
+    private static final long[] NUMBERS = { 0, 1, -1, 127, -128, 128, -129, 32767, -32768, 32768, 0x7fffff, -0x800000,
+            0x800000, Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 32, 0x7fffffffffL, -0x8000000000L, 1L << 40,
+            Long.MAX_VALUE, Long.MIN_VALUE };
+
+    private static final String[] TEXTS = { "", "abc", "한글", "é", "😀x", "\uD83Dx", "x\uDE00",
+            "\uD83D", repeat('a', 300), repeat('가', 30000) };
+
+    @Test
+    public void buffer_and_stream_output_are_the_same() throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputX stream = new DataOutputX(new DataOutputStream(bout));
+        DataOutputX buffer = new DataOutputX();
+        DataOutputX direct = new DataOutputX(ByteBuffer.allocateDirect(8));
+        write(stream);
+        write(buffer);
+        write(direct);
+
+        byte[] expected = bout.toByteArray();
+        assertArrayEquals(expected, buffer.toByteArray());
+        ByteBuffer slice = direct.toByteBuffer();
+        byte[] b = new byte[slice.remaining()];
+        slice.get(b);
+        assertArrayEquals(expected, b);
+        assertEquals(expected.length, buffer.size());
+    }
+
+    @Test
+    public void text_is_the_jdk_utf8() throws Exception {
+        for (String s : TEXTS) {
+            byte[] utf8 = s.getBytes("UTF8");
+            byte[] blob = new DataOutputX().writeBlob(utf8).toByteArray();
+            assertArrayEquals(blob, new DataOutputX().writeText(s).toByteArray());
+            assertEquals(new String(utf8, "UTF8"), new DataInputX(blob).readText());
+        }
+    }
+
+    @Test
+    public void packs_read_back_from_every_input() throws Exception {
+        byte[] b = new DataOutputX().writePack(xlog()).writePack(perf()).writePack(map()).toByteArray();
+        ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+        direct.put(b);
+        ((Buffer) direct).flip();
+        DataInputX[] ins = { new DataInputX(b), new DataInputX(new ByteArrayInputStream(b)), new DataInputX(direct) };
+        for (DataInputX in : ins) {
+            DataOutputX out = new DataOutputX();
+            for (int i = 0; i < 3; i++) {
+                Pack p = in.readPack();
+                out.writePack(p);
+            }
+            assertArrayEquals(b, out.toByteArray());
+            assertEquals(b.length, in.getOffset());
+            try {
+                in.readByte();
+                assertTrue("no EOFException", false);
+            } catch (EOFException e) {
+            }
+        }
+    }
+
+    @Test
+    public void reset_reuses_the_buffer() throws Exception {
+        DataOutputX out = new DataOutputX(4);
+        out.writeText(repeat('z', 1000));
+        out.reset();
+        out.writeDecimal(300);
+        assertArrayEquals(new byte[] { 2, 1, 44 }, out.toByteArray());
+        assertEquals(3, out.toByteBuffer().remaining());
+    }
+
+    private static void write(DataOutputX out) throws Exception {
+        for (long n : NUMBERS) {
+            out.writeDecimal(n);
+            out.writeLong5(n);
+            out.writeInt3((int) n);
+            out.writeShort((int) n);
+            out.writeInt((int) n);
+            out.writeLong(n);
+            out.writeFloat(n);
+            out.writeDouble(n);
+            out.writeBoolean(n > 0);
+        }
+        for (String s : TEXTS) {
+            out.writeText(s);
+        }
+        out.writeBlob(new byte[0]);
+        out.writeBlob(new byte[300]);
+        out.writeBlob(new byte[70000]);
+        out.writeBlob(new byte[100], 10, 50);
+        out.writePack(xlog());
+        out.writePack(perf());
+        out.writePack(map());
+    }
+
+    private static XLogPack xlog() {
+        XLogPack p = new XLogPack();
+        p.endTime = 1500000000000L;
+        p.objHash = 12345;
+        p.service = 67890;
+        p.txid = 1234567890123L;
+        p.elapsed = 1500;
+        p.ipaddr = new byte[] { 10, 0, 0, 1 };
+        p.text1 = "한글 text";
+        return p;
+    }
+
+    private static PerfCounterPack perf() {
+        PerfCounterPack p = new PerfCounterPack();
+        p.time = 1500000000000L;
+        p.objName = "/host/tomcat";
+        p.put("TPS", 12.5f);
+        p.put("ActiveService", 3);
+        return p;
+    }
+
+    private static MapPack map() {
+        MapPack p = new MapPack();
+        p.put("name", "value");
+        p.put("count", 1234567L);
+        ListValue list = p.newList("list");
+        list.add(1);
+        list.add("two");
+        return p;
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.io;
+
+import scouter.lang.pack.MapPack;
+import scouter.lang.pack.Pack;
+import scouter.lang.pack.PerfCounterPack;
+import scouter.lang.pack.XLogPack;
+import scouter.lang.value.ListValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+/**
+ * encode and decode of XLogPack, PerfCounterPack and MapPack,
+ * with the in-memory buffer of DataOutputX/DataInputX, a reused buffer and the stream path for comparison.
+ * run main() with the test classpath. warm-up rounds are not reported.
+ */
+public class PackCodecBenchmark {
+    private static final int COUNT = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        Pack[] packs = { xlog(), perf(), map() };
+        for (int round = 0; round < 5; round++) {
+            boolean report = round >= 2;
+            for (Pack p : packs) {
+                run(p, report);
+            }
+        }
+    }
+
+    private static void run(Pack pack, boolean report) throws Exception {
+        String name = pack.getClass().getSimpleName();
+        long sink = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            new DataOutputX(new DataOutputStream(bout)).writePack(pack);
+            sink += bout.toByteArray().length;
+        }
+        long streamEncode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            sink += new DataOutputX().writePack(pack).toByteArray().length;
+        }
+        long encode = System.nanoTime() - start;
+
+        DataOutputX reused = new DataOutputX();
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            sink += reused.reset().writePack(pack).toByteBuffer().remaining();
+        }
+        long reuseEncode = System.nanoTime() - start;
+
+        byte[] wire = new DataOutputX().writePack(pack).toByteArray();
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            sink += new DataInputX(new ByteArrayInputStream(wire)).readPack().getPackType();
+        }
+        long streamDecode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            sink += new DataInputX(wire).readPack().getPackType();
+        }
+        long decode = System.nanoTime() - start;
+
+        if (report) {
+            System.out.println(name + " encode stream : " + ops(streamEncode));
+            System.out.println(name + " encode        : " + ops(encode));
+            System.out.println(name + " encode reused : " + ops(reuseEncode));
+            System.out.println(name + " decode stream : " + ops(streamDecode));
+            System.out.println(name + " decode        : " + ops(decode) + " (" + sink + ")");
+        }
+    }
+
+    private static String ops(long nanos) {
+        return (COUNT * 1000L / Math.max(1, nanos / 1000000)) + " ops/s";
+    }
+
+    private static XLogPack xlog() {
+        XLogPack p = new XLogPack();
+        p.endTime = System.currentTimeMillis();
+        p.objHash = 12345;
+        p.service = 67890;
+        p.txid = 1234567890123L;
+        p.gxid = 1234567890124L;
+        p.elapsed = 1500;
+        p.cpu = 30;
+        p.sqlCount = 12;
+        p.sqlTime = 400;
+        p.ipaddr = new byte[] { 10, 0, 0, 1 };
+        p.userAgent = 1111;
+        p.group = 3333;
+        p.text1 = "order-service";
+        return p;
+    }
+
+    private static PerfCounterPack perf() {
+        PerfCounterPack p = new PerfCounterPack();
+        p.time = System.currentTimeMillis();
+        p.objName = "/host/tomcat1";
+        p.put("TPS", 120.5f);
+        p.put("ElapsedTime", 35);
+        p.put("ActiveService", 4);
+        p.put("HeapUsed", 512.25f);
+        p.put("GcCount", 2);
+        p.put("Cpu", 12.5f);
+        return p;
+    }
+
+    private static MapPack map() {
+        MapPack p = new MapPack();
+        p.put("objHash", 12345);
+        p.put("objName", "/host/tomcat1");
+        p.put("service", "/order/list.do");
+        p.put("elapsed", 1500L);
+        ListValue list = p.newList("sql");
+        for (int i = 0; i < 10; i++) {
+            list.add("select * from orders where id = ?" + i);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.lang.pack;
+
+import java.util.Arrays;
+
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+
+/**
+ * cost of the server xlog path: decode + encode again vs decode + keeping the received bytes.
+ * run main() with the test classpath. warm-up rounds are not reported.
+ */
+public class XLogPackEncodeBenchmark {
+    private static final int COUNT = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        byte[] wire = new DataOutputX().writePack(sample()).toByteArray();
+        for (int round = 0; round < 5; round++) {
+            boolean report = round >= 2;
+            long sink = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < COUNT; i++) {
+                XLogPack p = (XLogPack) new DataInputX(wire).readPack();
+                sink += new DataOutputX().writePack(p).toByteArray().length;
+            }
+            long encode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < COUNT; i++) {
+                DataInputX in = new DataInputX(wire);
+                XLogPack p = (XLogPack) in.readPack();
+                p.wireBytes = Arrays.copyOfRange(wire, 0, in.getOffset());
+                sink += p.wireBytes.length;
+            }
+            long reuse = System.nanoTime() - start;
+
+            if (report) {
+                System.out.println("decode+encode : " + (COUNT * 1000L / Math.max(1, encode / 1000000)) + " ops/s");
+                System.out.println("decode+reuse  : " + (COUNT * 1000L / Math.max(1, reuse / 1000000)) + " ops/s (" + sink + ")");
+            }
+        }
+    }
+
+    private static XLogPack sample() {
+        XLogPack p = new XLogPack();
+        p.endTime = System.currentTimeMillis();
+        p.objHash = 12345;
+        p.service = 67890;
+        p.txid = 1234567890123L;
+        p.gxid = 1234567890124L;
+        p.elapsed = 1500;
+        p.cpu = 30;
+        p.sqlCount = 12;
+        p.sqlTime = 400;
+        p.apicallCount = 2;
+        p.apicallTime = 200;
+        p.ipaddr = new byte[] { 10, 0, 0, 1 };
+        p.userAgent = 1111;
+        p.referer = 2222;
+        p.group = 3333;
+        return p;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.lang.pack;
+
+import org.junit.Test;
+import scouter.io.DataOutputX;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@SuppressWarnings("deprecation")
+public class XLogPackViewTest {
+
+    @Test
+    public void reads_the_same_fields_with_the_full_decoding() throws Exception {
+        XLogPack p = sample();
+        byte[] bytes = new DataOutputX().writePack(p).toByteArray();
+        XLogPackView v = new XLogPackView(bytes);
+
+        assertEquals(p.endTime, v.getEndTime());
+        assertEquals(p.objHash, v.getObjHash());
+        assertEquals(p.service, v.getService());
+        assertEquals(p.txid, v.getTxid());
+        assertEquals(p.caller, v.getCaller());
+        assertEquals(p.gxid, v.getGxid());
+        assertEquals(p.elapsed, v.getElapsed());
+        assertEquals(p.error, v.getError());
+        assertEquals(p.cpu, v.getCpu());
+        assertEquals(p.sqlCount, v.getSqlCount());
+        assertEquals(p.sqlTime, v.getSqlTime());
+        assertTrue(Arrays.equals(p.ipaddr, v.getIpaddr()));
+        assertEquals(p.kbytes, v.getKbytes());
+        assertEquals(p.status, v.getStatus());
+        assertEquals(p.userid, v.getUserid());
+        assertEquals(p.userAgent, v.getUserAgent());
+        assertEquals(p.referer, v.getReferer());
+        assertEquals(p.group, v.getGroup());
+        assertEquals(p.apicallCount, v.getApicallCount());
+        assertEquals(p.apicallTime, v.getApicallTime());
+        assertEquals(p.countryCode, v.getCountryCode());
+        assertEquals(p.city, v.getCity());
+        assertEquals(p.xType, v.getXType());
+        assertEquals(p.login, v.getLogin());
+        assertEquals(p.desc, v.getDesc());
+        assertEquals(p.webHash, v.getWebHash());
+        assertEquals(p.webTime, v.getWebTime());
+        assertEquals(p.hasDump, v.getHasDump());
+        assertEquals(p.threadNameHash, v.getThreadNameHash());
+        assertEquals(p.text1, v.getText1());
+        assertEquals(p.text2, v.getText2());
+        assertEquals(p.queuingHostHash, v.getQueuingHostHash());
+        assertEquals(p.queuingTime, v.getQueuingTime());
+        assertEquals(p.queuing2ndHostHash, v.getQueuing2ndHostHash());
+        assertEquals(p.queuing2ndTime, v.getQueuing2ndTime());
+        assertEquals(p.text3, v.getText3());
+        assertEquals(p.text4, v.getText4());
+        assertEquals(p.text5, v.getText5());
+        assertEquals(p.profileCount, v.getProfileCount());
+        assertEquals(p.b3Mode, v.isB3Mode());
+    }
+
+    @Test
+    public void reads_a_field_out_of_order_and_after_rewrapping() throws Exception {
+        XLogPack p = sample();
+        XLogPackView v = new XLogPackView(new DataOutputX().writePack(p).toByteArray());
+        assertEquals(p.text5, v.getText5());
+        assertEquals(p.objHash, v.getObjHash());
+
+        XLogPack p2 = sample();
+        p2.objHash = 99;
+        p2.text5 = null;
+        v.wrap(new DataOutputX().writePack(p2).toByteArray());
+        assertEquals(99, v.getObjHash());
+        assertEquals("", v.getText5());
+        assertEquals(p2.login, v.getLogin());
+    }
+
+    @Test
+    public void optional_fields_of_an_old_agent_are_default() throws Exception {
+        XLogPack p = sample();
+        byte[] full = new DataOutputX().writePack(p).toByteArray();
+
+        DataOutputX o = new DataOutputX();
+        o.writeDecimal(p.endTime);
+        o.writeDecimal(p.objHash);
+        o.writeDecimal(p.service);
+        o.writeLong(p.txid);
+        o.writeLong(p.caller);
+        o.writeLong(p.gxid);
+        o.writeDecimal(p.elapsed);
+        o.writeDecimal(p.error);
+        o.writeDecimal(p.cpu);
+        o.writeDecimal(p.sqlCount);
+        o.writeDecimal(p.sqlTime);
+        o.writeBlob(p.ipaddr);
+        o.writeDecimal(p.kbytes);
+        o.writeDecimal(p.status);
+        o.writeDecimal(p.userid);
+        o.writeDecimal(p.userAgent);
+        o.writeDecimal(p.referer);
+        o.writeDecimal(p.group);
+        o.writeDecimal(p.apicallCount);
+        o.writeDecimal(p.apicallTime);
+        byte[] old = new DataOutputX().writeByte(full[0]).writeBlob(o.toByteArray()).toByteArray();
+
+        XLogPackView v = new XLogPackView(old);
+        assertEquals(p.apicallTime, v.getApicallTime());
+        assertNull(v.getCountryCode());
+        assertEquals(0, v.getLogin());
+        assertNull(v.getText1());
+        assertEquals(0, v.getProfileCount());
+        assertEquals(false, v.isB3Mode());
+    }
+
+    private static XLogPack sample() {
+        XLogPack p = new XLogPack();
+        p.endTime = 1500000000123L;
+        p.objHash = -12345;
+        p.service = 67890;
+        p.txid = 1234567890123L;
+        p.caller = -7L;
+        p.gxid = 1234567890124L;
+        p.elapsed = 70000;
+        p.error = 300;
+        p.cpu = 30;
+        p.sqlCount = 12;
+        p.sqlTime = 400;
+        p.ipaddr = new byte[] { 10, 0, 0, 1 };
+        p.kbytes = 5;
+        p.status = 200;
+        p.userid = 9000000000L;
+        p.userAgent = 1111;
+        p.referer = 2222;
+        p.group = 3333;
+        p.apicallCount = 2;
+        p.apicallTime = 200;
+        p.countryCode = "KR";
+        p.city = 44;
+        p.xType = 2;
+        p.login = 555;
+        p.desc = 666;
+        p.webHash = 777;
+        p.webTime = 8;
+        p.hasDump = 1;
+        p.threadNameHash = 999;
+        p.text1 = "t1";
+        p.text2 = "한글";
+        p.queuingHostHash = 11;
+        p.queuingTime = 12;
+        p.queuing2ndHostHash = 13;
+        p.queuing2ndTime = 14;
+        p.text3 = "t3";
+        p.text4 = "t4";
+        p.text5 = "t5";
+        p.profileCount = 15;
+        p.b3Mode = true;
+        return p;
+    }
+}
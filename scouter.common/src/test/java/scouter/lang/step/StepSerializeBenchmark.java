@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.lang.step;
+
+import java.lang.management.ManagementFactory;
+
+import scouter.io.DataOutputX;
+
+/**
+ * bytes allocated per traced transaction by the agent profile path:
+ * a new step array + copy + new serialization buffer vs a reused step array + reused buffer.
+ * run main() with the test classpath on a HotSpot JVM. warm-up rounds are not reported.
+ */
+public class StepSerializeBenchmark {
+    private static final int TX = 100000;
+    private static final int STEPS_PER_TX = 200;
+    private static final int MAX_STEPS = 1024;
+
+    public static void main(String[] args) throws Exception {
+        Step[] source = new Step[STEPS_PER_TX];
+        for (int i = 0; i < source.length; i++) {
+            MethodStep m = new MethodStep();
+            m.hash = i;
+            m.start_time = i * 10;
+            m.elapsed = 3;
+            source[i] = m;
+        }
+        Step[] pooled = new Step[MAX_STEPS];
+        DataOutputX out = new DataOutputX(8192);
+
+        for (int round = 0; round < 5; round++) {
+            boolean report = round >= 2;
+            long sink = 0;
+
+            long before = allocated();
+            for (int t = 0; t < TX; t++) {
+                Step[] steps = new Step[MAX_STEPS];
+                System.arraycopy(source, 0, steps, 0, STEPS_PER_TX);
+                StepSingle[] copy = new StepSingle[STEPS_PER_TX];
+                System.arraycopy(steps, 0, copy, 0, STEPS_PER_TX);
+                sink += Step.toBytes(copy).length;
+            }
+            long current = allocated() - before;
+
+            before = allocated();
+            for (int t = 0; t < TX; t++) {
+                System.arraycopy(source, 0, pooled, 0, STEPS_PER_TX);
+                sink += Step.toBytes(pooled, STEPS_PER_TX, out).length;
+                java.util.Arrays.fill(pooled, 0, STEPS_PER_TX, null);
+            }
+            long reused = allocated() - before;
+
+            if (report) {
+                System.out.println("new arrays : " + current / TX + " bytes/tx");
+                System.out.println("pooled     : " + reused / TX + " bytes/tx (" + sink + ")");
+            }
+        }
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.lang.value;
+
+import org.junit.Test;
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+import scouter.lang.pack.PerfCounterPack;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyMapValueTest {
+
+    @Test
+    public void values_of_every_type_are_read_on_demand() throws Exception {
+        MapValue m = sample();
+        byte[] bytes = new DataOutputX().writeValue(m).writeDecimal(777).toByteArray();
+
+        DataInputX in = new DataInputX(bytes);
+        MapValue lazy = LazyMapValue.readValue(in);
+        assertTrue(lazy instanceof LazyMapValue);
+        assertEquals(777, in.readDecimal());
+
+        assertEquals(m.size(), lazy.size());
+        for (String key : m.keySet()) {
+            assertTrue(lazy.containsKey(key));
+            assertArrayEquals(toBytes(m.get(key)), toBytes(lazy.get(key)));
+        }
+        assertNull(lazy.get("none"));
+        assertEquals(12.5f, lazy.getFloat("float"), 0);
+    }
+
+    @Test
+    public void write_copies_the_received_bytes() throws Exception {
+        byte[] bytes = new DataOutputX().writeValue(sample()).toByteArray();
+        LazyMapValue lazy = (LazyMapValue) LazyMapValue.readValue(new DataInputX(bytes));
+        lazy.get("float");
+        assertArrayEquals(bytes, new DataOutputX().writeValue(lazy).toByteArray());
+
+        DataOutputX out = new DataOutputX();
+        assertTrue(lazy.writeValueBytes("list", out));
+        assertArrayEquals(toBytes(lazy.get("list")), out.toByteArray());
+        assertFalse(lazy.writeValueBytes("none", out));
+    }
+
+    @Test
+    public void an_added_key_keeps_the_received_bytes() throws Exception {
+        MapValue m = comparable();
+        LazyMapValue lazy = (LazyMapValue) LazyMapValue.readValue(new DataInputX(new DataOutputX().writeValue(m).toByteArray()));
+        lazy.put("added", 1);
+        assertTrue(lazy.isLazy());
+        assertEquals(m.size() + 1, lazy.size());
+        assertTrue(lazy.containsKey("added"));
+        assertTrue(lazy.keySet().contains("added"));
+        assertEquals(1, lazy.getLong("added"));
+        assertTrue(lazy.writeValueBytes("text", new DataOutputX()));
+        assertFalse(lazy.writeValueBytes("added", new DataOutputX()));
+
+        MapValue back = (MapValue) new DataInputX(new ByteArrayInputStream(new DataOutputX().writeValue(lazy).toByteArray())).readValue();
+        m.put("added", 1);
+        assertEquals(m, back);
+        assertTrue(lazy.isLazy());
+    }
+
+    @Test
+    public void a_change_decodes_the_map() throws Exception {
+        MapValue m = sample();
+        LazyMapValue lazy = (LazyMapValue) LazyMapValue.readValue(new DataInputX(new DataOutputX().writeValue(m).toByteArray()));
+        lazy.put("added", 1);
+        lazy.put("text", "changed");
+        assertFalse(lazy.isLazy());
+        assertEquals(m.size() + 1, lazy.size());
+        assertEquals(1, lazy.getLong("added"));
+        assertEquals("changed", lazy.getText("text"));
+        assertFalse(lazy.writeValueBytes("decimal", new DataOutputX()));
+
+        MapValue back = (MapValue) new DataInputX(new DataOutputX().writeValue(lazy).toByteArray()).readValue();
+        assertEquals(m.size() + 1, back.size());
+    }
+
+    @Test
+    public void equals_does_not_decode_the_map() throws Exception {
+        MapValue m = comparable();
+        LazyMapValue lazy = (LazyMapValue) LazyMapValue.readValue(new DataInputX(new DataOutputX().writeValue(m).toByteArray()));
+        assertEquals(m, lazy);
+        assertEquals(lazy, m);
+        assertTrue(lazy.isLazy());
+    }
+
+    @Test
+    public void counter_pack_data_is_lazy_only_over_an_array() throws Exception {
+        PerfCounterPack p = new PerfCounterPack();
+        p.time = 1500000000000L;
+        p.objName = "/host/tomcat";
+        p.put("TPS", 10.5f);
+        p.put("ActiveService", new DecimalValue(3));
+        byte[] bytes = new DataOutputX().writePack(p).toByteArray();
+
+        PerfCounterPack fromArray = (PerfCounterPack) new DataInputX(bytes).readPack();
+        assertTrue(fromArray.data instanceof LazyMapValue);
+        assertEquals(10.5f, fromArray.data.getFloat("TPS"), 0);
+        assertEquals(3, fromArray.data.getInt("ActiveService"));
+
+        PerfCounterPack fromStream = (PerfCounterPack) new DataInputX(new ByteArrayInputStream(bytes)).readPack();
+        assertFalse(fromStream.data instanceof LazyMapValue);
+        assertEquals(fromStream.data, fromArray.data);
+    }
+
+    private static MapValue sample() {
+        MapValue m = new MapValue();
+        m.put("null", new NullValue());
+        m.put("bool", new BooleanValue(true));
+        m.put("decimal", 1234567890123L);
+        m.put("float", new FloatValue(12.5f));
+        m.put("double", new DoubleValue(0.25));
+        m.put("text", "text");
+        m.put("hash", new TextHashValue(99));
+        m.put("blob", new BlobValue(new byte[300]));
+        m.put("ip", new IP4Value(new byte[] { 10, 0, 0, 1 }));
+        LongSummary ls = new LongSummary();
+        ls.add(5);
+        m.put("lsum", ls);
+        DoubleSummary ds = new DoubleSummary();
+        ds.add(1.5);
+        m.put("dsum", ds);
+        m.put("ints", new IntArray(new int[] { 1, 2, 3 }));
+        m.put("floats", new FloatArray(new float[] { 1f, 2f }));
+        m.put("longs", new LongArray(new long[] { 1L, 2L }));
+        m.put("texts", new TextArray(new String[] { "a", "bc" }));
+        ListValue list = m.newList("list");
+        list.add(1);
+        list.add("two");
+        MapValue inner = new MapValue();
+        inner.put("k", "v");
+        m.put("map", inner);
+        return m;
+    }
+
+    /**
+     * the sample without the values compared by identity
+     */
+    private static MapValue comparable() {
+        MapValue m = sample();
+        m.remove("lsum");
+        m.remove("dsum");
+        m.remove("blob");
+        return m;
+    }
+
+    private static byte[] toBytes(Value v) throws Exception {
+        return new DataOutputX().writeValue(v).toByteArray();
+    }
+}
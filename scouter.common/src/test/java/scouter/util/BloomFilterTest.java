@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void contains_every_put_key() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(i * 31L - 5000);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain(i * 31L - 5000));
+        }
+        assertEquals(10000, filter.getCount());
+    }
+
+    @Test
+    public void false_positive_rate_is_near_the_expected() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(i);
+        }
+        int fp = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(1000000L + i)) {
+                fp++;
+            }
+        }
+        assertTrue("fp=" + fp, fp < 2000);
+    }
+
+    @Test
+    public void empty_filter_contains_nothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+        assertFalse(filter.mightContain(0));
+        assertFalse(filter.mightContain(-1));
+    }
+}
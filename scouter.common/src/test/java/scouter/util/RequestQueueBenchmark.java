@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+/**
+ * hand-off throughput of RequestQueue and RingRequestQueue.
+ * run main() with the test classpath. warm-up rounds are not reported.
+ */
+public class RequestQueueBenchmark {
+	private static final int PRODUCERS = 4;
+	private static final int PER_PRODUCER = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		for (int round = 0; round < 5; round++) {
+			boolean report = round >= 2;
+			run("RequestQueue 4P/1C", new RequestQueue<Object>(2048), 1, report);
+			run("RingRequestQueue.mpsc 4P/1C", RingRequestQueue.mpsc(2048), 1, report);
+			run("RingRequestQueue(spin) 4P/1C", new RingRequestQueue<Object>(2048, false, true), 1, report);
+			run("RequestQueue 4P/3C", new RequestQueue<Object>(2048), 3, report);
+			run("RingRequestQueue.mpmc 4P/3C", RingRequestQueue.mpmc(2048), 3, report);
+			run("RingRequestQueue(spin) 4P/3C", new RingRequestQueue<Object>(2048, true, true), 3, report);
+		}
+	}
+
+	private static void run(String name, final RequestQueue<Object> queue, int consumers, boolean report) throws Exception {
+		final Object item = new Object();
+		final int total = PRODUCERS * PER_PRODUCER;
+		final java.util.concurrent.atomic.AtomicInteger done = new java.util.concurrent.atomic.AtomicInteger();
+
+		Thread[] cs = new Thread[consumers];
+		for (int i = 0; i < consumers; i++) {
+			cs[i] = new Thread() {
+				public void run() {
+					while (done.get() < total) {
+						if (queue.get(10) != null) {
+							done.incrementAndGet();
+						}
+					}
+				}
+			};
+		}
+		Thread[] ps = new Thread[PRODUCERS];
+		for (int i = 0; i < PRODUCERS; i++) {
+			ps[i] = new Thread() {
+				public void run() {
+					for (int n = 0; n < PER_PRODUCER; n++) {
+						while (queue.putNotifySingle(item) == false) {
+							Thread.yield();
+						}
+					}
+				}
+			};
+		}
+		long start = System.nanoTime();
+		for (Thread t : cs) t.start();
+		for (Thread t : ps) t.start();
+		for (Thread t : ps) t.join();
+		for (Thread t : cs) t.join();
+		long elapsed = System.nanoTime() - start;
+		if (report) {
+			System.out.println(name + " : " + (total * 1000L / Math.max(1, elapsed / 1000000)) + " ops/s");
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingRequestQueueTest {
+
+	@Test
+	public void put_and_get_in_order() {
+		RingRequestQueue<Integer> queue = RingRequestQueue.mpsc(16);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(queue.put(i));
+		}
+		assertEquals(10, queue.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.valueOf(i), queue.get());
+		}
+		assertNull(queue.getNoWait());
+		assertNull(queue.get(10));
+	}
+
+	@Test
+	public void put_over_capacity_fails() {
+		RingRequestQueue<Integer> queue = RingRequestQueue.mpmc(3);
+		assertTrue(queue.put(1));
+		assertTrue(queue.put(2));
+		assertTrue(queue.putNotifySingle(3));
+		assertFalse(queue.put(4));
+		assertEquals(3, queue.size());
+	}
+
+	@Test
+	public void putForce_drops_oldest() {
+		RingRequestQueue<Integer> queue = RingRequestQueue.mpsc(4);
+		for (int i = 0; i < 6; i++) {
+			queue.putForce(i);
+		}
+		assertEquals(4, queue.size());
+		assertEquals(Integer.valueOf(2), queue.get());
+	}
+
+	@Test
+	public void many_producers_and_consumers() throws InterruptedException {
+		verifyConcurrent(new RingRequestQueue<Integer>(1024, false, false), 1);
+		verifyConcurrent(new RingRequestQueue<Integer>(1024, false, true), 1);
+		verifyConcurrent(new RingRequestQueue<Integer>(1024, true, false), 3);
+		verifyConcurrent(new RingRequestQueue<Integer>(1024, true, true), 3);
+	}
+
+	private void verifyConcurrent(final RingRequestQueue<Integer> queue, int consumerCount) throws InterruptedException {
+		final int producerCount = 4;
+		final int perProducer = 50000;
+		final AtomicLong sum = new AtomicLong();
+		final AtomicInteger count = new AtomicInteger();
+
+		Thread[] consumers = new Thread[consumerCount];
+		for (int c = 0; c < consumerCount; c++) {
+			consumers[c] = new Thread() {
+				public void run() {
+					while (count.get() < producerCount * perProducer) {
+						Integer v = queue.get(10);
+						if (v != null) {
+							sum.addAndGet(v);
+							count.incrementAndGet();
+						}
+					}
+				}
+			};
+			consumers[c].start();
+		}
+		Thread[] producers = new Thread[producerCount];
+		for (int p = 0; p < producerCount; p++) {
+			producers[p] = new Thread() {
+				public void run() {
+					for (int i = 1; i <= perProducer; i++) {
+						while (queue.put(i) == false) {
+							Thread.yield();
+						}
+					}
+				}
+			};
+			producers[p].start();
+		}
+		for (Thread t : producers) {
+			t.join();
+		}
+		for (Thread t : consumers) {
+			t.join();
+		}
+		assertEquals(producerCount * perProducer, count.get());
+		assertEquals((long) producerCount * perProducer * (perProducer + 1) / 2, sum.get());
+		assertEquals(0, queue.size());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpaceSavingTopNTest {
+
+    @Test
+    public void counts_are_exact_within_the_capacity() {
+        SpaceSavingTopN<String> top = new SpaceSavingTopN<String>(10);
+        for (int i = 0; i < 10; i++) {
+            for (int k = 0; k <= i; k++) {
+                top.add("v" + i, 2);
+            }
+        }
+        List<SpaceSavingTopN.Counter<String>> list = top.getTop(3);
+        assertEquals(3, list.size());
+        assertEquals("v9", list.get(0).getKey());
+        assertEquals(20.0, list.get(0).getCount(), 0);
+        assertEquals("v8", list.get(1).getKey());
+        assertEquals("v7", list.get(2).getKey());
+        assertEquals(0, top.getEvicted());
+        assertEquals(110.0, top.getTotal(), 0);
+    }
+
+    @Test
+    public void keeps_heavy_hitters_over_a_long_tail() {
+        SpaceSavingTopN<Integer> top = new SpaceSavingTopN<Integer>(100);
+        Random r = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            if (i % 10 == 0) {
+                top.add(-(i / 10 % 5) - 1, 1);
+            } else {
+                top.add(r.nextInt(100000), 1);
+            }
+        }
+        List<SpaceSavingTopN.Counter<Integer>> list = top.getTop(5);
+        for (SpaceSavingTopN.Counter<Integer> c : list) {
+            assertTrue("heavy key " + c.getKey(), c.getKey() < 0);
+            assertTrue(c.getCount() - c.getError() <= 4000);
+            assertTrue(c.getCount() >= 4000);
+        }
+        assertEquals(100, top.size());
+        assertTrue(top.getEvicted() > 0);
+    }
+}
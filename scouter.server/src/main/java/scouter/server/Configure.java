@@ -207,8 +207,12 @@ public class Configure extends Thread {
 	public int net_udp_packet_buffer_size = 65535;
 	@ConfigDesc("UDP Receiver Buffer Size")
 	public int net_udp_so_rcvbuf_size = 1024 * 1024 * 4;
+	@ConfigDesc("UDP receiver thread count. each receiver has its own socket bound with SO_REUSEPORT.(java 9+, restart required)")
+	public int net_udp_receiver_count = 1;
 	@ConfigDesc("")
 	public int _net_udp_worker_thread_count = 3;
+	@ConfigDesc("each udp worker thread owns its queue and packets are routed by the agent address.(restart required)")
+	public boolean net_udp_worker_sharding_enabled = false;
 	@ConfigDesc("TCP Thread Pool Size")
 	public int net_tcp_service_pool_size = 100;
 	@ConfigDesc("Activating Http Server")
@@ -228,6 +232,10 @@ public class Configure extends Thread {
 	@ConfigDesc("Access-Control-Allow-Credentials")
 	public String net_http_api_cors_allow_credentials = "true";
 
+	@ConfigDesc("max number of realtime xlog streams open at once. a stream over it is refused with 503.")
+	public int net_http_api_xlog_stream_max_count = 100;
+	@ConfigDesc("number of threads which run the ticks of the realtime xlog streams.(restart required)")
+	public int net_http_api_xlog_stream_thread_count = 4;
 	@ConfigDesc("size of webapp connection pool to collector")
 	public int net_webapp_tcp_client_pool_size = 12;
 	@ConfigDesc("timeout of web app connection pool to collector(It depends on net_tcp_client_so_timeout_ms)")
@@ -289,11 +297,21 @@ public class Configure extends Thread {
 	public int _compress_dailycount_header_cache_size = 3;
 	@ConfigDesc("")
 	public int _compress_write_thread = 2;
+	@ConfigDesc("Codec of new compressed blocks (gzip, lz4, zstd). blocks written by any codec stay readable")
+	public String compress_block_codec = "gzip";
+	@ConfigDesc("Zstd compression level of compress_block_codec=zstd")
+	public int _compress_zstd_level = 3;
 
 	//Auto
 	@ConfigDesc("")
 	public boolean _auto_5m_sampling = true;
 
+	//Core
+	@ConfigDesc("use lock-free ring queues between the stages of the data pipeline.(restart required)")
+	public boolean _core_ring_queue_enabled = false;
+	@ConfigDesc("consumers of the ring queues spin and yield for a while before parking.(restart required)")
+	public boolean _core_ring_queue_spin_enabled = false;
+
 	//Manager
 	@ConfigDesc("Activating automatic deletion function in the database")
 	public boolean mgr_purge_enabled = true;
@@ -351,11 +369,38 @@ public class Configure extends Thread {
 	@ConfigDesc("change memory size of hash index for daily text db.(MB)" +
 			"[warn] modified this will break the database files.\nbackup old database files before change values.(restart required)")
 	public int _mgr_text_db_daily_index_mb = 1;
+	@ConfigDesc("max number of keys the bloom filter of a text index is sized for. about 1.2 bytes of memory for each key.")
+	public int _mgr_text_db_filter_max_keys = 10000000;
+	@ConfigDesc("number of text writer threads. texts are sharded by the text type.(restart required)")
+	public int mgr_text_db_writer_count = 4;
+	@ConfigDesc("memory size of the text cache for each of service, apicall, sql and user agent texts.(MB)(restart required)")
+	public int mgr_text_cache_mb = 16;
+	@ConfigDesc("memory size of the text cache for each of the other text types.(MB)(restart required)")
+	public int mgr_text_cache_etc_mb = 2;
+	@ConfigDesc("load the texts of today and the permanent texts, up to the cache size of each text type, into the text cache on startup.")
+	public boolean mgr_text_cache_warmup_enabled = true;
 
 	@ConfigDesc("change default memory size of key value store index.(MB)" +
 			"[warn] modified this will break the database files.\nbackup old database files before change values.(restart required)")
 	public int _mgr_kv_store_index_default_mb = 8;
 
+	@ConfigDesc("read index key files through memory-mapped segments without locking.\n" +
+			"the file format is not changed. (restart required)")
+	public boolean mgr_index_mmap_read_enabled = false;
+	@ConfigDesc("New hash index files use a resizable open addressing table. existing files keep their layout.\n" +
+			"older servers and tools can't read the new layout, so enable it only when every server reading the data dir is upgraded.\n" +
+			"to downgrade, delete the data of the days written with it or keep the upgraded server as their reader.")
+	public boolean mgr_index_hash_resizable_enabled = false;
+	@ConfigDesc("Keep realtime counters of each object in its own series blocks so that reading an object doesn't scan the others.\n" +
+			"applied to a newly created day.")
+	public boolean mgr_counter_series_enabled = true;
+	@ConfigDesc("Store realtime counters as compressed blocks of each object and minute.\n" +
+			"applied to a newly created day. older days can be converted by scouter.server.db.counter.RealtimeCounterConverter")
+	public boolean mgr_counter_compress_enabled = false;
+	@ConfigDesc("Keep min/max/avg/count rollups of 1m, 10m and 1h for realtime counters.\n" +
+			"a counter read with 'points' is served from the coarsest rollup that gives the points.")
+	public boolean counter_rollup_enabled = true;
+
 	//external-link
 	@ConfigDesc("name of 3rd party ui")
 	public String ext_link_name = "scouter-paper";
@@ -375,10 +420,23 @@ public class Configure extends Thread {
 	//XLog
 	@ConfigDesc("XLog Writer Queue Size")
 	public int xlog_queue_size = 10000;
+	@ConfigDesc("Activating batched write of XLog data. data and indexes are written and flushed per batch.")
+	public boolean xlog_db_batch_enabled = false;
+	@ConfigDesc("max XLog count of a batch write")
+	public int xlog_db_batch_max_count = 512;
+	@ConfigDesc("max waiting time(ms) to fill a batch write")
+	public int xlog_db_batch_max_wait_ms = 10;
 	@ConfigDesc("Ignored time(ms) in retrieving XLog in real time")
 	public int xlog_realtime_lower_bound_ms = 0;
 	@ConfigDesc("Ignored time(ms) in retrieving previous XLog")
 	public int xlog_pasttime_lower_bound_ms = 0;
+	@ConfigDesc("XLog count kept in memory for realtime XLog requests.(restart required)")
+	public int xlog_realtime_cache_size = 20480;
+	@ConfigDesc("Store the received bytes of a XLog without encoding it again when the server has not changed it")
+	public boolean xlog_reuse_wire_bytes_enabled = true;
+	@ConfigDesc("Index xlogs by service, objHash, error, login and ip, so an xlog search with exact conditions doesn't scan the time range.\n" +
+			"applied to a newly created day.")
+	public boolean xlog_search_index_enabled = false;
 //	@ConfigDesc("Ignored profile time(ms) without saving")
 //	public int xlog_profile_save_lower_bound_ms = 0;
 
@@ -399,10 +457,16 @@ public class Configure extends Thread {
 	//TagCount
 	@ConfigDesc("Activating TagCount function")
 	public boolean tagcnt_enabled = true;
+	@ConfigDesc("Keeping the top values of every tag in memory for the realtime top-N, saved into the top100 files")
+	public boolean tagcnt_topn_enabled = true;
+	@ConfigDesc("Count of values tracked for each tag of an object type. the counts of the top values are exact until it's exceeded")
+	public int tagcnt_topn_capacity = 1000;
 
 	//Service request options from client
 	@ConfigDesc("search xlog service option - max xlog count to search per request")
 	public int req_search_xlog_max_count = 500;
+	@ConfigDesc("search xlog service option - count of hour segments of the time range read in parallel")
+	public int xlog_read_parallelism = 4;
 
 	@ConfigDesc("Path to telegraf config xml file")
 	public String input_telegraf_config_file = CONF_DIR + "scouter-telegraf.xml";
@@ -629,6 +693,9 @@ public class Configure extends Thread {
 
 	private void applyConfig() {
 		this.xlog_queue_size = getInt("xlog_queue_size", 10000);
+		this.xlog_db_batch_enabled = getBoolean("xlog_db_batch_enabled", false);
+		this.xlog_db_batch_max_count = getInt("xlog_db_batch_max_count", 512);
+		this.xlog_db_batch_max_wait_ms = getInt("xlog_db_batch_max_wait_ms", 10);
 		this.profile_queue_size = getInt("profile_queue_size", 1000);
 		this.log_tcp_action_enabled = getBoolean("log_tcp_action_enabled", false);
 
@@ -649,6 +716,8 @@ public class Configure extends Thread {
 		this.net_http_api_cors_allow_origin = getValue("net_http_api_cors_allow_origin", "*");
 		this.net_http_api_cors_allow_credentials = getValue("net_http_api_cors_allow_credentials", "true");
 
+		this.net_http_api_xlog_stream_max_count = getInt("net_http_api_xlog_stream_max_count", 100);
+		this.net_http_api_xlog_stream_thread_count = getInt("net_http_api_xlog_stream_thread_count", 4);
 		this.net_webapp_tcp_client_pool_size = getInt("net_webapp_tcp_client_pool_size", 12);
 		this.net_webapp_tcp_client_pool_timeout = getInt("net_webapp_tcp_client_pool_timeout", net_tcp_client_so_timeout_ms);
 
@@ -685,6 +754,8 @@ public class Configure extends Thread {
 		this._compress_read_cache_block_count = getInt("_compress_read_cache_block_count", 3);
 		this._compress_read_cache_expired_ms = getLong("_compress_read_cache_expired_ms", DateUtil.MILLIS_PER_MINUTE);
 		this._compress_write_thread = getInt("_compress_write_thread", 2);
+		this.compress_block_codec = getValue("compress_block_codec", "gzip");
+		this._compress_zstd_level = getInt("_compress_zstd_level", 3);
 		
 		this.net_udp_packet_buffer_size = getInt("net_udp_packet_buffer_size", 65535);
 
@@ -693,6 +764,7 @@ public class Configure extends Thread {
 			default_so_rcvbuf = 0;
 		}
 		this.net_udp_so_rcvbuf_size = getInt("net_udp_so_rcvbuf_size", default_so_rcvbuf);
+		this.net_udp_receiver_count = getInt("net_udp_receiver_count", 1);
 		this.log_expired_multipacket = getBoolean("log_expired_multipacket", true);
 		this.log_udp_multipacket = getBoolean("log_udp_multipacket", false);
 		this.log_udp_packet = getBoolean("log_udp_packet", false);
@@ -718,9 +790,14 @@ public class Configure extends Thread {
 		this._trace = getBoolean("_trace", false);
 
 		this._auto_5m_sampling = getBoolean("_auto_5m_sampling", true);
+		this._core_ring_queue_enabled = getBoolean("_core_ring_queue_enabled", false);
+		this._core_ring_queue_spin_enabled = getBoolean("_core_ring_queue_spin_enabled", false);
 
 		this.xlog_realtime_lower_bound_ms = getInt("xlog_realtime_lower_bound_ms", 0);
 		this.xlog_pasttime_lower_bound_ms = getInt("xlog_pasttime_lower_bound_ms", 0);
+		this.xlog_realtime_cache_size = getInt("xlog_realtime_cache_size", 20480);
+		this.xlog_reuse_wire_bytes_enabled = getBoolean("xlog_reuse_wire_bytes_enabled", true);
+		this.xlog_search_index_enabled = getBoolean("xlog_search_index_enabled", false);
 		this.mgr_purge_enabled = getBoolean("mgr_purge_enabled", true);
 		this.mgr_purge_disk_usage_pct = getInt("mgr_purge_disk_usage_pct", 80);
 
@@ -746,13 +823,24 @@ public class Configure extends Thread {
 		this._mgr_text_db_index_desc_mb = getInt("_mgr_text_db_index_desc_mb", 1);
 		this._mgr_text_db_index_hmsg_mb = getInt("_mgr_text_db_index_hmsg_mb", 1);
 		this._mgr_text_db_daily_index_mb = getInt("_mgr_text_db_daily_index_mb", 1);
+		this._mgr_text_db_filter_max_keys = getInt("_mgr_text_db_filter_max_keys", 10000000);
+		this.mgr_text_db_writer_count = getInt("mgr_text_db_writer_count", 4);
+		this.mgr_text_cache_mb = getInt("mgr_text_cache_mb", 16);
+		this.mgr_text_cache_etc_mb = getInt("mgr_text_cache_etc_mb", 2);
+		this.mgr_text_cache_warmup_enabled = getBoolean("mgr_text_cache_warmup_enabled", true);
 
 		this._mgr_kv_store_index_default_mb = getInt("_mgr_kv_store_index_default_mb", 8);
+		this.mgr_index_mmap_read_enabled = getBoolean("mgr_index_mmap_read_enabled", false);
+		this.mgr_index_hash_resizable_enabled = getBoolean("mgr_index_hash_resizable_enabled", false);
+		this.mgr_counter_series_enabled = getBoolean("mgr_counter_series_enabled", true);
+		this.mgr_counter_compress_enabled = getBoolean("mgr_counter_compress_enabled", false);
+		this.counter_rollup_enabled = getBoolean("counter_rollup_enabled", true);
 
 		this.ext_link_name = getValue("ext_link_name", "scouter-paper");
 		this.ext_link_url_pattern = getValue("ext_link_url_pattern", "http://my-scouter-paper-ip:6188/index.html#/paper?&address=localhost&port=6188&realtime=false&xlogElapsedTime=8000&instances=$[objHashes]&from=$[from]&to=$[to]&layout=my-layout-template-01");
 
 		this._net_udp_worker_thread_count = getInt("_net_udp_worker_thread_count", 3);
+		this.net_udp_worker_sharding_enabled = getBoolean("net_udp_worker_sharding_enabled", false);
 		this.geoip_data_city_file = getValue("geoip_data_city_file", CONF_DIR + "GeoLiteCity.dat");
 		this.geoip_enabled = getBoolean("geoip_enabled", true);
 
@@ -762,12 +850,15 @@ public class Configure extends Thread {
 		this.mgr_log_ignore_ids = getStringSet("mgr_log_ignore_ids", ",");
 
 		this.tagcnt_enabled = getBoolean("tagcnt_enabled", true);
+		this.tagcnt_topn_enabled = getBoolean("tagcnt_topn_enabled", true);
+		this.tagcnt_topn_capacity = getInt("tagcnt_topn_capacity", 1000);
 		
 		this.visitor_hourly_count_enabled = getBoolean("visitor_hourly_count_enabled", true);
 		
 		this.net_tcp_service_pool_size = getInt("net_tcp_service_pool_size", 100);
 
 		this.req_search_xlog_max_count = getInt("req_search_xlog_max_count", 500);
+		this.xlog_read_parallelism = getInt("xlog_read_parallelism", 4);
 
 		this.input_telegraf_enabled = getBoolean("input_telegraf_enabled", true);
 		this.input_telegraf_debug_enabled = getBoolean("input_telegraf_debug_enabled", false);
@@ -19,6 +19,7 @@ import scouter.Version;
 import scouter.server.account.AccountManager;
 import scouter.server.core.AutoDeleteScheduler;
 import scouter.server.core.TextCacheReset;
+import scouter.server.core.cache.TextCache;
 import scouter.server.db.DBCtr;
 import scouter.server.http.HttpServer;
 import scouter.server.netio.data.NetDataProcessor;
@@ -56,6 +57,7 @@ public class Main {
         BuiltInPluginManager.loadPlugins();
 		NetDataProcessor.working();
 		AutoDeleteScheduler.getInstance();
+		TextCache.warmUp();
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			public void run() {
 				ShutdownManager.shutdown();
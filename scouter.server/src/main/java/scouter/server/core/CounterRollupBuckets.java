@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.core;
+
+import scouter.lang.counters.CounterConstants;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.DoubleSummary;
+import scouter.lang.value.MapValue;
+import scouter.lang.value.NumberValue;
+import scouter.lang.value.Value;
+import scouter.util.DateUtil;
+import scouter.util.HashUtil;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * the open rollup buckets of one resolution, one for each object.
+ * a bucket holds a DoubleSummary(sum, count, min, max) of every numeric counter of the period.
+ * it is handed to the flusher when a counter of the object arrives for a later period
+ * or when it is a minute past the end of its period.
+ */
+public class CounterRollupBuckets {
+
+	public interface Flusher {
+		void flush(String objName, long time, MapValue data);
+	}
+
+	private static class Bucket {
+		final String objName;
+		final long time;
+		final MapValue data = new MapValue();
+
+		Bucket(String objName, long time) {
+			this.objName = objName;
+			this.time = time;
+		}
+	}
+
+	private final long resolution;
+	private final Flusher flusher;
+	private final HashMap<String, Bucket> buckets = new HashMap<String, Bucket>();
+
+	public CounterRollupBuckets(long resolution, Flusher flusher) {
+		this.resolution = resolution;
+		this.flusher = flusher;
+	}
+
+	public synchronized void add(String objName, long time, MapValue data) {
+		long bucketTime = time - time % resolution;
+		Bucket bucket = buckets.get(objName);
+		if (bucket == null || bucket.time != bucketTime) {
+			if (bucket != null) {
+				flusher.flush(bucket.objName, bucket.time, bucket.data);
+			}
+			bucket = new Bucket(objName, bucketTime);
+			bucket.data.put(CounterConstants.COMMON_OBJHASH, new DecimalValue(HashUtil.hash(objName)));
+			bucket.data.put(CounterConstants.COMMON_TIME, new DecimalValue(bucketTime));
+			buckets.put(objName, bucket);
+		}
+		summarize(bucket.data, data);
+	}
+
+	private static void summarize(MapValue target, MapValue data) {
+		Enumeration<String> keys = data.keys();
+		while (keys.hasMoreElements()) {
+			String key = keys.nextElement();
+			if (CounterConstants.COMMON_OBJHASH.equals(key) || CounterConstants.COMMON_TIME.equals(key))
+				continue;
+			Value v = data.get(key);
+			if (v instanceof NumberValue == false)
+				continue;
+			DoubleSummary sum = (DoubleSummary) target.get(key);
+			if (sum == null) {
+				sum = new DoubleSummary();
+				target.put(key, sum);
+			}
+			sum.add((NumberValue) v);
+		}
+	}
+
+	/**
+	 * flushes the buckets a minute past the end of their period.
+	 */
+	public synchronized void flushStale(long now) {
+		Iterator<Bucket> itr = buckets.values().iterator();
+		while (itr.hasNext()) {
+			Bucket bucket = itr.next();
+			if (bucket.time + resolution + DateUtil.MILLIS_PER_MINUTE <= now) {
+				flusher.flush(bucket.objName, bucket.time, bucket.data);
+				itr.remove();
+			}
+		}
+	}
+
+	/**
+	 * adds copies of the buckets of the period from stime to etime, not yet flushed, to the rows.
+	 */
+	public synchronized void readCurrent(long stime, long etime, List<MapValue> rows) {
+		Iterator<Bucket> itr = buckets.values().iterator();
+		while (itr.hasNext()) {
+			Bucket bucket = itr.next();
+			if (bucket.time >= stime && bucket.time <= etime) {
+				rows.add(copy(bucket.data));
+			}
+		}
+	}
+
+	private static MapValue copy(MapValue data) {
+		MapValue m = new MapValue();
+		Enumeration<String> keys = data.keys();
+		while (keys.hasMoreElements()) {
+			String key = keys.nextElement();
+			Value v = data.get(key);
+			if (v instanceof DoubleSummary) {
+				DoubleSummary s = (DoubleSummary) v;
+				DoubleSummary c = new DoubleSummary();
+				c.sum = s.sum;
+				c.count = s.count;
+				c.min = s.min;
+				c.max = s.max;
+				v = c;
+			}
+			m.put(key, v);
+		}
+		return m;
+	}
+}
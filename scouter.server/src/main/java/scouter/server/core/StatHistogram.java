@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.core;
+
+/**
+ * cumulative bucket counter published to ServerStat.
+ * each bucket is exposed as "{id}.le_{bound}" and values over the last bound as "{id}.gt_{bound}".
+ */
+public class StatHistogram {
+	private final String id;
+	private final long[] bounds;
+	private final long[] counts;
+	private final String[] keys;
+
+	public StatHistogram(String id, long... bounds) {
+		this.id = id;
+		this.bounds = bounds;
+		this.counts = new long[bounds.length + 1];
+		this.keys = new String[bounds.length + 1];
+		for (int i = 0; i < bounds.length; i++) {
+			keys[i] = id + ".le_" + bounds[i];
+		}
+		keys[bounds.length] = id + ".gt_" + bounds[bounds.length - 1];
+	}
+
+	public synchronized void add(long value) {
+		int i = 0;
+		while (i < bounds.length && value > bounds[i]) {
+			i++;
+		}
+		counts[i]++;
+		ServerStat.put(keys[i], counts[i]);
+		ServerStat.put(id, value);
+	}
+
+	public String getId() {
+		return id;
+	}
+}
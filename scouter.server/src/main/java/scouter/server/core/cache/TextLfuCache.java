@@ -0,0 +1,253 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.core.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * text cache of one div bounded by bytes, W-TinyLFU style.
+ * a new text enters a small LRU window. when the window overflows, its oldest text competes with the oldest text
+ * of the probation segment by the access frequency kept in a count-min sketch, and only the more frequent one stays.
+ * a text read in the probation segment is promoted to the protected segment.
+ * so a burst of one-off texts is dropped at the window while the hot texts are kept.
+ */
+public class TextLfuCache {
+	private static final int ENTRY_OVERHEAD = 64;
+
+	private final long maxBytes;
+	private final long windowMax;
+	private final long protectedMax;
+
+	private final LinkedHashMap<Integer, String> window = new LinkedHashMap<Integer, String>(16, 0.75f, true);
+	private final LinkedHashMap<Integer, String> probation = new LinkedHashMap<Integer, String>(16, 0.75f, true);
+	private final LinkedHashMap<Integer, String> protect = new LinkedHashMap<Integer, String>(16, 0.75f, true);
+	private long windowBytes;
+	private long probationBytes;
+	private long protectedBytes;
+
+	private final FrequencySketch sketch;
+
+	private long hit;
+	private long miss;
+
+	public TextLfuCache(long maxBytes) {
+		this.maxBytes = Math.max(maxBytes, 1024);
+		this.windowMax = Math.max(this.maxBytes / 100, ENTRY_OVERHEAD * 4);
+		this.protectedMax = (this.maxBytes - windowMax) * 8 / 10;
+		this.sketch = new FrequencySketch((int) Math.min(1 << 22, Math.max(256, this.maxBytes / ENTRY_OVERHEAD)));
+	}
+
+	public static long sizeOf(String text) {
+		return ENTRY_OVERHEAD + text.length() * 2L;
+	}
+
+	public synchronized String get(int key) {
+		sketch.increment(key);
+		String text = window.get(key);
+		if (text == null) {
+			text = protect.get(key);
+		}
+		if (text == null) {
+			text = probation.remove(key);
+			if (text != null) {
+				long size = sizeOf(text);
+				probationBytes -= size;
+				protect.put(key, text);
+				protectedBytes += size;
+				demote();
+			}
+		}
+		if (text == null) {
+			miss++;
+		} else {
+			hit++;
+		}
+		return text;
+	}
+
+	public synchronized boolean containsKey(int key) {
+		return window.containsKey(key) || probation.containsKey(key) || protect.containsKey(key);
+	}
+
+	/**
+	 * the text of a key is not changed once it's cached.
+	 */
+	public synchronized void put(int key, String text) {
+		if (text == null || containsKey(key))
+			return;
+		sketch.increment(key);
+		long size = sizeOf(text);
+		if (size > maxBytes - windowMax)
+			return;
+		window.put(key, text);
+		windowBytes += size;
+		while (windowBytes > windowMax) {
+			Map.Entry<Integer, String> e = eldest(window);
+			window.remove(e.getKey());
+			long s = sizeOf(e.getValue());
+			windowBytes -= s;
+			admit(e.getKey(), e.getValue(), s);
+		}
+	}
+
+	/**
+	 * a candidate from the window gets into the probation segment only when it's more frequent than every text it pushes out.
+	 * the victims are chosen first and evicted only after the candidate is admitted.
+	 */
+	private void admit(int key, String text, long size) {
+		long need = probationBytes + protectedBytes + size - (maxBytes - windowMax);
+		if (need <= 0) {
+			probation.put(key, text);
+			probationBytes += size;
+			return;
+		}
+		int freq = sketch.frequency(key);
+		ArrayList<Map.Entry<Integer, String>> victims = new ArrayList<Map.Entry<Integer, String>>();
+		need = selectVictims(probation, freq, need, victims);
+		if (need > 0 && need != Long.MAX_VALUE) {
+			need = selectVictims(protect, freq, need, victims);
+		}
+		if (need > 0)
+			return;
+		for (int i = 0; i < victims.size(); i++) {
+			Map.Entry<Integer, String> victim = victims.get(i);
+			if (probation.remove(victim.getKey()) != null) {
+				probationBytes -= sizeOf(victim.getValue());
+			} else if (protect.remove(victim.getKey()) != null) {
+				protectedBytes -= sizeOf(victim.getValue());
+			}
+		}
+		probation.put(key, text);
+		probationBytes += size;
+	}
+
+	/**
+	 * the eldest texts of the segment until the bytes are freed.
+	 * @return the bytes still to be freed, or Long.MAX_VALUE when a victim is as frequent as the candidate
+	 */
+	private long selectVictims(LinkedHashMap<Integer, String> from, int freq, long need,
+			ArrayList<Map.Entry<Integer, String>> victims) {
+		Iterator<Map.Entry<Integer, String>> itr = from.entrySet().iterator();
+		while (need > 0 && itr.hasNext()) {
+			Map.Entry<Integer, String> victim = itr.next();
+			if (freq <= sketch.frequency(victim.getKey()))
+				return Long.MAX_VALUE;
+			victims.add(victim);
+			need -= sizeOf(victim.getValue());
+		}
+		return need;
+	}
+
+	private void demote() {
+		while (protectedBytes > protectedMax) {
+			Map.Entry<Integer, String> e = eldest(protect);
+			protect.remove(e.getKey());
+			long size = sizeOf(e.getValue());
+			protectedBytes -= size;
+			probation.put(e.getKey(), e.getValue());
+			probationBytes += size;
+		}
+	}
+
+	private static Map.Entry<Integer, String> eldest(LinkedHashMap<Integer, String> map) {
+		Iterator<Map.Entry<Integer, String>> itr = map.entrySet().iterator();
+		return itr.next();
+	}
+
+	public synchronized int size() {
+		return window.size() + probation.size() + protect.size();
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized long getBytes() {
+		return windowBytes + probationBytes + protectedBytes;
+	}
+
+	public synchronized long getHit() {
+		return hit;
+	}
+
+	public synchronized long getMiss() {
+		return miss;
+	}
+
+	/**
+	 * count-min sketch of 4 rows with counters saturated at 15.
+	 * every counter is halved after a sample of 10 times the width, so the old popularity fades out.
+	 */
+	static class FrequencySketch {
+		private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+		private final byte[][] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int width) {
+			int w = 16;
+			while (w < width) {
+				w <<= 1;
+			}
+			this.table = new byte[SEEDS.length][w];
+			this.mask = w - 1;
+			this.sampleSize = w * 10;
+		}
+
+		private int index(int key, int row) {
+			int h = key * SEEDS[row];
+			h ^= h >>> 16;
+			return h & mask;
+		}
+
+		void increment(int key) {
+			boolean added = false;
+			for (int r = 0; r < table.length; r++) {
+				int i = index(key, r);
+				if (table[r][i] < 15) {
+					table[r][i]++;
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				reset();
+			}
+		}
+
+		int frequency(int key) {
+			int min = 15;
+			for (int r = 0; r < table.length; r++) {
+				min = Math.min(min, table[r][index(key, r)]);
+			}
+			return min;
+		}
+
+		private void reset() {
+			for (byte[] row : table) {
+				for (int i = 0; i < row.length; i++) {
+					row[i] = (byte) (row[i] >> 1);
+				}
+			}
+			additions /= 2;
+		}
+	}
+}
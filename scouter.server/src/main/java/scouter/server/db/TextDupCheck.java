@@ -57,8 +57,14 @@ public class TextDupCheck {
 	static void addDuplicated(String div, TextUnit tu) {
 		LinkedSet<TextUnit> set = dupcheck.get(div);
 		if (set == null) {
-			set = new LinkedSet<TextUnit>().setMax(10000);
-			dupcheck.put(div, set);
+			//the writer shards of TextWR add the texts of their divs at the same time.
+			synchronized (dupcheck) {
+				set = dupcheck.get(div);
+				if (set == null) {
+					set = new LinkedSet<TextUnit>().setMax(10000);
+					dupcheck.put(div, set);
+				}
+			}
 		}
 		set.put(tu);
 	}
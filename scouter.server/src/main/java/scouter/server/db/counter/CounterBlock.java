@@ -0,0 +1,425 @@
+/*
+ *  Copyright 2015 the original author or authors. 
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); 
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. 
+ */
+package scouter.server.db.counter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.DoubleValue;
+import scouter.lang.value.FloatValue;
+import scouter.lang.value.MapValue;
+import scouter.lang.value.Value;
+import scouter.lang.value.ValueEnum;
+import scouter.util.StringIntMap;
+
+/**
+ * compressed realtime counters of an object for a minute.
+ * timestamps are stored as delta-of-delta and decimal/float/double counters as XOR of the previous value
+ * (the encoding of Facebook's Gorilla). other value types are stored as they are.
+ * a sample is read back as the tag encoded row of RealtimeCounterDBHelper.getTagBytes().
+ */
+public class CounterBlock {
+	public static final int MAX_SAMPLES = 64;
+	private static final byte RAW = 0;
+
+	public final int objHash;
+	private int count;
+	private long[] times = new long[MAX_SAMPLES];
+	private List<Column> columns = new ArrayList<Column>();
+
+	private static class Column {
+		final int tag;
+		byte kind = -1;
+		Value[] values = new Value[MAX_SAMPLES];
+
+		Column(int tag) {
+			this.tag = tag;
+		}
+	}
+
+	public CounterBlock(int objHash) {
+		this.objHash = objHash;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean isFull() {
+		return count >= MAX_SAMPLES;
+	}
+
+	public long getTime(int i) {
+		return times[i];
+	}
+
+	public static int minuteOf(long time) {
+		return (int) (time / 60000L);
+	}
+
+	public int getMinute() {
+		return minuteOf(times[0]);
+	}
+
+	private Column column(int tag) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (columns.get(i).tag == tag)
+				return columns.get(i);
+		}
+		Column c = new Column(tag);
+		columns.add(c);
+		return c;
+	}
+
+	/**
+	 * @return the index of the sample in this block
+	 */
+	public int add(long time, MapValue items, StringIntMap tags) {
+		int idx = count++;
+		times[idx] = time;
+		Enumeration<String> en = items.keys();
+		while (en.hasMoreElements()) {
+			String name = en.nextElement();
+			int tag = tags.get(name);
+			if (tag >= 0) {
+				column(tag).values[idx] = items.get(name);
+			}
+		}
+		return idx;
+	}
+
+	/**
+	 * tag encoded row of the i-th sample.
+	 */
+	public byte[] getRow(int i) {
+		try {
+			int n = 0;
+			for (int c = 0; c < columns.size(); c++) {
+				if (columns.get(c).values[i] != null)
+					n++;
+			}
+			DataOutputX out = new DataOutputX();
+			out.writeDecimal(n);
+			for (int c = 0; c < columns.size(); c++) {
+				Column col = columns.get(c);
+				if (col.values[i] != null) {
+					out.writeDecimal(col.tag);
+					out.writeValue(col.values[i]);
+				}
+			}
+			return out.toByteArray();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static byte kindOf(Column col, int count) {
+		byte kind = -1;
+		for (int i = 0; i < count; i++) {
+			Value v = col.values[i];
+			if (v == null)
+				continue;
+			byte t = v.getValueType();
+			if (t != ValueEnum.DECIMAL && t != ValueEnum.FLOAT && t != ValueEnum.DOUBLE)
+				return RAW;
+			if (kind >= 0 && kind != t)
+				return RAW;
+			kind = t;
+		}
+		return kind < 0 ? RAW : kind;
+	}
+
+	private static long toBits(Value v) {
+		switch (v.getValueType()) {
+		case ValueEnum.DECIMAL:
+			return ((DecimalValue) v).value;
+		case ValueEnum.FLOAT:
+			return Float.floatToIntBits(((FloatValue) v).value);
+		default:
+			return Double.doubleToLongBits(((DoubleValue) v).value);
+		}
+	}
+
+	private static Value fromBits(byte kind, long bits) {
+		switch (kind) {
+		case ValueEnum.DECIMAL:
+			return new DecimalValue(bits);
+		case ValueEnum.FLOAT:
+			return new FloatValue(Float.intBitsToFloat((int) bits));
+		default:
+			return new DoubleValue(Double.longBitsToDouble(bits));
+		}
+	}
+
+	public byte[] encode() throws IOException {
+		DataOutputX out = new DataOutputX();
+		out.writeInt(objHash);
+		out.writeByte(count);
+		out.writeLong(times[0]);
+		BitOutput bits = new BitOutput();
+		long delta = 0;
+		for (int i = 1; i < count; i++) {
+			long d = times[i] - times[i - 1];
+			bits.writeDeltaOfDelta(d - delta);
+			delta = d;
+		}
+		out.writeDecimal(columns.size());
+		for (int c = 0; c < columns.size(); c++) {
+			Column col = columns.get(c);
+			byte kind = kindOf(col, count);
+			out.writeDecimal(col.tag);
+			out.writeByte(kind);
+			byte[] present = new byte[(count + 7) / 8];
+			for (int i = 0; i < count; i++) {
+				if (col.values[i] != null)
+					present[i >> 3] |= 1 << (i & 7);
+			}
+			out.write(present);
+			if (kind == RAW) {
+				for (int i = 0; i < count; i++) {
+					if (col.values[i] != null)
+						out.writeValue(col.values[i]);
+				}
+			} else {
+				boolean first = true;
+				for (int i = 0; i < count; i++) {
+					if (col.values[i] == null)
+						continue;
+					long v = toBits(col.values[i]);
+					if (first) {
+						bits.writeFirst(v);
+						first = false;
+					} else {
+						bits.writeXor(v);
+					}
+				}
+			}
+		}
+		out.writeBlob(bits.toByteArray());
+		return out.toByteArray();
+	}
+
+	public static CounterBlock decode(byte[] data) throws IOException {
+		DataInputX in = new DataInputX(data);
+		CounterBlock b = new CounterBlock(in.readInt());
+		b.count = in.readByte() & 0xff;
+		b.times[0] = in.readLong();
+		int ncol = (int) in.readDecimal();
+		byte[] kinds = new byte[ncol];
+		byte[][] present = new byte[ncol][];
+		for (int c = 0; c < ncol; c++) {
+			Column col = new Column((int) in.readDecimal());
+			kinds[c] = in.readByte();
+			present[c] = in.read((b.count + 7) / 8);
+			if (kinds[c] == RAW) {
+				for (int i = 0; i < b.count; i++) {
+					if ((present[c][i >> 3] & (1 << (i & 7))) != 0)
+						col.values[i] = in.readValue();
+				}
+			}
+			b.columns.add(col);
+		}
+		BitInput bits = new BitInput(in.readBlob());
+		long delta = 0;
+		for (int i = 1; i < b.count; i++) {
+			delta += bits.readDeltaOfDelta();
+			b.times[i] = b.times[i - 1] + delta;
+		}
+		for (int c = 0; c < ncol; c++) {
+			if (kinds[c] == RAW)
+				continue;
+			Column col = b.columns.get(c);
+			boolean first = true;
+			long v = 0;
+			for (int i = 0; i < b.count; i++) {
+				if ((present[c][i >> 3] & (1 << (i & 7))) == 0)
+					continue;
+				if (first) {
+					v = bits.readFirst();
+					first = false;
+				} else {
+					v = bits.readXor();
+				}
+				col.values[i] = fromBits(kinds[c], v);
+			}
+		}
+		return b;
+	}
+
+	static class BitOutput {
+		private byte[] buf = new byte[256];
+		private long bitPos;
+		private int prevLeading = -1;
+		private int prevTrailing;
+		private long prev;
+
+		void writeBit(boolean bit) {
+			int idx = (int) (bitPos >>> 3);
+			if (idx >= buf.length) {
+				byte[] n = new byte[buf.length * 2];
+				System.arraycopy(buf, 0, n, 0, buf.length);
+				buf = n;
+			}
+			if (bit)
+				buf[idx] |= 0x80 >>> (bitPos & 7);
+			bitPos++;
+		}
+
+		void writeBits(long v, int n) {
+			for (int i = n - 1; i >= 0; i--) {
+				writeBit(((v >>> i) & 1) != 0);
+			}
+		}
+
+		/**
+		 * '0' for 0, '10'+7bits, '110'+9bits, '1110'+12bits, '1111'+64bits.
+		 */
+		void writeDeltaOfDelta(long dod) {
+			if (dod == 0) {
+				writeBit(false);
+			} else if (dod >= -64 && dod <= 63) {
+				writeBits(0x2, 2);
+				writeBits(dod, 7);
+			} else if (dod >= -256 && dod <= 255) {
+				writeBits(0x6, 3);
+				writeBits(dod, 9);
+			} else if (dod >= -2048 && dod <= 2047) {
+				writeBits(0xE, 4);
+				writeBits(dod, 12);
+			} else {
+				writeBits(0xF, 4);
+				writeBits(dod, 64);
+			}
+		}
+
+		/**
+		 * '0' for the same value, '10'+meaningful bits in the previous window,
+		 * '11'+5bits leading zeros+6bits length-1+meaningful bits.
+		 */
+		void writeXor(long v) {
+			long xor = v ^ prev;
+			prev = v;
+			if (xor == 0) {
+				writeBit(false);
+				return;
+			}
+			writeBit(true);
+			int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trailing = Long.numberOfTrailingZeros(xor);
+			if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+				writeBit(false);
+				writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+			} else {
+				writeBit(true);
+				int length = 64 - leading - trailing;
+				writeBits(leading, 5);
+				writeBits(length - 1, 6);
+				writeBits(xor >>> trailing, length);
+				prevLeading = leading;
+				prevTrailing = trailing;
+			}
+		}
+
+		/**
+		 * the first value of a column. the following values are XORed with it.
+		 */
+		void writeFirst(long v) {
+			writeBits(v, 64);
+			prev = v;
+			prevLeading = -1;
+			prevTrailing = 0;
+		}
+
+		byte[] toByteArray() {
+			int len = (int) ((bitPos + 7) >>> 3);
+			byte[] out = new byte[len];
+			System.arraycopy(buf, 0, out, 0, len);
+			return out;
+		}
+	}
+
+	static class BitInput {
+		private final byte[] buf;
+		private long bitPos;
+		private int prevLeading = -1;
+		private int prevTrailing;
+		private long prev;
+
+		BitInput(byte[] buf) {
+			this.buf = buf;
+		}
+
+		boolean readBit() {
+			boolean bit = (buf[(int) (bitPos >>> 3)] & (0x80 >>> (bitPos & 7))) != 0;
+			bitPos++;
+			return bit;
+		}
+
+		long readBits(int n) {
+			long v = 0;
+			for (int i = 0; i < n; i++) {
+				v = (v << 1) | (readBit() ? 1 : 0);
+			}
+			return v;
+		}
+
+		private long readSigned(int n) {
+			long v = readBits(n);
+			return (v << (64 - n)) >> (64 - n);
+		}
+
+		long readDeltaOfDelta() {
+			if (readBit() == false)
+				return 0;
+			if (readBit() == false)
+				return readSigned(7);
+			if (readBit() == false)
+				return readSigned(9);
+			if (readBit() == false)
+				return readSigned(12);
+			return readBits(64);
+		}
+
+		long readFirst() {
+			prev = readBits(64);
+			prevLeading = -1;
+			prevTrailing = 0;
+			return prev;
+		}
+
+		long readXor() {
+			if (readBit() == false)
+				return prev;
+			if (readBit() == false) {
+				prev ^= readBits(64 - prevLeading - prevTrailing) << prevTrailing;
+				return prev;
+			}
+			int leading = (int) readBits(5);
+			int length = (int) readBits(6) + 1;
+			int trailing = 64 - leading - length;
+			prev ^= readBits(length) << trailing;
+			prevLeading = leading;
+			prevTrailing = trailing;
+			return prev;
+		}
+	}
+}
@@ -17,35 +17,65 @@
 
 package scouter.server.db.io;
 
-import scouter.io.DataInputX;
-import scouter.io.DataOutputX;
 import scouter.io.FlushCtr;
 import scouter.io.IFlushable;
+import scouter.server.Configure;
+import scouter.server.Logger;
 import scouter.util.FileUtil;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * hash table of the .hfile, memory-mapped so that it stays out of the heap and flush() writes back only dirty pages.
+ * <p>
+ * - legacy (header[2] == 0) : a bucket is the 5-byte position of (keyHash % capacity). the size is fixed.
+ * - open addressing (header[2] == 1) : a slot is 4-byte keyHash + 5-byte position with linear probing,
+ * so a key chain in the .kfile only holds the keys of the same hash.
+ * the table is rehashed into a double sized file when the load factor is exceeded.
+ * <p>
+ * new files use open addressing when mgr_index_hash_resizable_enabled is set or the owner asks for it.
+ * existing files keep their layout.
+ */
 public class MemHashBlock implements IFlushable {
 	private final static int _countPos = 4;
 	private final static int _memHeadReserved = 1024;
 	private final static int _keyLength = 5;
-	
+
+	private final static byte LEGACY = 0;
+	private final static byte OPEN_ADDRESSING = 1;
+	private final static int _slotLength = 4 + _keyLength;
+	private final static float LOAD_FACTOR = 0.75f;
+	private final static long MAX_FILE_SIZE = Integer.MAX_VALUE;
+
 	protected File file;
-	protected byte[] memBuffer;
+	protected RandomAccessFile raf;
+	protected MappedByteBuffer memBuffer;
 	protected int memBufferSize;
 
 	protected String path;
 	protected int count;
 	protected int capacity;
+	protected byte layout;
 
 	public MemHashBlock(String path, int memSize) throws IOException {
-		open(path, memSize);
+		this(path, memSize, Configure.getInstance().mgr_index_hash_resizable_enabled);
+	}
+
+	/**
+	 * @param resizable the layout of a new file, open addressing or legacy. an existing file keeps its layout.
+	 */
+	public MemHashBlock(String path, int memSize, boolean resizable) throws IOException {
+		open(path, memSize, resizable);
 	}
 
 	public synchronized void flush() {
-		FileUtil.save(this.file, this.memBuffer);
+		if (this.memBuffer != null) {
+			this.memBuffer.force();
+		}
 		this.dirty = false;
 	}
 
@@ -59,63 +89,152 @@ public class MemHashBlock implements IFlushable {
 		return dirty;
 	}
 
-
-	private void open(String path, int memSize) throws FileNotFoundException, IOException {
+	private void open(String path, int memSize, boolean resizable) throws IOException {
 		this.path = path;
-		this.memBufferSize = memSize;
 		this.file = new File(this.path + ".hfile");
 		boolean isNew = this.file.exists() == false || this.file.length() < _memHeadReserved;
-
 		if (isNew) {
-			this.memBuffer = new byte[_memHeadReserved + memBufferSize];
-			this.memBuffer[0] = (byte) 0xCA;
-			this.memBuffer[1] = (byte) 0xFE;
+			this.layout = resizable ? OPEN_ADDRESSING : LEGACY;
+			map(this.file, layout == OPEN_ADDRESSING ? memSize / _slotLength * _slotLength : memSize);
+			this.memBuffer.put(0, (byte) 0xCA);
+			this.memBuffer.put(1, (byte) 0xFE);
+			this.memBuffer.put(2, layout);
+			this.dirty = true;
 		} else {
-			this.memBufferSize = (int) (this.file.length() - _memHeadReserved);
-			this.memBuffer = FileUtil.readAll(this.file);
-			this.count = DataInputX.toInt(this.memBuffer, _countPos);
+			map(this.file, (int) (this.file.length() - _memHeadReserved));
+			this.layout = this.memBuffer.get(2);
+			this.count = this.memBuffer.getInt(_countPos);
 		}
+		this.capacity = memBufferSize / (layout == OPEN_ADDRESSING ? _slotLength : _keyLength);
 
-		this.capacity = (int) (memBufferSize / _keyLength);
-		
 		FlushCtr.getInstance().regist(this);
 	}
 
+	private void map(File f, int size) throws IOException {
+		this.raf = new RandomAccessFile(f, "rw");
+		this.memBufferSize = size;
+		this.memBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, _memHeadReserved + size);
+	}
+
+	private long getLong5(int pos) {
+		return ((long) memBuffer.get(pos) << 32)
+				+ ((long) (memBuffer.get(pos + 1) & 255) << 24)
+				+ ((memBuffer.get(pos + 2) & 255) << 16)
+				+ ((memBuffer.get(pos + 3) & 255) << 8)
+				+ (memBuffer.get(pos + 4) & 255);
+	}
+
+	private void setLong5(int pos, long v) {
+		memBuffer.put(pos, (byte) (v >>> 32));
+		memBuffer.put(pos + 1, (byte) (v >>> 24));
+		memBuffer.put(pos + 2, (byte) (v >>> 16));
+		memBuffer.put(pos + 3, (byte) (v >>> 8));
+		memBuffer.put(pos + 4, (byte) v);
+	}
+
 	private int _offset(int keyHash) {
 		int bucketPos = (keyHash & Integer.MAX_VALUE) % capacity;
 		return _keyLength * bucketPos + _memHeadReserved;
 	}
 
+	/**
+	 * slot of the keyHash or the empty slot where it should be inserted.
+	 */
+	private int _slot(int keyHash) {
+		int idx = (keyHash & Integer.MAX_VALUE) % capacity;
+		while (true) {
+			int pos = _slotLength * idx + _memHeadReserved;
+			if (getLong5(pos + 4) == 0 || memBuffer.getInt(pos) == keyHash) {
+				return pos;
+			}
+			idx = idx + 1 == capacity ? 0 : idx + 1;
+		}
+	}
+
 	public synchronized long get(int keyHash) throws IOException {
-		int pos = _offset(keyHash);
-		return DataInputX.toLong5(this.memBuffer, pos);
+		if (layout == OPEN_ADDRESSING) {
+			return getLong5(_slot(keyHash) + 4);
+		}
+		return getLong5(_offset(keyHash));
 	}
 
 	public int getCount() {
 		return count;
 	}
-	
+
 	private int addCount(int n) throws IOException {
 		count += n;
-		DataOutputX.set(this.memBuffer, _countPos, DataOutputX.toBytes(count));
+		memBuffer.putInt(_countPos, count);
 		return count;
 	}
 
 	public synchronized void put(int keyHash, long value) throws IOException {
+		if (layout == OPEN_ADDRESSING) {
+			int pos = _slot(keyHash);
+			if (getLong5(pos + 4) == 0) {
+				if (count + 1 > capacity * LOAD_FACTOR && resize()) {
+					pos = _slot(keyHash);
+				} else if (count + 1 >= capacity) {
+					throw new IOException("hash index is full " + path);
+				}
+				addCount(1);
+				memBuffer.putInt(pos, keyHash);
+			}
+			setLong5(pos + 4, value);
+		} else {
+			int pos = _offset(keyHash);
+			if (getLong5(pos) == 0) {
+				addCount(1);
+			}
+			setLong5(pos, value);
+		}
+		this.dirty = true;
+	}
 
-		byte[] buffer = DataOutputX.toBytes5(value);
-		int pos = _offset(keyHash);
-
-		if ( DataInputX.toLong5(this.memBuffer, pos) == 0) {
-			addCount(1);
+	/**
+	 * rehash into a double sized table. the new table is written to a temporary file and then replaces the .hfile.
+	 */
+	private boolean resize() throws IOException {
+		long newSize = (long) capacity * 2 * _slotLength;
+		if (_memHeadReserved + newSize > MAX_FILE_SIZE) {
+			return false;
+		}
+		MappedByteBuffer old = this.memBuffer;
+		int oldCapacity = this.capacity;
+		RandomAccessFile oldRaf = this.raf;
+
+		File tmp = new File(this.path + ".hfile.resize");
+		tmp.delete();
+		map(tmp, (int) newSize);
+		this.capacity = oldCapacity * 2;
+		for (int i = 0; i < _memHeadReserved; i++) {
+			memBuffer.put(i, old.get(i));
+		}
+		for (int i = 0; i < oldCapacity; i++) {
+			int from = _slotLength * i + _memHeadReserved;
+			int keyHash = old.getInt(from);
+			long value = ((long) old.get(from + 4) << 32) + ((long) (old.get(from + 5) & 255) << 24)
+					+ ((old.get(from + 6) & 255) << 16) + ((old.get(from + 7) & 255) << 8) + (old.get(from + 8) & 255);
+			if (value != 0) {
+				int to = _slot(keyHash);
+				memBuffer.putInt(to, keyHash);
+				setLong5(to + 4, value);
+			}
+		}
+		memBuffer.force();
+		FileUtil.close(oldRaf);
+		if (tmp.renameTo(this.file) == false) {
+			this.file.delete();
+			if (tmp.renameTo(this.file) == false) {
+				throw new IOException("fail to replace " + this.file);
+			}
 		}
-		
-		System.arraycopy(buffer, 0, this.memBuffer, pos, _keyLength);
-		
-		this.dirty=true;
+		Logger.println("S231", "hash index resized " + this.file.getName() + " capacity=" + this.capacity);
+		return true;
 	}
 
-	public void close() {
+	public synchronized void close() {
 		FlushCtr.getInstance().unregist(this);
+		FileUtil.close(this.raf);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+/*
+ *  Copyright 2015 the original author or authors. 
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); 
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. 
+ */
+package scouter.server.db.io.zip;
+
+import java.io.IOException;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Factory;
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+import scouter.server.Configure;
+import scouter.util.CompressUtil;
+
+/**
+ * compression of a stored block.
+ * a block file starts with HEADER and the id of the codec which wrote it.
+ * files written before the codec option have no header and are read as gzip.
+ */
+public abstract class BlockCodec {
+	private static final byte[] HEADER = { 'S', 'C', 'B' };
+
+	public static final byte GZIP = 1;
+	public static final byte LZ4 = 2;
+	public static final byte ZSTD = 3;
+
+	public abstract byte getId();
+
+	protected abstract byte[] compress(byte[] data) throws IOException;
+
+	/**
+	 * @param orgLength length of the data before compression
+	 */
+	protected abstract byte[] decompress(byte[] data, int offset, int length, int orgLength) throws IOException;
+
+	/**
+	 * compressed bytes with the header, codec id and original length.
+	 */
+	public byte[] encode(byte[] data) throws IOException {
+		DataOutputX out = new DataOutputX();
+		out.write(HEADER);
+		out.writeByte(getId());
+		out.writeInt(data.length);
+		out.write(compress(data));
+		return out.toByteArray();
+	}
+
+	public static byte[] decode(byte[] data) throws IOException {
+		if (isEncoded(data) == false) {
+			return CompressUtil.unZip(data);
+		}
+		BlockCodec codec = getCodec(data[HEADER.length]);
+		if (codec == null) {
+			throw new IOException("unknown block codec " + data[HEADER.length]);
+		}
+		int orgLength = DataInputX.toInt(data, HEADER.length + 1);
+		int offset = HEADER.length + 5;
+		return codec.decompress(data, offset, data.length - offset, orgLength);
+	}
+
+	private static boolean isEncoded(byte[] data) {
+		if (data.length < HEADER.length + 5)
+			return false;
+		for (int i = 0; i < HEADER.length; i++) {
+			if (data[i] != HEADER[i])
+				return false;
+		}
+		return true;
+	}
+
+	public static BlockCodec getCodec(byte id) {
+		switch (id) {
+		case GZIP:
+			return GZipCodec.instance;
+		case LZ4:
+			return LZ4Codec.instance;
+		case ZSTD:
+			return ZstdCodec.instance;
+		}
+		return null;
+	}
+
+	/**
+	 * codec for new blocks by compress_block_codec (gzip, lz4, zstd).
+	 */
+	public static BlockCodec getWriteCodec() {
+		String name = Configure.getInstance().compress_block_codec;
+		if ("lz4".equalsIgnoreCase(name)) {
+			return LZ4Codec.instance;
+		}
+		if ("zstd".equalsIgnoreCase(name)) {
+			return ZstdCodec.instance;
+		}
+		return GZipCodec.instance;
+	}
+
+	static class GZipCodec extends BlockCodec {
+		static final GZipCodec instance = new GZipCodec();
+
+		public byte getId() {
+			return GZIP;
+		}
+
+		protected byte[] compress(byte[] data) throws IOException {
+			return CompressUtil.doZip(data);
+		}
+
+		protected byte[] decompress(byte[] data, int offset, int length, int orgLength) throws IOException {
+			byte[] gz = new byte[length];
+			System.arraycopy(data, offset, gz, 0, length);
+			return CompressUtil.unZip(gz);
+		}
+	}
+
+	static class LZ4Codec extends BlockCodec {
+		static final LZ4Codec instance = new LZ4Codec();
+
+		public byte getId() {
+			return LZ4;
+		}
+
+		protected byte[] compress(byte[] data) throws IOException {
+			return LZ4Factory.fastestInstance().fastCompressor().compress(data);
+		}
+
+		protected byte[] decompress(byte[] data, int offset, int length, int orgLength) throws IOException {
+			byte[] out = new byte[orgLength];
+			LZ4Factory.fastestInstance().fastDecompressor().decompress(data, offset, out, 0, orgLength);
+			return out;
+		}
+	}
+
+	static class ZstdCodec extends BlockCodec {
+		static final ZstdCodec instance = new ZstdCodec();
+
+		public byte getId() {
+			return ZSTD;
+		}
+
+		protected byte[] compress(byte[] data) throws IOException {
+			return Zstd.compress(data, Configure.getInstance()._compress_zstd_level);
+		}
+
+		protected byte[] decompress(byte[] data, int offset, int length, int orgLength) throws IOException {
+			byte[] out = new byte[orgLength];
+			long n = Zstd.decompressByteArray(out, 0, orgLength, data, offset, length);
+			if (Zstd.isError(n)) {
+				throw new IOException(Zstd.getErrorName(n));
+			}
+			return out;
+		}
+	}
+}
@@ -23,8 +23,6 @@ import java.util.concurrent.Executors;
 import scouter.server.ConfObserver;
 import scouter.server.Configure;
 import scouter.server.Logger;
-import scouter.util.CacheTable;
-import scouter.util.CompressUtil;
 import scouter.util.FileUtil;
 import scouter.util.IShutdown;
 import scouter.util.LinkedMap;
@@ -40,7 +38,7 @@ public class IOChannel implements IShutdown {
 	public IOChannel() {
 		ConfObserver.put(IOChannel.class.getName(), new Runnable() {
 			public void run() {
-				readCache.setMaxRow(conf._compress_read_cache_block_count);
+				readCache.setMax(conf._compress_read_cache_block_count);
 			}
 		});
 	}
@@ -92,7 +90,6 @@ public class IOChannel implements IShutdown {
 			Block old = getReadBlock(bk.date, bk.blockNum);
 			if (old != null) {
 				bk = bk.merge(old);
-				readCache.put(new BKey(bk.date, bk.blockNum), bk, conf._compress_read_cache_expired_ms);
 			}
 			mgtime = (int) w2.getTime();
 		}
@@ -101,6 +98,10 @@ public class IOChannel implements IShutdown {
 			byte[] org = bk.getBlockBytes();
 			String date = bk.date;
 			int blockNum = bk.blockNum;
+			// the file is saved asynchronously, so readers are served from a snapshot in the cache until then.
+			Block snapshot = new Block(date, org, bk.START, bk.END, bk.MAX);
+			snapshot.blockNum = blockNum;
+			putReadCache(snapshot);
 			saveBlockBytes(getFile(date, blockNum), org);
 			// byte[] out = CompressUtil.doZip(org);
 			// FileUtil.save(getFile(date, blockNum), out);
@@ -128,10 +129,11 @@ public class IOChannel implements IShutdown {
 		});
 	}
 	protected static void saveBlockBytes(final File file, final byte[] block) {
+		final BlockCodec codec = BlockCodec.getWriteCodec();
 		exec.execute(new Runnable() {
 			public void run() {
 				try {
-					byte[] out = CompressUtil.doZip(block);
+					byte[] out = codec.encode(block);
 					FileUtil.save(file, out);
 				} catch (Exception e) {
 					Logger.println("S209", e.getMessage());
@@ -143,21 +145,50 @@ public class IOChannel implements IShutdown {
 		String filename = (GZipCtr.createPath(date) + "/xlog." + blockNum);
 		return new File(filename);
 	}
-	private CacheTable<BKey, Block> readCache = new CacheTable<BKey, Block>().setMaxRow(conf._compress_read_cache_block_count);
+	/**
+	 * LRU of decompressed blocks. a hit moves the block to the last and an entry older than
+	 * _compress_read_cache_expired_ms after its last hit is loaded again.
+	 */
+	private LinkedMap<BKey, Block> readCache = new LinkedMap<BKey, Block>().setMax(conf._compress_read_cache_block_count);
+	private synchronized void putReadCache(Block bk) {
+		bk.lastAccessTime = System.currentTimeMillis();
+		readCache.putLast(new BKey(bk.date, bk.blockNum), bk);
+	}
+	/**
+	 * a block loaded from the file is cached only when store() has not cached a newer one meanwhile.
+	 */
+	private synchronized Block putReadCacheIfAbsent(Block bk) {
+		Block b = getReadCache(new BKey(bk.date, bk.blockNum));
+		if (b != null)
+			return b;
+		putReadCache(bk);
+		return bk;
+	}
+	private synchronized Block getReadCache(BKey key) {
+		Block b = readCache.get(key);
+		if (b == null)
+			return null;
+		long now = System.currentTimeMillis();
+		if (now - b.lastAccessTime > conf._compress_read_cache_expired_ms) {
+			readCache.remove(key);
+			return null;
+		}
+		b.lastAccessTime = now;
+		readCache.putLast(key, b);
+		return b;
+	}
 	public Block getReadBlock(String date, int blockNum) {
-		Block b = readCache.get(new BKey(date, blockNum));
+		Block b = getReadCache(new BKey(date, blockNum));
 		if (b != null)
 			return b;
 		File f = getFile(date, blockNum);
 		if (f.exists() == false)
 			return null;
 		try {
-			byte[] gz = FileUtil.readAll(f);
-			gz = CompressUtil.unZip(gz);
-			Block bk = new Block(date, gz, 0, gz.length, GZipCtr.BLOCK_MAX_SIZE);
+			byte[] org = BlockCodec.decode(FileUtil.readAll(f));
+			Block bk = new Block(date, org, 0, org.length, GZipCtr.BLOCK_MAX_SIZE);
 			bk.blockNum = blockNum;
-			readCache.put(new BKey(date, blockNum), bk, conf._compress_read_cache_expired_ms);
-			return bk;
+			return putReadCacheIfAbsent(bk);
 		} catch (Throwable e) {
 			e.printStackTrace();
 		}
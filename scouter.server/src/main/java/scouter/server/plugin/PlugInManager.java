@@ -16,6 +16,8 @@
  */
 package scouter.server.plugin;
 
+import java.util.List;
+
 import scouter.lang.pack.AlertPack;
 import scouter.lang.pack.ObjectPack;
 import scouter.lang.pack.PerfCounterPack;
@@ -50,6 +52,17 @@ public class PlugInManager {
 		}
 	}
 
+	/**
+	 * true when any plugin can modify a xlog.
+	 */
+	public static boolean hasXLogPlugin() {
+		if (xlog != null || xlogdb != null) {
+			return true;
+		}
+		List list = BuiltInPluginManager.getPluginList(PluginConstants.PLUGIN_SERVER_XLOG);
+		return list != null && list.size() > 0;
+	}
+
 	public static void xlogdb(XLogPack m) {
 		if (xlogdb != null) {
 			try {
@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.core
+
+import java.util
+
+import scouter.lang.pack.PerfCounterPack
+import scouter.lang.value.MapValue
+import scouter.server.Configure
+import scouter.server.db.CounterRollupWR
+import scouter.server.util.{EnumerScala, ThreadScala}
+import scouter.util.DateUtil
+
+/**
+  * pre-aggregates realtime counters into min/max/avg/count rollups of 1 minute, 10 minutes and 1 hour.
+  * a bucket of an object is written by CounterRollupWR when the object's counter arrives for the next bucket
+  * or when the bucket gets stale.
+  */
+object CounterRollup {
+
+    val RESOLUTIONS = Array(DateUtil.MILLIS_PER_MINUTE, DateUtil.MILLIS_PER_TEN_MINUTE, DateUtil.MILLIS_PER_HOUR)
+    val NAMES = Array("r1m", "r10m", "r1h")
+
+    private val buckets = Array.tabulate(RESOLUTIONS.length)(r => new CounterRollupBuckets(RESOLUTIONS(r), new CounterRollupBuckets.Flusher {
+        override def flush(objName: String, time: Long, data: MapValue) {
+            CounterRollupWR.add(r, objName, time, data)
+        }
+    }))
+
+    ThreadScala.startFixedRate(DateUtil.MILLIS_PER_MINUTE) {
+        val now = System.currentTimeMillis()
+        buckets.foreach(_.flushStale(now))
+    }
+
+    def add(pack: PerfCounterPack) {
+        if (Configure.getInstance().counter_rollup_enabled == false)
+            return
+        buckets.foreach(_.add(pack.objName, pack.time, pack.data))
+    }
+
+    /**
+      * the coarsest resolution giving at least the requested number of points in the range, -1 when none does.
+      */
+    def resolutionFor(stime: Long, etime: Long, points: Int): Int = {
+        if (points <= 0)
+            return -1
+        var r = RESOLUTIONS.length - 1
+        while (r >= 0) {
+            if ((etime - stime) / RESOLUTIONS(r) >= points)
+                return r
+            r -= 1
+        }
+        return -1
+    }
+
+    /**
+      * the buckets not yet written, so a read can include the latest period.
+      */
+    def readCurrent(r: Int, stime: Long, etime: Long, handler: (MapValue) => Any) {
+        val rows = new util.ArrayList[MapValue]()
+        buckets(r).readCurrent(stime, etime, rows)
+        EnumerScala.forward(rows, (m: MapValue) => handler(m))
+    }
+}
@@ -29,14 +29,14 @@ import scouter.server.core.cache.CounterCache
 import scouter.server.db.{DailyCounterWR, RealtimeCounterWR}
 import scouter.server.plugin.PlugInManager
 import scouter.server.plugin.alert.AlertEngine
-import scouter.server.util.{EnumerScala, ThreadScala}
-import scouter.util.{CastUtil, DateUtil, HashUtil, RequestQueue}
+import scouter.server.util.{EnumerScala, RequestQueueFactory, ThreadScala}
+import scouter.util.{CastUtil, DateUtil, HashUtil}
 
 /**
   * request queue of performance counter data and also dispatcher of the queue
   */
 object PerfCountCore {
-    var queue = new RequestQueue[PerfCounterPack](CoreRun.MAX_QUE_SIZE);
+    var queue = RequestQueueFactory.create[PerfCounterPack](CoreRun.MAX_QUE_SIZE);
     ThreadScala.startDaemon("scouter.server.core.PerfCountCore", {CoreRun.running}) {
         val counterPack = queue.get();
         val objHash = HashUtil.hash(counterPack.objName);
@@ -48,6 +48,7 @@ object PerfCountCore {
             //counterPack.data.put(CounterConstants.COMMON_TIME, new DecimalValue(counterPack.time)) //add objHash into datafile
 
             RealtimeCounterWR.add(counterPack);
+            CounterRollup.add(counterPack);
             EnumerScala.foreach(counterPack.data.keySet().iterator(), (k: String) => {
                 val value = counterPack.data.get(k);
                 val counterKey = new CounterKey(objHash, k, counterPack.timetype);
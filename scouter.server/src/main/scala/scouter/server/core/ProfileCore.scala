@@ -24,14 +24,13 @@ import scouter.server.Logger
 import scouter.server.db.XLogProfileWR
 import scouter.server.db.XLogProfileWR
 import scouter.server.plugin.PlugInManager
-import scouter.server.util.ThreadScala
+import scouter.server.util.{RequestQueueFactory, ThreadScala}
 import scouter.util.BytesUtil
-import scouter.util.RequestQueue
 
 object ProfileCore {
 
     val conf = Configure.getInstance();
-    val queue = new RequestQueue[XLogProfilePack](conf.profile_queue_size);
+    val queue = RequestQueueFactory.create[XLogProfilePack](conf.profile_queue_size);
 
     ThreadScala.startDaemon("scouter.server.core.ProfileCore", { CoreRun.running }) {
         val m = queue.get();
@@ -23,14 +23,14 @@ import scouter.server.Logger
 import scouter.server.core.cache.TextCache
 import scouter.server.db.TextWR
 import scouter.server.plugin.PlugInManager
-import scouter.server.util.ThreadScala
-import scouter.util.{DateUtil, RequestQueue}
+import scouter.server.util.{RequestQueueFactory, ThreadScala}
+import scouter.util.DateUtil
 
 /**
   * request queue of text data and dispatcher of the queue.
   */
 object TextCore {
-    val queue = new RequestQueue[TextPack](CoreRun.MAX_QUE_SIZE);
+    val queue = RequestQueueFactory.create[TextPack](CoreRun.MAX_QUE_SIZE);
 
     ThreadScala.startDaemon("scouter.server.core.TextCore", {CoreRun.running}) {
         val pack = queue.get();
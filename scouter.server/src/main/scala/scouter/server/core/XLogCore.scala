@@ -27,13 +27,13 @@ import scouter.server.db.XLogWR
 import scouter.server.geoip.GeoIpUtil
 import scouter.server.plugin.PlugInManager
 import scouter.server.tagcnt.XLogTagCount
-import scouter.server.util.ThreadScala
-import scouter.util.RequestQueue
+import scouter.server.util.{RequestQueueFactory, ThreadScala}
+import scouter.util.CompareUtil
 
 object XLogCore {
 
   val conf = Configure.getInstance();
-  val queue = new RequestQueue[XLogPack](conf.xlog_queue_size);
+  val queue = RequestQueueFactory.create[XLogPack](conf.xlog_queue_size);
 
   def calc(m: XLogPack) = {
     XLogGroupUtil.process(m);
@@ -47,6 +47,9 @@ object XLogCore {
     ServerStat.put("xlog.core.queue", queue.size());
 
     if (Configure.WORKABLE) {
+      val group = m.group
+      val countryCode = m.countryCode
+      val city = m.city
 
       m.xType match {
         case XLogTypes.WEB_SERVICE =>
@@ -61,19 +64,29 @@ object XLogCore {
       //for backward compatibility
       PlugInManager.xlogdb(m);
 
-      val b = new DataOutputX().writePack(m).toByteArray();
-      XLogCache.put(m.objHash, m.elapsed, m.error != 0, b);
+      val b = if (canReuse(m, group, countryCode, city)) m.wireBytes else new DataOutputX().writePack(m).toByteArray();
+      m.wireBytes = null
+      XLogCache.put(m, b);
       if (conf.tagcnt_enabled) {
         XLogTagCount.add(m)
       }
-      XLogWR.add(m.endTime, m.txid, m.gxid, m.elapsed, b);
+      XLogWR.add(m, b);
 
     }
   }
 
+  /**
+    * the received bytes are stored as they are unless the server has changed the pack.
+    */
+  private def canReuse(m: XLogPack, group: Int, countryCode: String, city: Int): Boolean = {
+    m.wireBytes != null && conf.xlog_reuse_wire_bytes_enabled && PlugInManager.hasXLogPlugin() == false &&
+      m.group == group && m.city == city && CompareUtil.equals(m.countryCode, countryCode)
+  }
+
   def add(p: XLogPack) {
     if (p.endTime == 0) {
       p.endTime = System.currentTimeMillis();
+      p.wireBytes = null
     }
 
     val ok = queue.put(p);
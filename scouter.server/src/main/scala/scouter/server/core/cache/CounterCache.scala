@@ -18,57 +18,139 @@
 
 package scouter.server.core.cache;
 
+import java.util.concurrent.ConcurrentHashMap
 import java.util.{HashMap, Map}
 
 import scouter.lang.{CounterKey, TimeTypeEnum}
 import scouter.lang.value.Value
 import scouter.server.util.ThreadScala
-import scouter.util.{CacheTable, DateUtil, ThreadUtil}
+import scouter.util.{DateUtil, ThreadUtil}
 
 /**
   * Singleton object of the memory cache for counter data.
+  * counters are kept by objHash, timetype and counter name, so the counters of an object are found without scanning the others.
+  * an expired value is dropped when it is read, and the objects without any live counter are swept once a minute.
   */
 object CounterCache {
     //val counterEngine = CounterManager.getInstance().getCounterEngine();
-    val cache = new CacheTable[CounterKey, Value]();
+
+    class Entry(val value: Value, val expire: Long)
+
+    class ObjectCounters {
+        val types = new ConcurrentHashMap[java.lang.Byte, ConcurrentHashMap[String, Entry]]()
+
+        def counters(timeType: Byte): ConcurrentHashMap[String, Entry] = {
+            var m = types.get(timeType)
+            if (m == null) {
+                m = new ConcurrentHashMap[String, Entry]()
+                val old = types.putIfAbsent(timeType, m)
+                if (old != null) {
+                    m = old
+                }
+            }
+            return m
+        }
+
+        /**
+          * removes the expired values and returns true when nothing is left.
+          */
+        def sweep(now: Long): Boolean = {
+            val typeItr = types.values().iterator()
+            var empty = true
+            while (typeItr.hasNext()) {
+                val itr = typeItr.next().values().iterator()
+                while (itr.hasNext()) {
+                    if (itr.next().expire < now) {
+                        itr.remove()
+                    } else {
+                        empty = false
+                    }
+                }
+            }
+            return empty
+        }
+    }
+
+    val cache = new ConcurrentHashMap[Integer, ObjectCounters]();
 
     ThreadScala.startDaemon("scouter.server.core.cache.CounterCache") {
+        var lastSweep = System.currentTimeMillis()
         while (true) {
             ThreadUtil.sleep(5000);
-            cache.clearExpiredItems();
+            val now = System.currentTimeMillis()
+            if (now - lastSweep >= DateUtil.MILLIS_PER_MINUTE) {
+                lastSweep = now
+                sweep(now)
+            }
             StatusCache.clearDirty();
         }
     }
 
+    private def sweep(now: Long) {
+        val itr = cache.entrySet().iterator()
+        while (itr.hasNext()) {
+            val e = itr.next()
+            if (e.getValue().sweep(now)) {
+                //a counter put during the sweep may be lost here, the next put of the object adds it again.
+                cache.remove(e.getKey(), e.getValue())
+            }
+        }
+    }
+
+    private def getObject(objHash: Int): ObjectCounters = {
+        var o = cache.get(objHash)
+        if (o == null) {
+            o = new ObjectCounters()
+            val old = cache.putIfAbsent(objHash, o)
+            if (old != null) {
+                o = old
+            }
+        }
+        return o
+    }
+
     def put(key: CounterKey, value: Value) {
         var keepTime = getKeepTime(key.timetype);
-        cache.put(key, value, keepTime);
+        getObject(key.objHash).counters(key.timetype).put(key.counter, new Entry(value, System.currentTimeMillis() + keepTime));
     }
 
     def get(key: CounterKey): Value = {
-        return cache.get(key);
+        val o = cache.get(key.objHash)
+        if (o == null)
+            return null;
+        val m = o.types.get(key.timetype)
+        if (m == null)
+            return null;
+        val e = m.get(key.counter)
+        if (e == null)
+            return null;
+        if (e.expire < System.currentTimeMillis()) {
+            m.remove(key.counter, e)
+            return null;
+        }
+        return e.value;
     }
 
     def getObjectCounters(objHash: Int, timeType: Byte): Map[String, Value] = {
         val map = new HashMap[String, Value]();
-        try {
-
-            val en = cache.keys();
-            while (en.hasMoreElements()) {
-                val key = en.nextElement();
-                if (key.timetype == timeType && key.objHash == objHash) {
-                    val value = cache.get(key);
-                    if (value != null) {
-                        map.put(key.counter, value);
-                    }
-                }
+        val o = cache.get(objHash)
+        if (o == null)
+            return map;
+        val m = o.types.get(timeType)
+        if (m == null)
+            return map;
+        val now = System.currentTimeMillis()
+        val itr = m.entrySet().iterator()
+        while (itr.hasNext()) {
+            val e = itr.next()
+            if (e.getValue().expire < now) {
+                m.remove(e.getKey(), e.getValue())
+            } else {
+                map.put(e.getKey(), e.getValue().value)
             }
-        } catch {
-            case e: Throwable => println(e)
         }
         return map;
     }
-
     def getKeepTime(timeType: Byte): Long = {
         timeType match {
             case TimeTypeEnum.REALTIME =>
@@ -18,21 +18,40 @@
 
 package scouter.server.core.cache;
 
+import scouter.io.DataInputX
 import scouter.lang.TextTypes
-import scouter.util.HashUtil
-import scouter.util.IntKeyLinkedMap
-import scouter.util.IntKeyMap;
-import scouter.util.StringKeyLinkedMap
+import scouter.server.core.ServerStat
+import scouter.server.db.{TextPermRD, TextPermWR, TextRD}
+import scouter.server.util.{EnumerScala, ThreadScala}
+import scouter.server.{Configure, Logger}
+import scouter.util.{DateUtil, HashUtil, IntKeyMap, StringKeyLinkedMap}
 
+/**
+  * texts of each div in a byte bounded, frequency aware cache(TextLfuCache).
+  */
 object TextCache {
 
-    val cache = new StringKeyLinkedMap[IntKeyLinkedMap[String]]();
+    val cache = new StringKeyLinkedMap[TextLfuCache]();
+
+    ThreadScala.startFixedRate(10000) {
+        EnumerScala.foreach(cache.keys(), (div: String) => {
+            val map = cache.get(div)
+            if (map != null) {
+                val hit = map.getHit()
+                val miss = map.getMiss()
+                ServerStat.put("text.cache." + div + ".hit", hit)
+                ServerStat.put("text.cache." + div + ".miss", miss)
+                ServerStat.put("text.cache." + div + ".bytes", map.getBytes())
+                ServerStat.put("text.cache." + div + ".count", map.size())
+                if (hit + miss > 0) {
+                    ServerStat.put("text.cache." + div + ".hit_rate", hit * 100f / (hit + miss))
+                }
+            }
+        })
+    }
 
     def put(div: String, hash: Int, text: String) {
-        val map = getMap(div);
-        if (map.containsKey(hash))
-            return ;
-        map.put(hash, text);
+        getMap(div).put(hash, text);
     }
 
     
@@ -41,17 +60,71 @@ object TextCache {
         return map.get(hash);
     }
 
-    private def getMap(div: String): IntKeyLinkedMap[String] = {
+    private def getMap(div: String): TextLfuCache = {
         var map = cache.get(div);
         if (map == null) {
-            if (TextTypes.SERVICE.equals(div) || TextTypes.APICALL.equals(div)
-                    || TextTypes.SQL.equals(div) || TextTypes.USER_AGENT.equals(div)) {
-                map = new IntKeyLinkedMap().setMax(20000);
-            } else {
-                map = new IntKeyLinkedMap().setMax(2000);
+            cache.synchronized {
+                map = cache.get(div);
+                if (map == null) {
+                    val conf = Configure.getInstance()
+                    if (TextTypes.SERVICE.equals(div) || TextTypes.APICALL.equals(div)
+                            || TextTypes.SQL.equals(div) || TextTypes.USER_AGENT.equals(div)) {
+                        map = new TextLfuCache(conf.mgr_text_cache_mb * 1024L * 1024L);
+                    } else {
+                        map = new TextLfuCache(conf.mgr_text_cache_etc_mb * 1024L * 1024L);
+                    }
+                    cache.put(div, map);
+                }
             }
-            cache.put(div, map);
         }
         return map;
     }
+
+    /**
+      * loads the texts into the cache in the background, so they are served from the memory after a restart.
+      * the daily text table of today is read first, then the permanent text file of each div kept permanently.
+      * a permanent div is read only up to the byte budget of its cache, because the file may be far larger.
+      */
+    def warmUp() {
+        if (Configure.getInstance().mgr_text_cache_warmup_enabled == false)
+            return
+        ThreadScala.startDaemon("scouter.server.core.cache.TextCache-warmup") {
+            val allDivs = Array(TextTypes.ERROR, TextTypes.APICALL, TextTypes.METHOD, TextTypes.SERVICE, TextTypes.SQL,
+                TextTypes.OBJECT, TextTypes.REFERER, TextTypes.USER_AGENT, TextTypes.GROUP, TextTypes.CITY,
+                TextTypes.SQL_TABLES, TextTypes.MARIA, TextTypes.LOGIN, TextTypes.DESC, TextTypes.WEB,
+                TextTypes.HASH_MSG, TextTypes.STACK_ELEMENT)
+            val divs = new IntKeyMap[String]()
+            EnumerScala.foreach(allDivs, (div: String) => divs.put(HashUtil.hash(div), div))
+
+            val stime = System.currentTimeMillis()
+            var daily = 0
+            TextRD.read(DateUtil.yyyymmdd(), (key: Array[Byte], value: Array[Byte]) => {
+                val div = divs.get(DataInputX.toInt(key, 0))
+                if (div != null) {
+                    getMap(div).put(DataInputX.toInt(key, 4), new String(value, "UTF-8"))
+                    daily += 1
+                }
+            })
+
+            var perm = 0
+            EnumerScala.foreach(allDivs, (div: String) => {
+                if (TextPermWR.isA(div)) {
+                    val map = getMap(div)
+                    var bytes = 0L
+                    TextPermRD.readWhile(div, (hash: Int, text: String) => {
+                        bytes += TextLfuCache.sizeOf(text)
+                        if (bytes > map.getMaxBytes()) {
+                            false
+                        } else {
+                            map.put(hash, text)
+                            perm += 1
+                            true
+                        }
+                    })
+                }
+            })
+            Logger.println("S234", "text cache warmed up : daily=" + daily + " permanent=" + perm + " texts "
+                + (System.currentTimeMillis() - stime) + "ms")
+        }
+    }
 }
@@ -18,31 +18,41 @@
 
 package scouter.server.core.cache;
 
+import scouter.lang.pack.XLogPack
+import scouter.server.Configure
 import scouter.util.IntSet;
 
 object XLogCache {
 
-    val cache = new XLogLoopCache[Array[Byte]](20480);
+    val cache = new XLogRingCache(Math.max(1024, Configure.getInstance().xlog_realtime_cache_size));
 
-    def put(objHash: Int, time: Int, error: Boolean, record: Array[Byte]) {
-        cache.put(objHash, time, error, record);
+    def put(p: XLogPack, record: Array[Byte]) {
+        cache.put(p, record);
+    }
+
+    def get(filter: XLogFilter, last_loop: Long, last_index: Int): CacheOut[Array[Byte]] = {
+        return cache.get(filter, last_loop, last_index);
     }
 
     def get(last_loop: Long, last_index: Int, time: Int): CacheOut[Array[Byte]] = {
-        return cache.get(last_loop, last_index, time);
+        return get(null, last_loop, last_index, time);
     }
 
     def get(objHashSet: IntSet, last_loop: Long, last_index: Int, time: Int): CacheOut[Array[Byte]] = {
-        return cache.get(objHashSet, last_loop, last_index, time);
+        val filter = new XLogFilter()
+        filter.objHashSet = objHashSet
+        filter.minElapsed = time
+        return cache.get(filter, last_loop, last_index);
     }
 
     def getWithinCount(last_loop: Long, last_index: Int, count: Int): CacheOut[Array[Byte]] = {
-        return cache.getWithinCount(last_loop, last_index, count);
+        return cache.getWithinCount(null, last_loop, last_index, count);
     }
 
     def getWithinCount(objHashSet: IntSet, last_loop: Long, last_index: Int, count: Int): CacheOut[Array[Byte]] = {
-        return cache.getWithinCount(objHashSet, last_loop, last_index, count);
+        val filter = new XLogFilter()
+        filter.objHashSet = objHashSet
+        return cache.getWithinCount(filter, last_loop, last_index, count);
     }
 
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.core.cache
+
+import java.util.{ArrayList, List}
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+import scouter.lang.pack.XLogPack
+import scouter.util.IntSet
+
+/**
+  * a row of the realtime xlog ring.
+  * the filterable fields are kept beside the serialized pack, so polls can be filtered without deserializing.
+  */
+class XLogRow(val pos: Long,
+              val objHash: Int,
+              val service: Int,
+              val endTime: Long,
+              val elapsed: Int,
+              val error: Boolean,
+              val cpu: Int,
+              val sqlCount: Int,
+              val apicallCount: Int,
+              val data: Array[Byte])
+
+/**
+  * realtime xlog poll condition.
+  * a row passes when (elapsed >= minElapsed or it has an error) and it matches every condition that is set.
+  */
+class XLogFilter {
+    var objHashSet: IntSet = null
+    var serviceSet: IntSet = null
+    var minElapsed = 0
+    var onlyError = false
+    var minCpu = 0
+    var minSqlCount = 0
+    var minApicallCount = 0
+
+    def accept(row: XLogRow): Boolean = {
+        if (objHashSet != null && objHashSet.contains(row.objHash) == false) return false
+        if (row.elapsed < minElapsed && row.error == false) return false
+        if (serviceSet != null && serviceSet.contains(row.service) == false) return false
+        if (onlyError && row.error == false) return false
+        row.cpu >= minCpu && row.sqlCount >= minSqlCount && row.apicallCount >= minApicallCount
+    }
+}
+
+/**
+  * Circular buffer of realtime xlogs with a single writer and lock-free readers.
+  * The writer publishes an immutable row and then advances the cursor,
+  * so a reader takes a snapshot by reading the cursor once and skips any slot already overwritten by a newer lap.
+  * The (loop, index) access point of the former loop cache is kept for the clients.
+  */
+class XLogRingCache(capacity: Int) {
+
+    private val rows = new AtomicReferenceArray[XLogRow](capacity)
+    @volatile private var cursor = 0L
+
+    def put(p: XLogPack, data: Array[Byte]) {
+        this.synchronized {
+            val pos = cursor
+            rows.lazySet((pos % capacity).toInt, new XLogRow(pos, p.objHash, p.service, p.endTime, p.elapsed, p.error != 0,
+                p.cpu, p.sqlCount, p.apicallCount, data))
+            cursor = pos + 1
+        }
+    }
+
+    private def copy(buff: List[Array[Byte]], from: Long, to: Long, filter: XLogFilter) {
+        var pos = Math.max(0L, from)
+        while (pos < to) {
+            val row = rows.get((pos % capacity).toInt)
+            if (row != null && row.pos == pos && (filter == null || filter.accept(row))) {
+                buff.add(row.data)
+            }
+            pos += 1
+        }
+    }
+
+    private def out(end: Long, data: List[Array[Byte]]): CacheOut[Array[Byte]] = {
+        val d = new CacheOut[Array[Byte]]()
+        d.data = data
+        d.loop = end / capacity
+        d.index = (end % capacity).toInt
+        return d
+    }
+
+    def get(filter: XLogFilter, last_loop: Long, last_index: Int): CacheOut[Array[Byte]] = {
+        val end = cursor
+        val start = last_loop * capacity + last_index
+        val from = if (start > end) end - capacity else Math.max(start, end - capacity)
+        val buff = new ArrayList[Array[Byte]]((end - from).toInt)
+        copy(buff, from, end, filter)
+        return out(end, buff)
+    }
+
+    def getWithinCount(filter: XLogFilter, last_loop: Long, last_index: Int, _count: Int): CacheOut[Array[Byte]] = {
+        val end = cursor
+        val gap = end - (last_loop * capacity + last_index)
+        var count = Math.min(_count, capacity).toLong
+        if (gap > 0) {
+            count = Math.min(count, gap)
+        }
+        val buff = new ArrayList[Array[Byte]](count.toInt)
+        copy(buff, end - count, end, filter)
+        return out(end, buff)
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.db
+
+import scouter.lang.value.MapValue
+import scouter.server.Logger
+import scouter.server.core.CounterRollup
+import scouter.server.db.counter.RealtimeCounterDBHelper
+import scouter.server.util.ThreadScala
+import scouter.util.{DateUtil, FileUtil, HashUtil, RequestQueue}
+
+/**
+  * writes the counter rollups into the same file format with the realtime counters,
+  * one directory for each resolution under the counter directory of the day.
+  */
+object CounterRollupWR {
+
+    class Rollup(val resolution: Int, val objName: String, val time: Long, val data: MapValue)
+
+    val queue = new RequestQueue[Rollup](DBCtr.MAX_QUE_SIZE)
+    ThreadScala.start("scouter.server.db.CounterRollupWR") {
+        val dbHelpers = new Array[RealtimeCounterDBHelper](CounterRollup.RESOLUTIONS.length)
+        while (DBCtr.running) {
+            val rollup = queue.get()
+            try {
+                var dBHelper = dbHelpers(rollup.resolution)
+                if (dBHelper == null) {
+                    dBHelper = writeOpen(rollup)
+                } else if (dBHelper.currentDateUnit != DateUtil.getDateUnit(rollup.time)) {
+                    dBHelper.counterData.flush()
+                    dBHelper.close()
+                    dBHelper = writeOpen(rollup)
+                }
+                dbHelpers(rollup.resolution) = dBHelper
+
+                val objHash = HashUtil.hash(rollup.objName)
+                dBHelper.activeTime = System.currentTimeMillis()
+                dBHelper.counterDbHeader.intern(rollup.data.keySet())
+
+                val dataOffset = if (dBHelper.counterData.compressed) {
+                    dBHelper.counterData.write(objHash, rollup.time, dBHelper.counterDbHeader.getTagStrInt(), rollup.data)
+                } else {
+                    val counterBytes = RealtimeCounterDBHelper.getTagBytes(dBHelper.counterDbHeader.getTagStrInt(), rollup.data)
+                    dBHelper.counterData.write(counterBytes)
+                }
+                dBHelper.counterIndex.write(objHash, rollup.time, dataOffset)
+            } catch {
+                case t: Throwable => Logger.println("S232", 10, t.toString())
+            }
+        }
+        dbHelpers.foreach(dBHelper => {
+            if (dBHelper != null) {
+                dBHelper.counterData.flush()
+                FileUtil.close(dBHelper)
+            }
+        })
+    }
+
+    def add(resolution: Int, objName: String, time: Long, data: MapValue) {
+        val ok = queue.put(new Rollup(resolution, objName, time, data))
+        if (ok == false) {
+            Logger.println("S233", 10, "queue exceeded!!")
+        }
+    }
+
+    def writeOpen(rollup: Rollup): RealtimeCounterDBHelper = {
+        val db = new RealtimeCounterDBHelper().open(DateUtil.yyyymmdd(rollup.time), false, CounterRollup.NAMES(rollup.resolution))
+        db.currentDateUnit = DateUtil.getDateUnit(rollup.time)
+        return db
+    }
+}
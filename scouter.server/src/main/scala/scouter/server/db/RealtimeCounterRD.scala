@@ -18,11 +18,18 @@ object RealtimeCounterRD {
     }
 
     def read(objName: String, date: String, stime: Long, etime: Long, handler: (Long, MapValue) => Any) {
+        read(objName, date, stime, etime, handler, null)
+    }
+
+    /**
+      * @param subDir directory of the same format under the counter directory, null for the realtime counters
+      */
+    def read(objName: String, date: String, stime: Long, etime: Long, handler: (Long, MapValue) => Any, subDir: String) {
         if (objName == null)
             return ;
         var perfdb: RealtimeCounterDBHelper = null;
         try {
-            perfdb = new RealtimeCounterDBHelper().open(date, true);
+            perfdb = new RealtimeCounterDBHelper().open(date, true, subDir);
             if (perfdb == null)
                 return ;
             perfdb.counterIndex.read(HashUtil.hash(objName), stime, etime, handler, perfdb.counterDbHeader.getTagIntStr(), perfdb.counterData.read);
@@ -34,9 +41,13 @@ object RealtimeCounterRD {
     }
 
     def readBulk(date: String, _stime: Long, etime: Long, handler: (MapValue) => Any) {
+        readBulk(date, _stime, etime, handler, null)
+    }
+
+    def readBulk(date: String, _stime: Long, etime: Long, handler: (MapValue) => Any, subDir: String) {
         var perfdb: RealtimeCounterDBHelper = null;
         try {
-            perfdb = new RealtimeCounterDBHelper().open(date, true);
+            perfdb = new RealtimeCounterDBHelper().open(date, true, subDir);
             if (perfdb == null) {
                 return
             }
@@ -41,6 +41,7 @@ object RealtimeCounterWR {
                 if (dBHelper == null) {
                     dBHelper = writeOpen(pack)
                 } else if (dBHelper.currentDateUnit != DateUtil.getDateUnit(pack.time)) {
+                    dBHelper.counterData.flush()
                     dBHelper.close()
                     dBHelper = writeOpen(pack)
                 }
@@ -48,14 +49,21 @@ object RealtimeCounterWR {
                 dBHelper.activeTime = System.currentTimeMillis()
                 dBHelper.counterDbHeader.intern(pack.data.keySet())
 
-                val counterBytes = RealtimeCounterDBHelper.getTagBytes(dBHelper.counterDbHeader.getTagStrInt(), pack.data)
-                val dataOffset = dBHelper.counterData.write(counterBytes)
+                val dataOffset = if (dBHelper.counterData.compressed) {
+                    dBHelper.counterData.write(objHash, pack.time, dBHelper.counterDbHeader.getTagStrInt(), pack.data)
+                } else {
+                    val counterBytes = RealtimeCounterDBHelper.getTagBytes(dBHelper.counterDbHeader.getTagStrInt(), pack.data)
+                    dBHelper.counterData.write(counterBytes)
+                }
                 dBHelper.counterIndex.write(objHash, pack.time, dataOffset)
 
             } catch {
                 case t: Throwable => Logger.println("S133", 10, t.toString())
             }
         }
+        if (dBHelper != null) {
+            dBHelper.counterData.flush()
+        }
         FileUtil.close(dBHelper);
     }
     def addWait(p: PerfCounterPack, max: Int) {
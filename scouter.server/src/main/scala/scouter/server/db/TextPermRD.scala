@@ -18,6 +18,9 @@
 
 package scouter.server.db;
 
+import java.io.File
+
+import scouter.io.DataInputX
 import scouter.server.core.cache.TextCache
 import scouter.util.HashUtil
 
@@ -54,4 +57,21 @@ object TextPermRD {
       case e: Exception => e.printStackTrace();
     }
   }
+
+  /**
+    * reads the texts of the division until the handler returns false.
+    * a division that has never been written is skipped without creating its files.
+    */
+  def readWhile(division: String, handler: (Int, String) => Boolean) {
+    if (new File(TextPermWR.getDBPath() + "/text_" + division + ".kfile").exists() == false)
+      return ;
+    try {
+      val (index, data) = TextPermWR.open(division);
+      if (index == null)
+        return ;
+      index.readWhile((key: Array[Byte], value: Array[Byte]) => handler(DataInputX.toInt(key, 0), new String(value, "UTF-8")), data.read);
+    } catch {
+      case e: Exception => e.printStackTrace();
+    }
+  }
 }
@@ -21,18 +21,17 @@ package scouter.server.db;
 import java.io.File
 
 import scouter.lang.TextTypes
-import scouter.server.{Configure, Logger}
+import scouter.server.Configure
 import scouter.server.core.cache.TextCache
-import scouter.server.util.ThreadScala
-import scouter.util.RequestQueue
 import scouter.util.StringUtil
 import scouter.server.db.text.TextPermIndex
 import scouter.server.db.text.TextPermData
 
+/**
+  * the permanent text db of each div. the texts are written by the TextWR shard of the div.
+  */
 object TextPermWR {
 
-  val queue = new RequestQueue[Data](DBCtr.LARGE_MAX_QUE_SIZE);
-
   //에러만 날짜별로 저장한다.-20151110
   def isA(divs: String): Boolean = {
     val conf = Configure.getInstance();
@@ -46,43 +45,12 @@ object TextPermWR {
     }
   }
 
-  ThreadScala.start("scouter.server.db.TextPermWR") {
-    while (DBCtr.running) {
-      val data = queue.get();
-      var (indexDb, dataDb) = open(data.div);
-      try {
-        if (indexDb == null) {
-          queue.clear();
-          Logger.println("S137", 10, "can't open db");
-        } else {
-          val ok = indexDb.hasKey(data.hash);
-          if (ok == false) {
-            val dataPos = dataDb.write(data.text.getBytes("UTF8"));
-            indexDb.set(data.hash, dataPos);
-          }
-        }
-      } catch {
-        case t: Throwable => t.printStackTrace();
-      }
-    }
-    close();
-  }
-
   def add(divHash: String, hash: Int, text: String) {
     if (StringUtil.isEmpty(text))
       return
 
     TextCache.put(divHash, hash, text)
-    val ok = queue.put(new Data(divHash, hash, text))
-    if (ok == false) {
-      Logger.println("S138", 10, "queue exceeded!!");
-    }
-  }
-
-  class Data(_divs: String, _hash: Int, _text: String) {
-    val div = _divs;
-    val hash = _hash;
-    val text = _text;
+    TextWR.addPerm(divHash, hash, text)
   }
 
   def open(div: String): (TextPermIndex, TextPermData) = {
@@ -18,6 +18,8 @@
 
 package scouter.server.db;
 
+import java.io.File
+
 import scouter.server.core.cache.TextCache
 import scouter.server.db.text.TextTable
 import scouter.util.HashUtil
@@ -51,4 +53,22 @@ object TextRD {
     }
     return null;
   }
+
+  /**
+    * reads the daily text table of the date without registering it to the writer.
+    * nothing is read when the table has not been written on that date.
+    */
+  def read(date: String, handler: (Array[Byte], Array[Byte]) => Any) {
+    val file = TextWR.getDBPath(date) + "/text"
+    if (new File(file + ".kfile").exists() == false)
+      return
+    val table = TextTable.open(file)
+    try {
+      table.read(handler)
+    } catch {
+      case e: Exception => e.printStackTrace()
+    } finally {
+      table.close()
+    }
+  }
 }
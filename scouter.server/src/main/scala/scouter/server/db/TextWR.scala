@@ -19,21 +19,34 @@
 package scouter.server.db
 
 import java.io.File
-import java.util.ArrayList
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.{ArrayList, LinkedHashMap}
 
-import scouter.server.Logger
+import scouter.server.{Configure, Logger}
 import scouter.server.core.cache.TextCache
 import scouter.server.core.{CoreRun, ServerStat}
 import scouter.server.db.text.TextTable
 import scouter.server.util.{EnumerScala, ThreadScala}
-import scouter.util.{DateUtil, FileUtil, LinkedMap, RequestQueue}
+import scouter.util.{DateUtil, FileUtil, HashUtil, LinkedMap, RequestQueue}
 
+/**
+  * writes texts through writer shards.
+  * the permanent texts are sharded by div, so each div file has only one writer.
+  * all daily texts of a date share one table, so they are written by the first shard which also closes the idle tables.
+  * a shard takes the queued texts as a batch and writes them group by group (table, div),
+  * and a bloom filter of each table skips the index lookup of a new text.
+  */
 object TextWR {
 
+    val BATCH_SIZE = 1000
+
     protected val database = new LinkedMap[String, TextTable]();
     protected var idleConns = new ArrayList[String]();
 
-    val queue = new RequestQueue[Data](DBCtr.LARGE_MAX_QUE_SIZE);
+    val queues = Array.fill(Math.max(1, Configure.getInstance().mgr_text_db_writer_count)) {
+        new RequestQueue[Data](DBCtr.LARGE_MAX_QUE_SIZE)
+    }
 
     // executed every 10sec
     ThreadScala.start("scouter.server.db.TextWR", {CoreRun.running}, 10000) {
@@ -48,23 +61,36 @@ object TextWR {
                 }
             }
         }
+        var size = 0
+        queues.foreach(q => size += q.size())
+        ServerStat.put("text.db.queue", size);
     }
 
-    ThreadScala.start("scouter.server.db.TextWR-2") {
-        while (DBCtr.running) {
-            closeIdle();
-            val data = queue.get(10000); //check 10 sec
-            ServerStat.put("text.db.queue", queue.size());
-
-            if (data != null) {
-                try {
-                    process(data);
-                } catch {
-                    case t: Throwable => t.printStackTrace();
+    for (shard <- 0 until queues.length) {
+        ThreadScala.start("scouter.server.db.TextWR-" + (shard + 2)) {
+            val queue = queues(shard)
+            val batch = new ArrayList[Data]()
+            while (DBCtr.running) {
+                if (shard == 0) {
+                    closeIdle();
+                }
+                val data = queue.get(10000); //check 10 sec
+                if (data != null) {
+                    batch.add(data)
+                    var more = queue.getNoWait()
+                    while (more != null) {
+                        batch.add(more)
+                        more = if (batch.size() < BATCH_SIZE) queue.getNoWait() else null
+                    }
+                    process(batch);
+                    batch.clear()
                 }
             }
+            if (shard == 0) {
+                close();
+                TextPermWR.close();
+            }
         }
-        close();
     }
 
     protected def closeIdle() {
@@ -89,23 +115,132 @@ object TextWR {
         database.put(date, table);
     }
 
-    def process(data: Data) {
-        if (TextPermWR.isA(data.div)) {
-            //성능:중복입력을 막아야한다.
-            TextDupCheck.addDuplicated(data.div, data.textUnit);
-            TextPermWR.add(data.div, data.hash, data.text);
-        } else {
-            val textTable = open(data.date);
-            if (textTable == null) {
-                queue.clear();
-                Logger.println("S139", 10, "can't open db");
-            } else {
-                val ok = textTable.hasKey(data.div, data.hash);
-                if (!ok) {
-                    TextDupCheck.addDuplicated(data.div, data.textUnit);
-                    textTable.set(data.div, data.hash, data.text.getBytes("UTF8"));
+    class DivStat {
+        val received = new AtomicLong()
+        val written = new AtomicLong()
+        val filtered = new AtomicLong()
+
+        def publish(div: String) {
+            val r = received.get()
+            ServerStat.put("text.db." + div + ".received", r)
+            ServerStat.put("text.db." + div + ".written", written.get())
+            //texts written without the index lookup because the bloom filter didn't have them
+            ServerStat.put("text.db." + div + ".filtered", filtered.get())
+            if (r > 0) {
+                ServerStat.put("text.db." + div + ".dedup_rate", (r - written.get()) * 100f / r)
+            }
+        }
+    }
+
+    val divStats = new ConcurrentHashMap[String, DivStat]()
+
+    protected def getStat(div: String): DivStat = {
+        var stat = divStats.get(div)
+        if (stat == null) {
+            stat = new DivStat()
+            val old = divStats.putIfAbsent(div, stat)
+            if (old != null) {
+                stat = old
+            }
+        }
+        return stat
+    }
+
+    /**
+      * texts of the same table and div are written together.
+      */
+    private def groupKey(data: Data): String = {
+        if (data.date == null || TextPermWR.isA(data.div)) data.div else data.date + "/" + data.div
+    }
+
+    def process(batch: ArrayList[Data]) {
+        val groups = new LinkedHashMap[String, ArrayList[Data]]()
+        EnumerScala.forward(batch, (data: Data) => {
+            val key = groupKey(data)
+            var group = groups.get(key)
+            if (group == null) {
+                group = new ArrayList[Data]()
+                groups.put(key, group)
+            }
+            group.add(data)
+        })
+        EnumerScala.foreach(groups.values().iterator(), (group: ArrayList[Data]) => {
+            val first = group.get(0)
+            val stat = getStat(first.div)
+            stat.received.addAndGet(group.size())
+            try {
+                if (first.date == null || TextPermWR.isA(first.div)) {
+                    processPerm(first.div, group, stat)
+                } else {
+                    processDaily(first.date, first.div, group, stat)
                 }
+            } catch {
+                case t: Throwable => t.printStackTrace();
             }
+            stat.publish(first.div)
+        })
+    }
+
+    private def processPerm(div: String, group: ArrayList[Data], stat: DivStat) {
+        val (indexDb, dataDb) = TextPermWR.open(div);
+        if (indexDb == null) {
+            Logger.println("S137", 10, "can't open db");
+            return
+        }
+        val filter = indexDb.getKeyFilter()
+        EnumerScala.forward(group, (data: Data) => {
+            if (data.textUnit != null) {
+                //성능:중복입력을 막아야한다.
+                TextDupCheck.addDuplicated(data.div, data.textUnit);
+            }
+            val exists = if (filter.mightContain(data.hash)) {
+                indexDb.hasKey(data.hash)
+            } else {
+                stat.filtered.incrementAndGet()
+                false
+            }
+            if (exists == false) {
+                val dataPos = dataDb.write(data.text.getBytes("UTF8"));
+                indexDb.set(data.hash, dataPos);
+                stat.written.incrementAndGet()
+            }
+        })
+    }
+
+    private def processDaily(date: String, div: String, group: ArrayList[Data], stat: DivStat) {
+        val textTable = open(date);
+        if (textTable == null) {
+            queues(0).clear();
+            Logger.println("S139", 10, "can't open db");
+            return
+        }
+        val filter = textTable.getKeyFilter()
+        EnumerScala.forward(group, (data: Data) => {
+            val exists = if (filter.mightContain(TextTable.filterKey(data.div, data.hash))) {
+                textTable.hasKey(data.div, data.hash)
+            } else {
+                stat.filtered.incrementAndGet()
+                false
+            }
+            if (exists == false) {
+                TextDupCheck.addDuplicated(data.div, data.textUnit);
+                textTable.set(data.div, data.hash, data.text.getBytes("UTF8"));
+                stat.written.incrementAndGet()
+            }
+        })
+    }
+
+    private def shardOf(date: String, div: String): Int = {
+        if (date != null && TextPermWR.isA(div) == false) {
+            return 0
+        }
+        return (HashUtil.hash(div) & Int.MaxValue) % queues.length
+    }
+
+    private def enqueue(data: Data) {
+        val ok = queues(shardOf(data.date, data.div)).put(data);
+        if (!ok) {
+            Logger.println("S140", 10, "queue exceeded!!");
         }
     }
 
@@ -117,15 +252,19 @@ object TextWR {
         if (TextDupCheck.isDuplicated(div, tu))
             return;
 
-        val ok = queue.put(new Data(date, div, hash, text, tu));
-        if (!ok) {
-            Logger.println("S140", 10, "queue exceeded!!");
-        }
+        enqueue(new Data(date, div, hash, text, tu));
+    }
+
+    /**
+      * a text stored without date(see TextPermWR.add)
+      */
+    def addPerm(div: String, hash: Int, text: String) {
+        enqueue(new Data(null, div, hash, text, null));
     }
 
     /**
       * Text Data Type (date, div, hash, text, textUnit(date&hash))
-      * @param _date
+      * @param _date null for a permanent text
       * @param _div
       * @param _hash
       * @param _text
@@ -24,8 +24,9 @@ import java.util.Vector
 import scouter.io.DataOutputX
 import scouter.server.db.xlog.XLogDataReader
 import scouter.server.db.xlog.XLogIndex
-import scouter.util.FileUtil
+import scouter.util.{FileUtil, LongSet}
 import scouter.server.db.io.IndexTimeFile
+import scouter.server.Logger
 
 object XLogRD {
 
@@ -72,6 +73,85 @@ object XLogRD {
         }
     }
 
+    /**
+      * find the xlogs having every search key through the search indexes of the day.
+      * the posting lists are intersected before any xlog is read.
+      *
+      * @param keys (XLogIndex.SEARCH_xxx, key) pairs
+      * @return (times, positions) of the xlogs in time order, read them with readByPositions.
+      *         null when the day has no search index or it can't be read, then the caller should read by time.
+      */
+    def findBySearchKeys(date: String, fromTime: Long, toTime: Long, keys: Array[(Int, Int)]): (Array[Long], Array[Long]) = {
+        val file = XLogWR.getDBPath(date) + "/" + XLogWR.prefix;
+        if (keys.length == 0 || XLogIndex.hasSearchIndex(file) == false) {
+            return null;
+        }
+        var index: XLogIndex = null;
+        var lists: Array[(java.util.ArrayList[Long], java.util.ArrayList[Long])] = null
+        try {
+            index = XLogIndex.open(file);
+            lists = keys.map(k => {
+                val times = new java.util.ArrayList[Long]()
+                val positions = new java.util.ArrayList[Long]()
+                index.readBySearchKey(k._1, k._2, fromTime, toTime, (time: Long, pos: Long) => {
+                    times.add(time)
+                    positions.add(pos)
+                })
+                (times, positions)
+            }).sortBy(_._2.size())
+        } catch {
+            case e: Exception =>
+                Logger.println("S237", 10, "search index read error " + file + " " + e)
+                return null;
+        } finally {
+            FileUtil.close(index);
+        }
+
+        val others = lists.drop(1).map(list => {
+            val set = new LongSet()
+            for (i <- 0 until list._2.size()) {
+                set.add(list._2.get(i))
+            }
+            set
+        })
+        val (times, positions) = lists(0)
+        val foundTimes = new Array[Long](positions.size())
+        val foundPositions = new Array[Long](positions.size())
+        var count = 0
+        for (i <- 0 until positions.size()) {
+            val pos = positions.get(i)
+            if (others.forall(_.contains(pos))) {
+                foundTimes(count) = times.get(i)
+                foundPositions(count) = pos
+                count += 1
+            }
+        }
+        return (java.util.Arrays.copyOf(foundTimes, count), java.util.Arrays.copyOf(foundPositions, count));
+    }
+
+    /**
+      * read the xlogs found by findBySearchKeys from the index start to the index end (exclusive).
+      * an error is thrown to the caller.
+      */
+    def readByPositions(date: String, times: Array[Long], positions: Array[Long], start: Int, end: Int, handler: (Long, Array[Byte]) => Any) {
+        if (start >= end) {
+            return ;
+        }
+        val file = XLogWR.getDBPath(date) + "/" + XLogWR.prefix;
+        var reader: XLogDataReader = null;
+        try {
+            reader = XLogDataReader.open(date, file);
+            for (i <- start until end) {
+                val data = reader.read(positions(i))
+                if (data != null) {
+                    handler(times(i), data)
+                }
+            }
+        } finally {
+            FileUtil.close(reader);
+        }
+    }
+
     def readFromEndTime(date: String, fromTime: Long, toTime: Long, handler: (Long, Array[Byte]) => Any) {
 
         val path = XLogWR.getDBPath(date);
@@ -0,0 +1,176 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.db
+
+import java.util
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicBoolean
+
+import scouter.server.{ConfObserver, Configure, Logger}
+import scouter.util.{DateUtil, ThreadUtil}
+
+import scala.util.control.ControlThrowable
+
+/**
+  * reads a time range of xlogs over any number of days.
+  * the range is split into segments of an hour which never cross a day, and the segments are scanned on a bounded pool
+  * as far ahead as the degree of parallelism. with search keys the posting lists of a day are read once
+  * by the first segment of the day, and each segment reads its own hour of them. the handler is called on the caller thread in time order.
+  * the scan stops once the max count of xlogs passed the filter.
+  */
+object XLogRangeRD {
+
+    private class Segment(val date: String, val from: Long, val to: Long) {
+        val rows = new util.ArrayList[(Long, Array[Byte])]()
+        var future: Future[_] = null
+        var day: DayPostings = null
+    }
+
+    /**
+      * the xlogs of a day found by the search keys, null when the day is read by time.
+      */
+    private class DayPostings(date: String, from: Long, to: Long, searchKeys: Array[(Int, Int)]) {
+        lazy val found: (Array[Long], Array[Long]) = XLogRD.findBySearchKeys(date, from, to, searchKeys)
+    }
+
+    private object StopRead extends ControlThrowable
+
+    val conf = Configure.getInstance()
+    val pool = ThreadUtil.createExecutor("XLogRangeRD", Math.max(1, conf.xlog_read_parallelism), 10000, true, 256)
+    ConfObserver.put("XLogRangeRD") {
+        val size = Math.max(1, conf.xlog_read_parallelism)
+        if (size > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(size)
+            pool.setCorePoolSize(size)
+        } else if (size < pool.getCorePoolSize()) {
+            pool.setCorePoolSize(size)
+            pool.setMaximumPoolSize(size)
+        }
+    }
+
+    private def segments(fromTime: Long, toTime: Long): util.ArrayList[Segment] = {
+        val list = new util.ArrayList[Segment]()
+        var from = fromTime
+        while (from <= toTime) {
+            val date = DateUtil.yyyymmdd(from)
+            val nextDay = DateUtil.yyyymmdd(date) + DateUtil.MILLIS_PER_DAY
+            val nextHour = from - from % DateUtil.MILLIS_PER_HOUR + DateUtil.MILLIS_PER_HOUR
+            val to = Math.min(Math.min(nextDay, nextHour) - 1, toTime)
+            list.add(new Segment(date, from, to))
+            from = to + 1
+        }
+        return list
+    }
+
+    /**
+      * @param searchKeys the exact conditions looked up from the search indexes, see XLogRD.findBySearchKeys
+      * @param maxCount the max count of xlogs given to the handler, 0 for no limit
+      * @param newFilter makes the filter of a segment. the filters run on the pool threads, one for each segment.
+      * @return the count of xlogs given to the handler
+      */
+    def read(fromTime: Long, toTime: Long, searchKeys: Array[(Int, Int)], maxCount: Int,
+             newFilter: () => (Long, Array[Byte]) => Boolean, handler: (Long, Array[Byte]) => Any): Int = {
+        val segs = segments(fromTime, toTime)
+        if (searchKeys.length > 0) {
+            var day: DayPostings = null
+            for (k <- 0 until segs.size()) {
+                val seg = segs.get(k)
+                if (k == 0 || seg.date != segs.get(k - 1).date) {
+                    val dayEnd = Math.min(DateUtil.yyyymmdd(seg.date) + DateUtil.MILLIS_PER_DAY - 1, toTime)
+                    day = new DayPostings(seg.date, seg.from, dayEnd, searchKeys)
+                }
+                seg.day = day
+            }
+        }
+        val ahead = Math.max(1, conf.xlog_read_parallelism)
+        val stop = new AtomicBoolean()
+        var submitted = 0
+        var count = 0
+        try {
+            var i = 0
+            while (i < segs.size() && (maxCount <= 0 || count < maxCount)) {
+                while (submitted < segs.size() && submitted < i + ahead) {
+                    val seg = segs.get(submitted)
+                    seg.future = pool.submit(new Runnable() {
+                        override def run() {
+                            scan(seg, maxCount, newFilter, stop)
+                        }
+                    })
+                    submitted += 1
+                }
+                val seg = segs.get(i)
+                seg.future.get()
+                var j = 0
+                while (j < seg.rows.size() && (maxCount <= 0 || count < maxCount)) {
+                    val row = seg.rows.get(j)
+                    handler(row._1, row._2)
+                    count += 1
+                    j += 1
+                }
+                seg.rows.clear()
+                i += 1
+            }
+        } finally {
+            //the segments already submitted skip or end their scan.
+            stop.set(true)
+        }
+        return count
+    }
+
+    private def scan(seg: Segment, maxCount: Int,
+                     newFilter: () => (Long, Array[Byte]) => Boolean, stop: AtomicBoolean) {
+        if (stop.get())
+            return
+        try {
+            val filter = newFilter()
+            //StopRead ends the scan of the time index like the other handlers returning from a read.
+            val handler = (time: Long, data: Array[Byte]) => {
+                if (stop.get() || (maxCount > 0 && seg.rows.size() >= maxCount)) {
+                    throw StopRead
+                }
+                if (filter(time, data)) {
+                    seg.rows.add((time, data))
+                }
+            }
+            val found = if (seg.day == null) null else seg.day.found
+            if (found == null) {
+                XLogRD.readByTime(seg.date, seg.from, seg.to, handler)
+            } else {
+                val (times, positions) = found
+                XLogRD.readByPositions(seg.date, times, positions, firstIndex(times, seg.from), firstIndex(times, seg.to + 1), handler)
+            }
+        } catch {
+            case StopRead =>
+            case t: Throwable => Logger.println("S235", 10, t.toString())
+        }
+    }
+
+    /**
+      * @return the index of the first time not less than the given time in the sorted times
+      */
+    private def firstIndex(times: Array[Long], time: Long): Int = {
+        var low = 0
+        var high = times.length
+        while (low < high) {
+            val mid = (low + high) >>> 1
+            if (times(mid) < time) low = mid + 1 else high = mid
+        }
+        return low
+    }
+}
@@ -20,23 +20,24 @@ package scouter.server.db;
 
 import java.io.File
 
-import scouter.server.core.ServerStat
+import scouter.lang.pack.XLogPack
+import scouter.server.core.{ServerStat, StatHistogram}
 import scouter.server.db.xlog.{XLogDataWriter, XLogIndex}
-import scouter.server.util.{OftenAction, ThreadScala}
+import scouter.server.util.{OftenAction, RequestQueueFactory, ThreadScala}
 import scouter.server.{Configure, Logger}
-import scouter.util.{DateUtil, FileUtil, RequestQueue, ThreadUtil}
+import scouter.util.{DateUtil, FileUtil, HashUtil, ThreadUtil}
 
 import scala.collection.mutable
 
 object XLogWR {
-    case class XLogData(time: Long, txid: Long, gxid: Long, elapsed: Int, data: Array[Byte])
-    case class StorageContainer(idleLimit: Long, var lastAccess: Long, index: XLogIndex, writer: XLogDataWriter)
+    case class XLogData(time: Long, txid: Long, gxid: Long, elapsed: Int, data: Array[Byte], searchKeys: Array[Int] = null)
+    case class StorageContainer(idleLimit: Long, var lastAccess: Long, index: XLogIndex, writer: XLogDataWriter, searchIndexed: Boolean)
 
     val MAX_IDLE = 30 * 60 * 1000L
     val dir = "/xlog"
     val prefix = "xlog"
 
-    val queue = new RequestQueue[XLogData](Configure.getInstance().xlog_queue_size)
+    val queue = RequestQueueFactory.create[XLogData](Configure.getInstance().xlog_queue_size)
     val dailyContainer = mutable.Map[Long, StorageContainer]()
 
     ThreadScala.start("scouter.server.db.XLogDataFileWatcher") {
@@ -49,47 +50,167 @@ object XLogWR {
         }
     }
 
+    val conf = Configure.getInstance()
+    val batchSizeStat = new StatHistogram("xlog.db.batch.size", 1, 8, 32, 128, 512, 2048)
+    val batchTimeStat = new StatHistogram("xlog.db.batch.ms", 1, 5, 10, 50, 100, 500)
+
     ThreadScala.start("scouter.server.db.XLogWR") {
         while (DBCtr.running) {
             val m = queue.get()
 
             ServerStat.put("xlog.db.queue",queue.size())
-            try {
-                val currentDateUnit = DateUtil.getDateUnit(m.time)
-                val container = dailyContainer.getOrElseUpdate(currentDateUnit, {
-                    val (index, writer) = open(m.time)
-                    StorageContainer(MAX_IDLE, System.currentTimeMillis(), index, writer)
-                })
-
-                if (container.index == null) {
-                    OftenAction.act("XLoWR", 10) {
-                        dailyContainer.remove(currentDateUnit)
-                        queue.clear()
+            if (conf.xlog_db_batch_enabled) {
+                writeBatch(m)
+            } else {
+                write(m)
+            }
+        }
+        closeAll()
+    }
+
+    private def write(m: XLogData): Unit = {
+        try {
+            val container = getContainer(m.time)
+            if (container != null) {
+                val location = container.writer.write(m.data)
+                container.index.setByTime(m.time, location)
+                container.index.setByTxid(m.txid, location)
+                container.index.setByGxid(m.gxid, location)
+                if (container.searchIndexed && m.searchKeys != null) {
+                    container.index.setBySearchKeys(m.time, location, m.searchKeys)
+                }
+            }
+        } catch {
+            case t: Throwable => t.printStackTrace()
+        }
+    }
+
+    /**
+      * drain up to xlog_db_batch_max_count records or until xlog_db_batch_max_wait_ms elapsed,
+      * then write the data of each day with one append and apply the index updates in bulk.
+      */
+    private def writeBatch(first: XLogData): Unit = {
+        val maxCount = Math.max(1, conf.xlog_db_batch_max_count)
+        val batch = new Array[XLogData](maxCount)
+        batch(0) = first
+        var count = 1
+        val waitUntil = System.currentTimeMillis() + conf.xlog_db_batch_max_wait_ms
+        var drained = false
+        while (count < maxCount && !drained) {
+            val m = queue.get(Math.max(0L, waitUntil - System.currentTimeMillis()))
+            if (m == null) {
+                drained = true
+            } else {
+                batch(count) = m
+                count += 1
+            }
+        }
+
+        val started = System.currentTimeMillis()
+        var from = 0
+        while (from < count) {
+            val dateUnit = DateUtil.getDateUnit(batch(from).time)
+            var to = from + 1
+            while (to < count && DateUtil.getDateUnit(batch(to).time) == dateUnit) {
+                to += 1
+            }
+            writeDaily(batch, from, to)
+            from = to
+        }
+        batchSizeStat.add(count)
+        batchTimeStat.add(System.currentTimeMillis() - started)
+    }
+
+    private def writeDaily(batch: Array[XLogData], from: Int, to: Int): Unit = {
+        try {
+            val container = getContainer(batch(from).time)
+            if (container != null) {
+                val records = new Array[Array[Byte]](to - from)
+                for (i <- from until to) {
+                    records(i - from) = batch(i).data
+                }
+                val locations = container.writer.write(records)
+                for (i <- from until to) {
+                    container.index.setByTime(batch(i).time, locations(i - from))
+                }
+                for (i <- from until to) {
+                    container.index.setByTxid(batch(i).txid, locations(i - from))
+                }
+                for (i <- from until to) {
+                    container.index.setByGxid(batch(i).gxid, locations(i - from))
+                }
+                for (i <- from until to if container.searchIndexed) {
+                    if (batch(i).searchKeys != null) {
+                        container.index.setBySearchKeys(batch(i).time, locations(i - from), batch(i).searchKeys)
                     }
-                    Logger.println("SZ143", 10, "can't open XLoWR")
-
-                } else {
-                    container.lastAccess = System.currentTimeMillis()
-                    val location = container.writer.write(m.data)
-                    container.index.setByTime(m.time, location)
-                    container.index.setByTxid(m.txid, location)
-                    container.index.setByGxid(m.gxid, location)
                 }
+            }
+        } catch {
+            case t: Throwable => t.printStackTrace()
+        }
+    }
 
-            } catch {
-                case t: Throwable => t.printStackTrace()
+    private def getContainer(time: Long): StorageContainer = {
+        val currentDateUnit = DateUtil.getDateUnit(time)
+        val container = dailyContainer.getOrElseUpdate(currentDateUnit, {
+            val (index, writer) = open(time)
+            StorageContainer(MAX_IDLE, System.currentTimeMillis(), index, writer, isSearchIndexed(time))
+        })
+
+        if (container.index == null) {
+            OftenAction.act("XLoWR", 10) {
+                dailyContainer.remove(currentDateUnit)
+                queue.clear()
             }
+            Logger.println("SZ143", 10, "can't open XLoWR")
+            return null
         }
-        closeAll()
+        container.lastAccess = System.currentTimeMillis()
+        container
     }
 
     def add(time: Long, tid: Long, gid: Long, elapsed: Int, data: Array[Byte]): Unit = {
-        val ok = queue.put(XLogData(time, tid, gid, elapsed, data))
+        add(XLogData(time, tid, gid, elapsed, data))
+    }
+
+    /**
+      * the search keys of the pack are indexed when the day is search indexed.
+      */
+    def add(p: XLogPack, data: Array[Byte]): Unit = {
+        add(XLogData(p.endTime, p.txid, p.gxid, p.elapsed, data, getSearchKeys(p)))
+    }
+
+    /**
+      * whether a day is search indexed is decided when the day is created,
+      * so that a search through the indexes never misses the xlogs written before xlog_search_index_enabled is changed.
+      */
+    private def isSearchIndexed(time: Long): Boolean = {
+        val file = getDBPath(DateUtil.yyyymmdd(time)) + "/" + prefix
+        XLogIndex.hasSearchIndex(file) ||
+            (conf.xlog_search_index_enabled && new File(file + XLogIndex.POSTFIX_TIME + ".kfile").exists() == false)
+    }
+
+    private def add(m: XLogData): Unit = {
+        val ok = queue.put(m)
         if (!ok) {
             Logger.println("S144", 10, "queue exceeded!!")
         }
     }
 
+    def getSearchKeys(p: XLogPack): Array[Int] = {
+        val keys = new Array[Int](XLogIndex.POSTFIX_SEARCH.length)
+        keys(XLogIndex.SEARCH_SERVICE) = p.service
+        keys(XLogIndex.SEARCH_OBJ) = p.objHash
+        keys(XLogIndex.SEARCH_ERROR) = p.error
+        keys(XLogIndex.SEARCH_LOGIN) = p.login
+        keys(XLogIndex.SEARCH_IP) = getIpKey(p.ipaddr)
+        return keys
+    }
+
+    def getIpKey(ipaddr: Array[Byte]): Int = {
+        if (ipaddr == null || ipaddr.length == 0) 0 else HashUtil.hash(ipaddr)
+    }
+
     def closeAll(): Unit = {
         dailyContainer.values.foreach (container => {
             FileUtil.close(container.index)
@@ -0,0 +1,96 @@
+/*
+*  Copyright 2015 the original author or authors. 
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); 
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. 
+ *
+ */
+
+package scouter.server.db.counter
+
+import java.io.File
+
+import scouter.io.DataInputX
+import scouter.server.Configure
+import scouter.server.db.DBCtr
+import scouter.util.{DateUtil, FileUtil}
+
+/**
+  * rewrite the realtime counters of old days into the compressed layout.
+  * usage : scouter.server.db.counter.RealtimeCounterConverter yyyymmdd [yyyymmdd ...]
+  * the original directory is kept as counter.bak. the day being written by the server is skipped.
+  */
+object RealtimeCounterConverter {
+
+    def main(args: Array[String]) {
+        for (date <- args) {
+            try {
+                println(date + " : " + convert(date))
+            } catch {
+                case e: Throwable => e.printStackTrace()
+            }
+        }
+    }
+
+    def convert(date: String): String = {
+        if (date == DateUtil.yyyymmdd()) {
+            return "skipped. the day is being written"
+        }
+        val dir = new File(DBCtr.getRootPath() + "/" + date + "/counter")
+        val src = dir.getPath() + "/real"
+        if (new File(src + ".data").exists() == false) {
+            return "no realtime counter"
+        }
+        if (RealtimeCounterData.isCompressed(src)) {
+            return "already compressed"
+        }
+        val tmpDir = new File(dir.getPath() + ".tmp")
+        if (tmpDir.exists()) {
+            return "remove " + tmpDir + " first"
+        }
+        tmpDir.mkdirs()
+        val dst = tmpDir.getPath() + "/real"
+        FileUtil.copy(new File(src + ".head"), new File(dst + ".head"))
+
+        val header = RealtimeCounterDBHeader.open(src)
+        val srcIndex = new RealtimeCounterKeyFile(src)
+        val srcData = RealtimeCounterData.open(src, false)
+        val dstIndex = RealtimeCounterIndex.open(dst, Configure.getInstance().mgr_counter_series_enabled)
+        val dstData = RealtimeCounterData.open(dst, true)
+        var count = 0
+        try {
+            val stime = DateUtil.yyyymmdd(date)
+            srcIndex.read(stime, stime + DateUtil.MILLIS_PER_DAY - 1, (time: Long, dataPos: Array[Byte]) => {
+                val in = new DataInputX(dataPos)
+                val pos = in.readLong5()
+                val objHash = in.readInt()
+                val items = RealtimeCounterDBHelper.setTagBytes(header.getTagIntStr(), srcData.read(pos))
+                if (items != null) {
+                    dstIndex.write(objHash, time, dstData.write(objHash, time, header.getTagStrInt(), items))
+                    count += 1
+                }
+            })
+        } finally {
+            FileUtil.close(dstData)
+            FileUtil.close(dstIndex)
+            FileUtil.close(srcData)
+            FileUtil.close(srcIndex)
+            FileUtil.close(header)
+        }
+        val backup = new File(dir.getPath() + ".bak")
+        if (dir.renameTo(backup) == false || tmpDir.renameTo(dir) == false) {
+            return "fail to replace " + dir
+        }
+        return count + " rows converted. the original is kept in " + backup
+    }
+}
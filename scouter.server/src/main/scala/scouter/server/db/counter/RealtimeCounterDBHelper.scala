@@ -23,11 +23,14 @@ import java.util
 import java.util.Enumeration
 import java.util.Iterator
 import java.util.Map
+import scouter.lang.value.LazyMapValue
 import scouter.lang.value.MapValue
 import scouter.lang.value.Value
 import scouter.io.DataInputX
 import scouter.io.DataOutputX
+import scouter.server.Configure
 import scouter.server.db.DBCtr
+import scouter.server.db.io.SeriesBlockFile
 import scouter.util.FileUtil
 import scouter.util.IClose
 import scouter.util.IntKeyMap
@@ -90,15 +93,18 @@ object RealtimeCounterDBHelper {
             return null;
 
         val out = new DataOutputX();
+        //a received map copies the bytes of the values without decoding them
+        val received = if (items.isInstanceOf[LazyMapValue]) items.asInstanceOf[LazyMapValue] else null
         try {
             out.writeDecimal(items.size());
 
             EnumerScala.foreach(items.keys(), (name: String) => {
-                val value = items.get(name);
                 val idx = tagMap.get(name);
                 if (idx >= 0) {
                     out.writeDecimal(idx);
-                    out.writeValue(value);
+                    if (received == null || received.writeValueBytes(name, out) == false) {
+                        out.writeValue(items.get(name));
+                    }
                 }
             })
 
@@ -117,15 +123,23 @@ class RealtimeCounterDBHelper extends IClose {
 
     var path: String = null
 
-    private def getDBPath(date: String): String = {
+    private def getDBPath(date: String, subDir: String): String = {
         val sb = new StringBuffer();
         sb.append(DBCtr.getRootPath());
         sb.append("/").append(date).append("/counter");
+        if (subDir != null) {
+            sb.append("/").append(subDir);
+        }
         return sb.toString();
     }
 
-    def open(date: String, readOnly: Boolean): RealtimeCounterDBHelper = {
-        path = getDBPath(date)
+    def open(date: String, readOnly: Boolean): RealtimeCounterDBHelper = open(date, readOnly, null)
+
+    /**
+      * @param subDir directory under the counter directory for the same format (ex. rollups)
+      */
+    def open(date: String, readOnly: Boolean, subDir: String): RealtimeCounterDBHelper = {
+        path = getDBPath(date, subDir)
         val f = new File(path);
         if (readOnly) {
             if (f.exists() == false)
@@ -137,8 +151,13 @@ class RealtimeCounterDBHelper extends IClose {
         val file = path + "/real";
 
         this.counterDbHeader = RealtimeCounterDBHeader.open(file);
-        this.counterIndex = RealtimeCounterIndex.open(file);
-        this.counterData = RealtimeCounterData.open(file);
+        //the layout of a day is decided when the day is created, so a day written without the series keeps the time index only.
+        val series = SeriesBlockFile.exists(file + RealtimeCounterIndex.SERIES_POSTFIX) ||
+            (readOnly == false && Configure.getInstance().mgr_counter_series_enabled && new File(file + ".kfile").exists() == false);
+        this.counterIndex = RealtimeCounterIndex.open(file, series);
+        val compressed = RealtimeCounterData.isCompressed(file) ||
+            (readOnly == false && Configure.getInstance().mgr_counter_compress_enabled && new File(file + ".data").exists() == false);
+        this.counterData = RealtimeCounterData.open(file, compressed);
         this.activeTime = System.currentTimeMillis();
 
         return this;
@@ -18,39 +18,90 @@
 
 package scouter.server.db.counter;
 
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Hashtable;
+import java.io.{File, RandomAccessFile}
+import java.util.{HashMap, Hashtable}
 
-import scouter.util.FileUtil;
-import scouter.util.IClose;
+import scouter.io.{DataInputX, DataOutputX}
+import scouter.lang.value.MapValue
+import scouter.util.{FileUtil, IClose, IntKeyMap, LinkedMap, StringIntMap}
 
 object RealtimeCounterData {
     val table = new Hashtable[String, RealtimeCounterData]();
 
-    def open(file: String): RealtimeCounterData = {
+    val DIR_POSTFIX = ".cdir"
+    val MINUTE_POSTFIX = ".cmin"
+    val DECODED_CACHE_SIZE = 64
+
+    def open(file: String): RealtimeCounterData = open(file, false)
+
+    /**
+      * @param compressed store the counters as CounterBlocks of each object and minute
+      */
+    def open(file: String, compressed: Boolean): RealtimeCounterData = {
         table.synchronized {
             var reader = table.get(file);
             if (reader != null) {
                 reader.refrence += 1;
             } else {
-                reader = new RealtimeCounterData(file);
+                reader = new RealtimeCounterData(file, compressed);
                 table.put(file, reader);
             }
             return reader;
         }
     }
 
+    def isCompressed(file: String): Boolean = new File(file + DIR_POSTFIX).exists()
+
 }
-class RealtimeCounterData(file: String) extends  IClose {
+
+/**
+  * .data keeps a record([int length][bytes]) for each counter row, or for each CounterBlock when compressed.
+  * In the compressed layout, the position given to the index is ((block seq + 1) * MAX_SAMPLES + sample index).
+  * .cdir maps a block seq to its record offset, and .cmin keeps the last block seq created in each minute
+  * followed by (the first block seq + 1) of each minute for readBulk.
+  * The block of the current minute stays in memory until the object's next minute starts, so up to a minute of counters
+  * is lost at a crash.
+  */
+class RealtimeCounterData(file: String, val compressed: Boolean) extends  IClose {
+
+    import RealtimeCounterData._
 
     var refrence = 0;
     private val dataFile = new RandomAccessFile(file + ".data", "rw");
 
+    private var dirFile: RandomAccessFile = null
+    private var minuteFile: RandomAccessFile = null
+    private var nextSeq = 0L
+    private var lastStaleCheck = 0
+    private val pending = new IntKeyMap[(Long, CounterBlock)]()
+    private val pendingBySeq = new HashMap[Long, CounterBlock]()
+    private val decoded = new LinkedMap[Long, CounterBlock]().setMax(DECODED_CACHE_SIZE)
+    private val firstSeqs = new Array[Long](1440)
+
+    if (compressed) {
+        dirFile = new RandomAccessFile(file + DIR_POSTFIX, "rw")
+        minuteFile = new RandomAccessFile(file + MINUTE_POSTFIX, "rw")
+        if (minuteFile.length() < 1440 * 16) {
+            minuteFile.setLength(1440 * 16)
+        }
+        val b = new Array[Byte](1440 * 8)
+        minuteFile.seek(1440 * 8)
+        minuteFile.readFully(b)
+        for (i <- 0 until 1440) {
+            firstSeqs(i) = DataInputX.toLong(b, i * 8)
+        }
+        nextSeq = dirFile.length() / 8
+    }
+
     override def close() {
         RealtimeCounterData.table.synchronized {
             if (this.refrence == 0) {
                 RealtimeCounterData.table.remove(this.file);
+                if (compressed) {
+                    flush()
+                    FileUtil.close(dirFile)
+                    FileUtil.close(minuteFile)
+                }
                 FileUtil.close(dataFile);
             } else {
                 this.refrence -= 1
@@ -59,18 +110,33 @@ class RealtimeCounterData(file: String) extends  IClose {
 
     }
 
+    private def readRecord(pos: Long): Array[Byte] = {
+        dataFile.seek(pos);
+        val length = dataFile.readInt();
+        val buffer = new Array[Byte](length);
+        dataFile.read(buffer);
+        return buffer;
+    }
+
     def read(pos: Long): Array[Byte] = {
         this.synchronized {
-            dataFile.seek(pos);
-            val length = dataFile.readInt();
-            val buffer = new Array[Byte](length);
-            dataFile.read(buffer);
-            return buffer;
+            if (compressed) {
+                val block = getBlock(pos / CounterBlock.MAX_SAMPLES - 1)
+                val idx = (pos % CounterBlock.MAX_SAMPLES).toInt
+                if (block == null || idx >= block.size()) {
+                    return null
+                }
+                return block.getRow(idx)
+            }
+            return readRecord(pos)
         }
     }
 
     def readBulk(start: Long, end: Long): Array[Byte] = {
         this.synchronized {
+            if (compressed) {
+                return readBulkBlocks(start, end)
+            }
             dataFile.seek(end)
             val length = dataFile.readInt()
             val buffer = new Array[Byte]((end-start).toInt + length + 4)
@@ -91,4 +157,131 @@ class RealtimeCounterData(file: String) extends  IClose {
             return offset;
         }
     }
-}
\ No newline at end of file
+
+    /**
+      * add a row to the block of the object and the minute.
+      * @return the position of the row
+      */
+    def write(objHash: Int, time: Long, tags: StringIntMap, items: MapValue): Long = {
+        this.synchronized {
+            val minute = CounterBlock.minuteOf(time)
+            var p = pending.get(objHash)
+            if (p != null && (p._2.isFull() || p._2.getMinute() != minute)) {
+                flush(objHash, p)
+                p = null
+            }
+            if (p == null) {
+                val seq = nextSeq
+                nextSeq += 1
+                //the slot is reserved now, so the seq is never reused even if the block is lost.
+                dirFile.seek(seq * 8)
+                dirFile.writeLong(0)
+                minuteFile.seek((minute % 1440) * 8L)
+                minuteFile.writeLong(seq)
+                if (firstSeqs(minute % 1440) == 0) {
+                    firstSeqs(minute % 1440) = seq + 1
+                    minuteFile.seek((1440 + minute % 1440) * 8L)
+                    minuteFile.writeLong(seq + 1)
+                }
+                p = (seq, new CounterBlock(objHash))
+                pending.put(objHash, p)
+                pendingBySeq.put(seq, p._2)
+            }
+            val idx = p._2.add(time, items, tags)
+            if (minute != lastStaleCheck) {
+                lastStaleCheck = minute
+                flushStale(minute)
+            }
+            return (p._1 + 1) * CounterBlock.MAX_SAMPLES + idx
+        }
+    }
+
+    private def flush(objHash: Int, p: (Long, CounterBlock)) {
+        val offset = write(p._2.encode())
+        dirFile.seek(p._1 * 8)
+        dirFile.writeLong(offset + 1)
+        pending.remove(objHash)
+        pendingBySeq.remove(p._1)
+        decoded.putLast(p._1, p._2)
+    }
+
+    /**
+      * blocks of objects which stopped sending counters are written after a minute.
+      */
+    private def flushStale(minute: Int) {
+        val keys = pending.keyArray()
+        for (objHash <- keys) {
+            val p = pending.get(objHash)
+            if (p != null && p._2.getMinute() < minute - 1) {
+                flush(objHash, p)
+            }
+        }
+    }
+
+    def flush() {
+        this.synchronized {
+            if (compressed) {
+                for (objHash <- pending.keyArray()) {
+                    flush(objHash, pending.get(objHash))
+                }
+            }
+        }
+    }
+
+    private def getBlock(seq: Long): CounterBlock = {
+        var block = pendingBySeq.get(seq)
+        if (block != null) {
+            return block
+        }
+        block = decoded.get(seq)
+        if (block != null) {
+            return block
+        }
+        if (seq < 0 || (seq + 1) * 8 > dirFile.length()) {
+            return null
+        }
+        dirFile.seek(seq * 8)
+        val offset = dirFile.readLong() - 1
+        if (offset < 0) {
+            return null
+        }
+        block = CounterBlock.decode(readRecord(offset))
+        decoded.putLast(seq, block)
+        return block
+    }
+
+    private def readBulkBlocks(start: Long, end: Long): Array[Byte] = {
+        val first = getBlock(start / CounterBlock.MAX_SAMPLES - 1)
+        val last = getBlock(end / CounterBlock.MAX_SAMPLES - 1)
+        if (first == null || last == null) {
+            return new Array[Byte](0)
+        }
+        val stime = first.getTime((start % CounterBlock.MAX_SAMPLES).toInt)
+        val etime = last.getTime((end % CounterBlock.MAX_SAMPLES).toInt)
+        minuteFile.seek((CounterBlock.minuteOf(etime) % 1440) * 8L)
+        val lastSeq = Math.max(minuteFile.readLong(), end / CounterBlock.MAX_SAMPLES - 1)
+
+        //the blocks of the other objects created earlier in the same minute also have rows after stime.
+        //a day written before the first seqs were kept starts at the block of the start row.
+        val startSeq = start / CounterBlock.MAX_SAMPLES - 1
+        val firstSeq = firstSeqs(CounterBlock.minuteOf(stime) % 1440) - 1
+
+        val out = new DataOutputX()
+        var seq = if (firstSeq >= 0) Math.min(firstSeq, startSeq) else startSeq
+        while (seq <= lastSeq) {
+            val block = getBlock(seq)
+            if (block != null) {
+                for (i <- 0 until block.size()) {
+                    val time = block.getTime(i)
+                    if (stime <= time && time <= etime) {
+                        val row = block.getRow(i)
+                        out.writeInt(row.length)
+                        out.write(row)
+                    }
+                }
+            }
+            seq += 1
+        }
+        return out.toByteArray()
+    }
+}
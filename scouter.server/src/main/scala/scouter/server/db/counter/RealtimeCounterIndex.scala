@@ -21,42 +21,75 @@ package scouter.server.db.counter;
 import java.util.Hashtable
 
 import scouter.lang.value.MapValue
+import scouter.server.db.io.SeriesBlockFile
 import scouter.util.FileUtil
 import scouter.util.IClose
 import scouter.util.IntKeyMap
 
 object RealtimeCounterIndex {
+    val SERIES_POSTFIX = "_series"
     val table = new Hashtable[String, RealtimeCounterIndex]();
 
-    def open(file: String): RealtimeCounterIndex = {
+    /**
+      * @param series keep the per-object series beside the shared time index
+      */
+    def open(file: String, series: Boolean): RealtimeCounterIndex = {
         table.synchronized {
             var index = table.get(file);
             if (index != null) {
                 index.refrence += 1;
                 return index;
             } else {
-                index = new RealtimeCounterIndex(file);
+                index = new RealtimeCounterIndex(file, series);
                 table.put(file, index);
                 return index;
             }
         }
     }
 }
-class RealtimeCounterIndex(_file: String) extends IClose {
+class RealtimeCounterIndex(_file: String, seriesEnabled: Boolean) extends IClose {
 
     var refrence = 0
     var index: RealtimeCounterKeyFile = null
+    var series: SeriesBlockFile = null
     val file = _file
 
+    private def getSeries(): SeriesBlockFile = {
+        this.synchronized {
+            if (this.series == null) {
+                this.series = new SeriesBlockFile(file + RealtimeCounterIndex.SERIES_POSTFIX);
+            }
+            return this.series;
+        }
+    }
+
     def write(objHash: Int, time: Long, pos: Long) {
         if (this.index == null) {
             this.index = new RealtimeCounterKeyFile(file);
         }
         this.index.write(objHash, time, pos);
+        if (seriesEnabled) {
+            getSeries().write(objHash, time, pos);
+        }
+    }
+
+    private def readSeries(objHash: Int, stime: Long, etime: Long, handler: (Long, MapValue) => Any, dataMap: IntKeyMap[String],
+        reader: (Long) => Array[Byte], fromEnd: Boolean) {
+        try {
+            getSeries().read(objHash, stime, etime, (time: Long, pos: Long) => {
+                handler(time, RealtimeCounterDBHelper.setTagBytes(dataMap, reader(pos)))
+            }, fromEnd);
+        } catch {
+            case t: Throwable =>
+        }
     }
 
     def read(objHash: Int, stime: Long, etime: Long, handler: (Long, MapValue) => Any, dataMap: IntKeyMap[String],
         reader: (Long)=>Array[Byte]) {
+        if (seriesEnabled) {
+            readSeries(objHash, stime, etime, handler, dataMap, reader, false);
+            return;
+        }
         if (this.index == null) {
             this.index = new RealtimeCounterKeyFile(file);
         }
@@ -65,6 +98,10 @@ class RealtimeCounterIndex(_file: String) extends IClose {
 
     def readFromEnd(objHash: Int, stime: Long, etime: Long, handler: (Long, MapValue) => Any, dataMap: IntKeyMap[String],
         reader: (Long)=>Array[Byte]) {
+        if (seriesEnabled) {
+            readSeries(objHash, stime, etime, handler, dataMap, reader, true);
+            return;
+        }
         if (this.index == null) {
             this.index = new RealtimeCounterKeyFile(file);
         }
@@ -83,7 +120,9 @@ class RealtimeCounterIndex(_file: String) extends IClose {
             if (this.refrence == 0) {
                 RealtimeCounterIndex.table.remove(this.file);
                 FileUtil.close(this.index);
+                FileUtil.close(this.series);
                 this.index = null;
+                this.series = null;
             } else {
                 this.refrence -= 1;
             }
@@ -36,7 +36,7 @@ class IndexKeyFile(_path: String, hashSize: Int = 1) extends IClose {
 
     val path = _path
     val hashBlock = new MemHashBlock(path, hashSize * MB)
-    val keyFile = new RealKeyFile(path)
+    val keyFile = RealKeyFile.open(path)
 
     def putAll(table: IndexKeyFile): Int = {
         var count = 0
@@ -185,16 +185,24 @@ class IndexKeyFile(_path: String, hashSize: Int = 1) extends IClose {
     }
 
     def read(handler: (Array[Byte], Array[Byte]) => Any, reader: (Long)=>Array[Byte]) {
+        readWhile((key: Array[Byte], data: Array[Byte]) => { handler(key, data); true }, reader)
+    }
+
+    /**
+      * reads the records until the handler returns false.
+      */
+    def readWhile(handler: (Array[Byte], Array[Byte]) => Boolean, reader: (Long)=>Array[Byte]) {
         if (this.keyFile == null)
             return ;
         var pos = this.keyFile.getFirstPos();
         val length = this.keyFile.getLength();
         var done = 0;
         try {
-            while (pos < length && pos >0) {
+            var more = true
+            while (more && pos < length && pos >0) {
                 val r = this.keyFile.getRecord(pos);
                 if (r.deleted == false) {
-                    handler(r.timeKey, reader(DataInputX.toLong5(r.dataPos, 0)))
+                    more = handler(r.timeKey, reader(DataInputX.toLong5(r.dataPos, 0)))
                 }
                 done += 1;
                 pos = r.offset;
@@ -43,7 +43,7 @@ class IndexTimeFile(_path: String) extends IClose {
 
     protected var path = _path
     protected var timeBlockHash = new MemTimeBlock(_path);
-    protected var keyFile = new RealKeyFile(_path);
+    protected var keyFile = RealKeyFile.open(_path);
 
     def put(time: Long, dataPos: Array[Byte]): Long = {
         if (time <= 0 || dataPos == null) {
@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.db.io
+
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel.MapMode
+
+object MappedRealKeyFile {
+    val SEGMENT_SIZE = 16 * 1024 * 1024
+
+    class Segments(val buffers: Array[MappedByteBuffer], val limit: Long)
+
+    val EMPTY = new Segments(new Array[MappedByteBuffer](0), 0L)
+}
+
+/**
+  * MappedRealKeyFile reads the .kfile through memory-mapped segments without taking the object monitor.
+  * The file format is the same with RealKeyFile and all writes still go through the RandomAccessFile,
+  * so the mapping only grows when a reader asks for a position beyond the mapped limit.
+  */
+class MappedRealKeyFile(_path: String) extends RealKeyFile(_path) {
+
+    import MappedRealKeyFile._
+
+    private val mapLock = new Object()
+    @volatile private var segments = EMPTY
+
+    /**
+      * find the mapped segment containing [pos, pos + len).
+      * returns null when the range crosses a segment boundary or is not yet on the disk.
+      */
+    private def segment(pos: Long, len: Int): MappedByteBuffer = {
+        val idx = (pos / SEGMENT_SIZE).toInt
+        if ((pos % SEGMENT_SIZE) + len > SEGMENT_SIZE) {
+            return null
+        }
+        var segs = segments
+        if (pos + len > segs.limit) {
+            segs = remap(pos + len)
+            if (pos + len > segs.limit) {
+                return null
+            }
+        }
+        return segs.buffers(idx)
+    }
+
+    private def remap(required: Long): Segments = {
+        mapLock.synchronized {
+            val segs = segments
+            if (required <= segs.limit || this.raf == null) {
+                return segs
+            }
+            val length = this.raf.length()
+            if (length < required) {
+                return segs
+            }
+            val count = ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE).toInt
+            val buffers = java.util.Arrays.copyOf(segs.buffers, count)
+            val channel = this.raf.getChannel()
+            //the last segment of the old mapping may be partial, so it is mapped again.
+            var i = if (segs.buffers.length == 0) 0 else segs.buffers.length - 1
+            while (i < count) {
+                val start = i.toLong * SEGMENT_SIZE
+                val size = Math.min(SEGMENT_SIZE, length - start)
+                buffers(i) = channel.map(MapMode.READ_ONLY, start, size)
+                i += 1
+            }
+            segments = new Segments(buffers, length)
+            return segments
+        }
+    }
+
+    private def offset(pos: Long): Int = (pos % SEGMENT_SIZE).toInt
+
+    private def toLong5(buf: MappedByteBuffer, off: Int): Long = {
+        return (buf.get(off).toLong << 32) +
+                ((buf.get(off + 1) & 255).toLong << 24) +
+                ((buf.get(off + 2) & 255) << 16) +
+                ((buf.get(off + 3) & 255) << 8) +
+                (buf.get(off + 4) & 255)
+    }
+
+    private def toUnsignedShort(buf: MappedByteBuffer, off: Int): Int = {
+        return ((buf.get(off) & 255) << 8) + (buf.get(off + 1) & 255)
+    }
+
+    private def copy(buf: MappedByteBuffer, off: Int, len: Int): Array[Byte] = {
+        val out = new Array[Byte](len)
+        var i = 0
+        while (i < len) {
+            out(i) = buf.get(off + i)
+            i += 1
+        }
+        return out
+    }
+
+    /**
+      * (header length, body length) of the blob starting at pos, or null when it can't be read from the mapping.
+      */
+    private def blobSize(pos: Long): Array[Int] = {
+        val head = segment(pos, 1)
+        if (head == null) {
+            return null
+        }
+        val off = offset(pos)
+        (head.get(off) & 255) match {
+            case 255 =>
+                val buf = segment(pos, 3)
+                if (buf == null) null else Array(3, toUnsignedShort(buf, off + 1))
+            case 254 =>
+                val buf = segment(pos, 5)
+                if (buf == null) null else Array(5, buf.getInt(off + 1))
+            case len =>
+                Array(1, len)
+        }
+    }
+
+    private def readBlob(pos: Long): Array[Byte] = {
+        val size = blobSize(pos)
+        if (size == null) {
+            return null
+        }
+        if (size(1) == 0) {
+            return new Array[Byte](0)
+        }
+        val buf = segment(pos, size(0) + size(1))
+        if (buf == null) {
+            return null
+        }
+        return copy(buf, offset(pos) + size(0), size(1))
+    }
+
+    override def isDeleted(pos: Long): Boolean = {
+        val buf = segment(pos, 1)
+        if (buf == null) {
+            return super.isDeleted(pos)
+        }
+        return buf.get(offset(pos)) != 0
+    }
+
+    override def getPrevPos(pos: Long): Long = {
+        val buf = segment(pos + 1, 5)
+        if (buf == null) {
+            return super.getPrevPos(pos)
+        }
+        return toLong5(buf, offset(pos + 1))
+    }
+
+    override def getTimeKey(pos: Long): Array[Byte] = {
+        val keyPos = pos + 1 + 5
+        var buf = segment(keyPos, 2)
+        if (buf != null) {
+            val keyLen = toUnsignedShort(buf, offset(keyPos))
+            buf = segment(keyPos, 2 + keyLen)
+            if (buf != null) {
+                return copy(buf, offset(keyPos) + 2, keyLen)
+            }
+        }
+        return super.getTimeKey(pos)
+    }
+
+    override def getDataPos(pos: Long): Array[Byte] = {
+        val keyPos = pos + 1 + 5
+        val buf = segment(keyPos, 2)
+        if (buf != null) {
+            val keyLen = buf.getShort(offset(keyPos))
+            val dataPos = readBlob(keyPos + 2 + keyLen)
+            if (dataPos != null) {
+                return dataPos
+            }
+        }
+        return super.getDataPos(pos)
+    }
+
+    override def getRecord(pos: Long): ITEM = {
+        val keyPos = pos + 1 + 5
+        var buf = segment(pos, 1 + 5 + 2)
+        if (buf != null) {
+            val keyLen = toUnsignedShort(buf, offset(keyPos))
+            buf = segment(pos, 1 + 5 + 2 + keyLen)
+            if (buf != null) {
+                val blobPos = keyPos + 2 + keyLen
+                val size = blobSize(blobPos)
+                if (size != null) {
+                    val dataPos = readBlob(blobPos)
+                    if (dataPos != null) {
+                        val r = new ITEM()
+                        r.deleted = buf.get(offset(pos)) != 0
+                        r.prevPos = toLong5(buf, offset(pos + 1))
+                        r.timeKey = copy(buf, offset(keyPos) + 2, keyLen)
+                        r.dataPos = dataPos
+                        r.offset = blobPos + size(0) + size(1)
+                        return r
+                    }
+                }
+            }
+        }
+        return super.getRecord(pos)
+    }
+
+    override def close() {
+        mapLock.synchronized {
+            segments = EMPTY
+        }
+        super.close()
+    }
+}
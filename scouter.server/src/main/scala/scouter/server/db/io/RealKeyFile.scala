@@ -21,6 +21,7 @@ package scouter.server.db.io;
 import java.io.{File, RandomAccessFile}
 
 import scouter.io.{DataInputX, DataOutputX}
+import scouter.server.Configure
 import scouter.util.IClose;
 
 class ITEM {
@@ -31,6 +32,15 @@ class ITEM {
     var offset = 0L
 }
 
+object RealKeyFile {
+    def open(path: String): RealKeyFile = {
+        if (Configure.getInstance().mgr_index_mmap_read_enabled) {
+            return new MappedRealKeyFile(path)
+        }
+        return new RealKeyFile(path)
+    }
+}
+
 class RealKeyFile(_path: String) extends IClose {
     val path = _path;
     val file = new File(path + ".kfile");
@@ -0,0 +1,245 @@
+/*
+*  Copyright 2015 the original author or authors. 
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); 
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. 
+ *
+ */
+
+package scouter.server.db.io
+
+import java.io.{File, RandomAccessFile}
+
+import scouter.io.{DataInputX, DataOutputX, FlushCtr, IFlushable}
+import scouter.util.{FileUtil, IClose, IntKeyLinkedMap}
+
+object SeriesBlockFile {
+    val MAGIC_SIZE = 4
+    val FIRST_ENTRIES = 4
+    val ENTRIES = 64
+    val HEADER_SIZE = 4 + 8 + 2 + 2 + 8 + 8
+    val ENTRY_SIZE = 8 + 5
+    val DIR_SIZE = 64 * 1024
+    val MAX_TAILS = 10000
+    //the blocks are chained in arrival order, a block ended this much before the range ends the walk.
+    val STOP_MARGIN = 60 * 60 * 1000L
+
+    def exists(path: String): Boolean = new File(path + ".block").exists()
+
+    def blockSize(capacity: Int): Int = HEADER_SIZE + capacity * ENTRY_SIZE
+}
+
+/**
+  * time series of data positions for each int key(ex. counters of an object, xlogs of a service).
+  * the entries of a key are appended to its own block, and the blocks are chained backward.
+  * the first block of a key holds FIRST_ENTRIES entries and the next ones double up to ENTRIES,
+  * so a key seen a few times doesn't take a full block.
+  * the directory(.hfile) keeps the last block of each key and every block header keeps its key and time range,
+  * so reading a key touches only the blocks of that key and stops at the first block ended long before the range.
+  * a new directory is an open addressing table, so no two keys share a chain. a legacy directory(written before)
+  * may chain the blocks of colliding keys together, and the blocks of the other keys are skipped.
+  * the entries are buffered in memory and written by the flush thread, a read flushes them first.
+  * a read walks the blocks through its own read only file, so it doesn't hold the lock of the writer.
+  * block = key(4) prevBlock(8) capacity(2) count(2) minTime(8) maxTime(8) + capacity * (time(8) dataPos(5))
+  * (capacity 0 is a block of ENTRIES written before the capacity was kept)
+  */
+class SeriesBlockFile(path: String) extends IClose with IFlushable {
+
+    import SeriesBlockFile._
+
+    /**
+      * the last block of a key and its entries not written yet.
+      */
+    private class Tail(val key: Int, val pos: Long, val capacity: Int, var count: Int, var minTime: Long, var maxTime: Long) {
+        var flushed = count
+        var pending: DataOutputX = null
+    }
+
+    //these files are new to the servers having the open addressing layout, so it's always used.
+    private val directory = new MemHashBlock(path, DIR_SIZE, true)
+    private val raf = new RandomAccessFile(path + ".block", "rw")
+    if (raf.length() < MAGIC_SIZE) {
+        raf.seek(0)
+        raf.write(Array[Byte](0xCA.toByte, 0xFE.toByte, 'S'.toByte, 'R'.toByte))
+    }
+
+    private val tails = new IntKeyLinkedMap[Tail]() {
+        override protected def overflowed(key: Int, t: Tail) {
+            flushTail(t)
+        }
+    }.setMax(MAX_TAILS)
+    private val dirtyTails = new java.util.ArrayList[Tail]()
+
+    FlushCtr.getInstance().regist(this)
+
+    private def capacityOf(head: Array[Byte]): Int = {
+        val capacity = DataInputX.toShort(head, 12)
+        if (capacity == 0) ENTRIES else capacity
+    }
+
+    /**
+      * the last block of the key, null when there is none or the last block of the key hash belongs to another key.
+      */
+    private def lastBlock(key: Int): Tail = {
+        var t = tails.get(key)
+        if (t == null) {
+            val pos = directory.get(key)
+            if (pos > 0 && pos + HEADER_SIZE <= raf.length()) {
+                val head = new Array[Byte](HEADER_SIZE)
+                raf.seek(pos)
+                raf.readFully(head)
+                if (DataInputX.toInt(head, 0) == key) {
+                    t = new Tail(key, pos, capacityOf(head), DataInputX.toShort(head, 14),
+                        DataInputX.toLong(head, 16), DataInputX.toLong(head, 24))
+                    tails.putLast(key, t)
+                }
+            }
+        }
+        return t
+    }
+
+    def write(key: Int, time: Long, dataPos: Long) {
+        this.synchronized {
+            var t = lastBlock(key)
+            if (t == null || t.count >= t.capacity) {
+                val capacity = if (t == null) FIRST_ENTRIES else Math.min(ENTRIES, t.capacity * 2)
+                if (t != null) {
+                    flushTail(t)
+                }
+                //chained to the last block of the key hash, so the blocks of colliding keys are not lost.
+                val prev = directory.get(key)
+                val pos = raf.length()
+                val block = new Array[Byte](blockSize(capacity))
+                System.arraycopy(DataOutputX.toBytes(key), 0, block, 0, 4)
+                System.arraycopy(DataOutputX.toBytes(prev), 0, block, 4, 8)
+                System.arraycopy(DataOutputX.toBytes(capacity.toShort), 0, block, 12, 2)
+                raf.seek(pos)
+                raf.write(block)
+                directory.put(key, pos)
+                t = new Tail(key, pos, capacity, 0, time, time)
+                tails.putLast(key, t)
+            }
+            if (t.pending == null) {
+                t.pending = new DataOutputX((t.capacity - t.count) * ENTRY_SIZE)
+                dirtyTails.add(t)
+            }
+            t.pending.writeLong(time).writeLong5(dataPos)
+            t.count += 1
+            t.minTime = Math.min(t.minTime, time)
+            t.maxTime = Math.max(t.maxTime, time)
+        }
+    }
+
+    private def flushTail(t: Tail) {
+        if (t.pending == null)
+            return
+        raf.seek(t.pos + HEADER_SIZE + t.flushed * ENTRY_SIZE)
+        raf.write(t.pending.toByteArray())
+        val head = new DataOutputX(18).writeShort(t.count).writeLong(t.minTime).writeLong(t.maxTime).toByteArray()
+        raf.seek(t.pos + 14)
+        raf.write(head)
+        t.flushed = t.count
+        t.pending = null
+    }
+
+    override def isDirty(): Boolean = dirtyTails.size() > 0
+
+    override def interval(): Long = 2000
+
+    override def flush() {
+        this.synchronized {
+            try {
+                for (i <- 0 until dirtyTails.size()) {
+                    flushTail(dirtyTails.get(i))
+                }
+            } catch {
+                case e: Exception => e.printStackTrace()
+            }
+            dirtyTails.clear()
+        }
+    }
+
+    /**
+      * (time, dataPos) of the key within [stime, etime], the blocks of the other keys of the same hash are skipped.
+      * the blocks of a key are chained from the newest in arrival order, and a block may hold entries older than
+      * the blocks before it(ex. a late packet, the clock of an agent), so the walk ends only at a block of the key
+      * ended STOP_MARGIN before stime.
+      * the blocks written before the walk don't move, a block written while walking is out of the snapshot length.
+      */
+    private def readEntries(key: Int, stime: Long, etime: Long): java.util.List[(Long, Long)] = {
+        val out = new java.util.ArrayList[(Long, Long)]()
+        var length = 0L
+        var pos = 0L
+        this.synchronized {
+            flush()
+            length = raf.length()
+            pos = directory.get(key)
+        }
+        if (pos <= 0)
+            return out
+        val in = new RandomAccessFile(path + ".block", "r")
+        try {
+            val head = new Array[Byte](HEADER_SIZE)
+            while (pos > 0 && pos + HEADER_SIZE <= length) {
+                in.seek(pos)
+                in.readFully(head)
+                val sameKey = DataInputX.toInt(head, 0) == key
+                if (sameKey && DataInputX.toLong(head, 24) < stime - STOP_MARGIN) {
+                    pos = 0
+                } else {
+                    if (sameKey && DataInputX.toLong(head, 16) <= etime && DataInputX.toLong(head, 24) >= stime) {
+                        val count = Math.min(DataInputX.toShort(head, 14), capacityOf(head))
+                        val entries = new Array[Byte](count * ENTRY_SIZE)
+                        in.readFully(entries)
+                        for (n <- 0 until count) {
+                            val off = n * ENTRY_SIZE
+                            val time = DataInputX.toLong(entries, off)
+                            if (stime <= time && time <= etime) {
+                                out.add((time, DataInputX.toLong5(entries, off + 8)))
+                            }
+                        }
+                    }
+                    pos = DataInputX.toLong(head, 4)
+                }
+            }
+        } finally {
+            FileUtil.close(in)
+        }
+        return out
+    }
+
+    /**
+      * call the handler with (time, dataPos) in time order, or in reverse time order with fromEnd.
+      */
+    def read(key: Int, stime: Long, etime: Long, handler: (Long, Long) => Any, fromEnd: Boolean) {
+        val entries = readEntries(key, stime, etime)
+        val sorted = entries.toArray(new Array[(Long, Long)](entries.size())).sortBy(_._1)
+        if (fromEnd) {
+            var i = sorted.length - 1
+            while (i >= 0) {
+                handler(sorted(i)._1, sorted(i)._2)
+                i -= 1
+            }
+        } else {
+            sorted.foreach(e => handler(e._1, e._2))
+        }
+    }
+
+    override def close() {
+        FlushCtr.getInstance().unregist(this)
+        this.synchronized {
+            directory.close()
+            FileUtil.close(raf)
+        }
+    }
+}
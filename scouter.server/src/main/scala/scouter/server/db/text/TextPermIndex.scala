@@ -23,6 +23,7 @@ import scouter.io.DataInputX
 import scouter.io.DataOutputX
 import scouter.lang.TextTypes
 import scouter.server.Configure
+import scouter.util.BloomFilter
 import scouter.util.FileUtil
 import scouter.util.IClose
 import scouter.util.StringKeyLinkedMap
@@ -71,12 +72,35 @@ class TextPermIndex(div: String, file: String) extends IClose {
 
   var refrence = 0;
   var index: IndexKeyFile = null
+  private var keyFilter: BloomFilter = null
 
   def set(key: Int, dataPos: Long) {
     if (this.index == null) {
       this.index = newIndexKeyFileByType()
     }
     this.index.put(DataOutputX.toBytes(key), DataOutputX.toBytes5(dataPos))
+    if (this.keyFilter != null) {
+      this.keyFilter.put(key)
+      if (TextTable.isOverfilled(this.keyFilter)) {
+        this.keyFilter = null
+      }
+    }
+  }
+
+  /**
+    * bloom filter of the keys, which is loaded from the index at the first call.
+    * it's for the writer thread. set() keeps it up to date and drops it to be loaded again when it is overfilled.
+    */
+  def getKeyFilter(): BloomFilter = {
+    if (this.keyFilter == null) {
+      if (this.index == null) {
+        this.index = newIndexKeyFileByType()
+      }
+      val filter = TextTable.newKeyFilter(this.index, TextTable.PERM_RECORD_SIZE)
+      this.index.read((k: Array[Byte], v: Array[Byte]) => filter.put(DataInputX.toInt(k, 0)))
+      this.keyFilter = filter
+    }
+    return this.keyFilter
   }
 
   def get(key: Int): Long = {
@@ -98,6 +122,12 @@ class TextPermIndex(div: String, file: String) extends IClose {
     }
     this.index.read(handler, reader)
   }
+  def readWhile(handler: (Array[Byte], Array[Byte]) => Boolean, reader: (Long) => Array[Byte]) {
+    if (this.index == null) {
+      this.index = newIndexKeyFileByType()
+    }
+    this.index.readWhile(handler, reader)
+  }
 
   def newIndexKeyFileByType(): IndexKeyFile = {
     div match {
@@ -117,6 +147,7 @@ class TextPermIndex(div: String, file: String) extends IClose {
         TextPermIndex.table.remove(this.div);
         FileUtil.close(this.index);
         this.index = null;
+        this.keyFilter = null;
       } else {
         this.refrence -= 1;
       }
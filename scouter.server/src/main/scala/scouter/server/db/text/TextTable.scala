@@ -20,10 +20,10 @@ package scouter.server.db.text;
 
 import java.util.Hashtable
 
-import scouter.io.DataOutputX
+import scouter.io.{DataInputX, DataOutputX}
 import scouter.server.Configure
 import scouter.server.db.io.IndexKeyFile
-import scouter.util.{FileUtil, HashUtil, ICloseDB}
+import scouter.util.{BloomFilter, FileUtil, HashUtil, ICloseDB}
 
 object TextTable {
     val conf = Configure.getInstance()
@@ -43,6 +43,37 @@ object TextTable {
             }
         }
     }
+
+    def filterKey(div: String, key: Int): Long = {
+        return (HashUtil.hash(div).toLong << 32) | (key & 0xffffffffL)
+    }
+
+    /**
+      * a key record of the daily table is deleted(1) + prev(5) + key(2+8) + text(1+length),
+      * so the record count is at most the key file length / 17.
+      */
+    val DAILY_RECORD_SIZE = 17
+    /**
+      * a key record of the permanent index is deleted(1) + prev(5) + key(2+4) + data pos(1+5).
+      */
+    val PERM_RECORD_SIZE = 18
+    val MIN_FILTER_KEYS = 10000
+
+    /**
+      * the filter is sized for the records in the key file, at most _mgr_text_db_filter_max_keys.
+      */
+    def newKeyFilter(index: IndexKeyFile, recordSize: Int): BloomFilter = {
+        val records = index.keyFile.getLength() / recordSize
+        val expected = Math.max(MIN_FILTER_KEYS, Math.min(records, conf._mgr_text_db_filter_max_keys.toLong)).toInt
+        return new BloomFilter(expected, 0.01)
+    }
+
+    /**
+      * whether the keys put since the filter was loaded overfill it, so it is better loaded again at the current size.
+      */
+    def isOverfilled(filter: BloomFilter): Boolean = {
+        return filter.getCount() > filter.getExpected() * 2L && filter.getExpected() < conf._mgr_text_db_filter_max_keys
+    }
 }
 
 class TextTable(_file: String) extends ICloseDB {
@@ -50,6 +81,8 @@ class TextTable(_file: String) extends ICloseDB {
     var refrence = 0
     var index: IndexKeyFile = null
 
+    private var keyFilter: BloomFilter = null
+
     var lastActive = 0L
     def getLastActive(): Long = {
         return lastActive
@@ -63,6 +96,28 @@ class TextTable(_file: String) extends ICloseDB {
             this.index = newIndexKeyFile()
         }
         this.index.put(new DataOutputX().writeInt(HashUtil.hash(div)).writeInt(key).toByteArray(), value)
+        if (this.keyFilter != null) {
+            this.keyFilter.put(TextTable.filterKey(div, key))
+            if (TextTable.isOverfilled(this.keyFilter)) {
+                this.keyFilter = null
+            }
+        }
+    }
+
+    /**
+      * bloom filter of the keys in this table, which is loaded from the index at the first call.
+      * it's for the writer thread. set() keeps it up to date and drops it to be loaded again when it is overfilled.
+      */
+    def getKeyFilter(): BloomFilter = {
+        if (this.keyFilter == null) {
+            if (this.index == null) {
+                this.index = newIndexKeyFile()
+            }
+            val filter = TextTable.newKeyFilter(this.index, TextTable.DAILY_RECORD_SIZE)
+            this.index.read((k: Array[Byte], v: Array[Byte]) => filter.put(DataInputX.toLong(k, 0)))
+            this.keyFilter = filter
+        }
+        return this.keyFilter
     }
 
     def get(div: String, key: Int): Array[Byte] = {
@@ -96,6 +151,7 @@ class TextTable(_file: String) extends ICloseDB {
                 TextTable.table.remove(this.file);
                 FileUtil.close(this.index);
                 this.index = null;
+                this.keyFilter = null;
             } else {
                 this.refrence -= 1;
             }
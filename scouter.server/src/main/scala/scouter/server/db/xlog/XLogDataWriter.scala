@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Hashtable;
 import java.util.Properties;
 
+import scouter.io.DataOutputX;
 import scouter.server.Configure;
 import scouter.server.db.io.RealDataFile;
 import scouter.server.db.io.zip.GZipStore;
@@ -82,6 +83,34 @@ class XLogDataWriter(date: String, file: String) extends IClose {
         }
     }
 
+    /**
+      * write all records with one append and one flush.
+      * returns the location of each record in the same order.
+      */
+    def write(records: Array[Array[Byte]]): Array[Long] = {
+        val locations = new Array[Long](records.length);
+        if (gzip) {
+            for (i <- 0 until records.length) {
+                locations(i) = GZipStore.getInstance().write(date, records(i));
+            }
+            return locations;
+        }
+        this.synchronized {
+            var point = out.getOffset();
+            val buffer = new DataOutputX();
+            for (i <- 0 until records.length) {
+                val bytes = records(i);
+                locations(i) = point;
+                buffer.writeShort(bytes.length.toShort);
+                buffer.write(bytes);
+                point += 2 + bytes.length;
+            }
+            out.write(buffer.toByteArray());
+            out.flush();
+            return locations;
+        }
+    }
+
     override def close() {
         XLogDataWriter.table.synchronized {
             if (this.reference == 0) {
@@ -28,6 +28,7 @@ import java.util.Map
 import java.util.Set
 import scouter.server.db.io.IndexKeyFile
 import scouter.server.db.io.IndexTimeFile
+import scouter.server.db.io.SeriesBlockFile
 import scouter.io.DataInputX
 import scouter.io.DataOutputX
 import scouter.util.FileUtil
@@ -39,6 +40,20 @@ object XLogIndex {
     val POSTFIX_GID = "_gid";
     val POSTFIX_TID = "_tid";
 
+    /**
+      * search indexes : positions of the xlogs for each service, objHash, error, login and ip hash.
+      */
+    val SEARCH_SERVICE = 0
+    val SEARCH_OBJ = 1
+    val SEARCH_ERROR = 2
+    val SEARCH_LOGIN = 3
+    val SEARCH_IP = 4
+    val POSTFIX_SEARCH = Array("_svc", "_obj", "_err", "_login", "_ip")
+
+    def hasSearchIndex(file: String): Boolean = {
+        return SeriesBlockFile.exists(file + POSTFIX_SEARCH(SEARCH_SERVICE))
+    }
+
     val table = new Hashtable[String, XLogIndex]();
 
     def open(file: String): XLogIndex = {
@@ -63,6 +78,44 @@ class XLogIndex(_file: String) extends IClose {
     var txidIndex: IndexKeyFile = null
     var gxidIndex: IndexKeyFile = null
     var timeIndex: IndexTimeFile = null
+    val searchIndex = new Array[SeriesBlockFile](XLogIndex.POSTFIX_SEARCH.length)
+
+    private def getSearchIndex(field: Int): SeriesBlockFile = {
+        this.synchronized {
+            if (this.searchIndex(field) == null) {
+                this.searchIndex(field) = new SeriesBlockFile(file + XLogIndex.POSTFIX_SEARCH(field))
+            }
+            return this.searchIndex(field)
+        }
+    }
+
+    /**
+      * @param keys search keys by the field, 0 is not indexed.
+      */
+    def setBySearchKeys(time: Long, pos: Long, keys: Array[Int]) {
+        for (field <- 0 until keys.length) {
+            //the service index is always written because it marks the day as indexed.
+            if (keys(field) != 0 || field == XLogIndex.SEARCH_SERVICE) {
+                getSearchIndex(field).write(keys(field), time, pos)
+            }
+        }
+    }
+
+    /**
+      * a field without its index file has no match. the file is not created by a read.
+      */
+    def readBySearchKey(field: Int, key: Int, stime: Long, etime: Long, handler: (Long, Long) => Any) {
+        val index = this.synchronized {
+            if (this.searchIndex(field) == null && SeriesBlockFile.exists(file + XLogIndex.POSTFIX_SEARCH(field)) == false) {
+                null
+            } else {
+                getSearchIndex(field)
+            }
+        }
+        if (index != null) {
+            index.read(key, stime, etime, handler, false)
+        }
+    }
 
     def setByTxid(txid: Long, pos: Long) {
         if (this.txidIndex == null) {
@@ -143,6 +196,7 @@ class XLogIndex(_file: String) extends IClose {
                 FileUtil.close(this.txidIndex);
                 FileUtil.close(this.gxidIndex);
                 FileUtil.close(this.timeIndex);
+                this.searchIndex.foreach(s => FileUtil.close(s));
             } else {
                 this.refrence -= 1;
             }
@@ -33,20 +33,35 @@ object MultiPacketProcessor {
 
     val MAX_COUNT = 1000;
 
-    val buffer = new LongKeyLinkedMap[MultiPacket]().setMax(MAX_COUNT);
+    private val processors = new java.util.concurrent.CopyOnWriteArrayList[MultiPacketProcessor]()
+
+    /**
+      * the buffer shared by all workers when NetDataProcessor is not sharded.
+      */
+    val shared = new MultiPacketProcessor()
 
     ThreadScala.startDaemon("scouter.server.netio.data.MultiPacketProcessor") {
         while (true) {
             ThreadUtil.sleep(1000);
-            if (buffer.size() > 0) {
-                try {
-                    checkExpired();
-                } catch {
-                    case e: Exception => { e.printStackTrace() }
+            val it = processors.iterator()
+            while (it.hasNext()) {
+                val processor = it.next()
+                if (processor.buffer.size() > 0) {
+                    try {
+                        processor.checkExpired();
+                    } catch {
+                        case e: Exception => { e.printStackTrace() }
+                    }
                 }
             }
         }
     }
+}
+
+class MultiPacketProcessor {
+
+    val buffer = new LongKeyLinkedMap[MultiPacket]().setMax(MultiPacketProcessor.MAX_COUNT);
+    MultiPacketProcessor.processors.add(this)
 
     def add(pkid: Long, total: Int, num: Int, data: Array[Byte], objHash: Int, addr: InetAddress): Array[Byte] = {
         var p: MultiPacket = null
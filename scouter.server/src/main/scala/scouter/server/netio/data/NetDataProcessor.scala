@@ -28,7 +28,7 @@ import scouter.server.Configure
 import scouter.server.Logger
 import scouter.server.core._
 import scouter.server.core.cache.TextCache
-import scouter.server.util.ThreadScala
+import scouter.server.util.{RequestQueueFactory, ThreadScala}
 import scouter.util.{BytesUtil, HashUtil, RequestQueue, StringUtil}
 import scouter.lang.value.DecimalValue
 object NetDataProcessor {
@@ -37,27 +37,83 @@ object NetDataProcessor {
         val data = _data
     }
     var working = true
-    val num = Configure.getInstance()._net_udp_worker_thread_count
-    for (x <- 0 to num - 1) {
-        ThreadScala.startDaemon("scouter.server.netio.data.NetDataProcessor") {
-            while (working) {
-                try {
-                    val data = queue.get()
-                    process(data)
-                } catch {
-                    case t: Throwable => t.printStackTrace()
+    val conf = Configure.getInstance()
+    val num = conf._net_udp_worker_thread_count
+    val queue = RequestQueueFactory.create[NetData](2048, true)
+
+    /**
+      * in sharding mode, each worker owns its queue and multipacket buffer.
+      * every packet, multipacket fragments included, is routed by the agent address,
+      * so the packets of an agent (a xlog, its profile and texts) are processed in order by one worker.
+      */
+    class Shard(id: Int) {
+        val queue = RequestQueueFactory.create[NetData](2048)
+        val multiPacket = new MultiPacketProcessor()
+        val statKey = "net.worker." + id + ".queue"
+    }
+
+    val shards: Array[Shard] = if (conf.net_udp_worker_sharding_enabled) Array.tabulate(Math.max(1, num))(new Shard(_)) else null
+
+    if (shards == null) {
+        for (x <- 0 to num - 1) {
+            ThreadScala.startDaemon("scouter.server.netio.data.NetDataProcessor") {
+                while (working) {
+                    try {
+                        val data = queue.get()
+                        process(data, MultiPacketProcessor.shared)
+                    } catch {
+                        case t: Throwable => t.printStackTrace()
+                    }
+                }
+            }
+        }
+    } else {
+        for (shard <- shards) {
+            ThreadScala.startDaemon("scouter.server.netio.data.NetDataProcessor") {
+                while (working) {
+                    try {
+                        val data = shard.queue.get()
+                        ServerStat.put(shard.statKey, shard.queue.size())
+                        process(data, shard.multiPacket)
+                    } catch {
+                        case t: Throwable => t.printStackTrace()
+                    }
                 }
             }
         }
     }
-    val queue = new RequestQueue[NetData](2048)
-    val conf = Configure.getInstance()
 
-    def add(data: Array[Byte], addr: InetAddress) {
-        val ok = queue.putNotifySingle(new NetData(data, addr))
+    private def queueOf(p: NetData): RequestQueue[NetData] = {
+        if (shards == null) {
+            return queue
+        }
+        val key = if (p.addr == null) 0 else p.addr.hashCode()
+        shards((key & Int.MaxValue) % shards.length).queue
+    }
+
+    def add(data: Array[Byte], addr: InetAddress): Boolean = {
+        val p = new NetData(data, addr)
+        val ok = queueOf(p).putNotifySingle(p)
         if (ok == false) {
             Logger.println("S158", 10, "overflow recv queue!!")
         }
+        ok
+    }
+
+    /**
+      * hand off datagrams received at once. returns the count dropped by overflow.
+      */
+    def add(batch: Array[NetData], count: Int): Int = {
+        var dropped = 0
+        for (i <- 0 until count) {
+            if (queueOf(batch(i)).putNotifySingle(batch(i)) == false) {
+                dropped += 1
+            }
+        }
+        if (dropped > 0) {
+            Logger.println("S158", 10, "overflow recv queue!!")
+        }
+        dropped
     }
 
     @throws[IOException]
@@ -68,17 +124,17 @@ object NetDataProcessor {
         add(out.toByteArray, addr)
     }
 
-    def process(p: NetData) {
+    def process(p: NetData, multiPacket: MultiPacketProcessor) {
         try {
             val in = new DataInputX(p.data)
             val cafe = in.readInt()
             cafe match {
-                case NetCafe.UDP_CAFE => processCafe(in, p.addr)
-                case NetCafe.UDP_CAFE_N => processCafeN(in, p.addr)
-                case NetCafe.UDP_CAFE_MTU => processCafeMTU(in, p.addr)
-                case NetCafe.UDP_JAVA => processCafe(in, p.addr)
-                case NetCafe.UDP_JAVA_N => processCafeN(in, p.addr)
-                case NetCafe.UDP_JAVA_MTU => processCafeMTU(in, p.addr)
+                case NetCafe.UDP_CAFE => processCafe(in, p.data, p.addr)
+                case NetCafe.UDP_CAFE_N => processCafeN(in, p.data, p.addr)
+                case NetCafe.UDP_CAFE_MTU => processCafeMTU(in, p.addr, multiPacket)
+                case NetCafe.UDP_JAVA => processCafe(in, p.data, p.addr)
+                case NetCafe.UDP_JAVA_N => processCafeN(in, p.data, p.addr)
+                case NetCafe.UDP_JAVA_MTU => processCafeMTU(in, p.addr, multiPacket)
                 case _ =>
                     System.out.println("Receive unknown data, length=" + BytesUtil.getLength(p.data) + " from " + p.addr)
             }
@@ -88,15 +144,15 @@ object NetDataProcessor {
                 e.printStackTrace()
         }
     }
-    private def processCafeMTU(in: DataInputX, addr: InetAddress) {
+    private def processCafeMTU(in: DataInputX, addr: InetAddress, multiPacket: MultiPacketProcessor) {
         val objHash = in.readInt()
         val pkid = in.readLong()
         val total = in.readShort()
         val num = in.readShort()
         val data = in.readBlob()
-        val done = MultiPacketProcessor.add(pkid, total, num, data, objHash, addr)
+        val done = multiPacket.add(pkid, total, num, data, objHash, addr)
         if (done != null) {
-            val p = new DataInputX(done).readPack()
+            val p = readPack(new DataInputX(done), done)
             process(p, addr)
             if (conf.log_udp_multipacket) {
                 val objName = TextCache.get(TextTypes.OBJECT, objHash)
@@ -109,17 +165,29 @@ object NetDataProcessor {
             }
         }
     }
-    private def processCafe(in: DataInputX, addr: InetAddress) {
-        val p = in.readPack()
+    private def processCafe(in: DataInputX, data: Array[Byte], addr: InetAddress) {
+        val p = readPack(in, data)
         process(p, addr)
     }
-    private def processCafeN(in: DataInputX, addr: InetAddress) {
+    private def processCafeN(in: DataInputX, data: Array[Byte], addr: InetAddress) {
         val n = in.readShort()
         for (i <- 1 to n) {
-            val p = in.readPack()
+            val p = readPack(in, data)
             process(p, addr)
         }
     }
+
+    /**
+      * keep the received bytes of a XLogPack so that XLogCore can store them without encoding again.
+      */
+    private def readPack(in: DataInputX, data: Array[Byte]): Pack = {
+        val start = in.getOffset()
+        val p = in.readPack()
+        if (p.isInstanceOf[XLogPack]) {
+            p.asInstanceOf[XLogPack].wireBytes = java.util.Arrays.copyOfRange(data, start, in.getOffset())
+        }
+        p
+    }
     //    private val reserved = new HashSet[String]()
     //
     //    reserved.add("objType")
@@ -18,67 +18,130 @@
 
 package scouter.server.netio.data.net;
 
-import java.net.DatagramPacket
-import java.net.DatagramSocket
-import java.net.InetAddress
+import java.net.{InetAddress, InetSocketAddress, SocketOption, StandardSocketOptions}
+import java.nio.ByteBuffer
+import java.nio.channels.{DatagramChannel, SelectionKey, Selector}
+
 import scouter.server.Configure
 import scouter.server.Logger
+import scouter.server.core.ServerStat
 import scouter.server.netio.data.NetDataProcessor
+import scouter.server.netio.data.NetDataProcessor.NetData
 import scouter.util.ThreadUtil
 import scouter.server.util.ThreadScala
-import scouter.util.FileUtil
 
 object DataUdpServer {
 
     val conf = Configure.getInstance();
-    var udpsocket: DatagramSocket = null;
-    ThreadScala.startDaemon("scouter.server.netio.data.net.DataUdpServer") {
-        while (true) {
-            open(conf.net_udp_listen_ip, conf.net_udp_listen_port);
-            recv();
-            FileUtil.close(udpsocket)
-        }
+    val BATCH_SIZE = 64
+
+    /**
+      * SO_REUSEPORT is only defined since java 9, so it is looked up by reflection.
+      */
+    val reusePort: SocketOption[java.lang.Boolean] = try {
+        classOf[StandardSocketOptions].getField("SO_REUSEPORT").get(null).asInstanceOf[SocketOption[java.lang.Boolean]]
+    } catch {
+        case t: Throwable => null
     }
 
-    def recv() {
-        try {
-            val BUFFER_SIZE = conf.net_udp_packet_buffer_size;
-            val rbuf = new Array[Byte](BUFFER_SIZE)
-            val p = new DatagramPacket(rbuf, BUFFER_SIZE);
+    val receiverCount = if (conf.net_udp_receiver_count > 1 && reusePort == null) {
+        Logger.println("S230", "SO_REUSEPORT is not supported. net_udp_receiver_count is ignored.")
+        1
+    } else {
+        Math.max(1, conf.net_udp_receiver_count)
+    }
 
-            // loop until any exception
+    for (x <- 0 until receiverCount) {
+        ThreadScala.startDaemon("scouter.server.netio.data.net.DataUdpServer-" + x) {
+            val receiver = new UdpReceiver(x)
             while (true) {
-                udpsocket.receive(p);
-                val data = new Array[Byte](p.getLength());
-                System.arraycopy(p.getData(), 0, data, 0, p.getLength());
-                NetDataProcessor.add(data, p.getAddress());
+                receiver.open(conf.net_udp_listen_ip, conf.net_udp_listen_port);
+                receiver.recv();
+                receiver.close();
             }
-        } catch {
-            case t: Throwable =>
-                Logger.println("S151", 10, t);
         }
     }
 
-    def open(host: String, port: Int) {
-        Logger.println("udp listen " + host + ":" + port);
-        Logger.println("\tudp_host=" + host);
-        Logger.println("\tudp_port=" + port);
-        Logger.println("\tudp_buffer=" + conf.net_udp_packet_buffer_size);
-        Logger.println("\tudp_so_rcvbuf=" + conf.net_udp_so_rcvbuf_size);
+    class UdpReceiver(id: Int) {
+        var channel: DatagramChannel = null
+        var selector: Selector = null
+        val buffer = ByteBuffer.allocateDirect(conf.net_udp_packet_buffer_size)
+        val batch = new Array[NetData](BATCH_SIZE)
+        var received = 0L
+        var dropped = 0L
 
-        while (true) {
+        def recv() {
             try {
-                udpsocket = new DatagramSocket(port, InetAddress.getByName(host));
-                val buf = conf.net_udp_so_rcvbuf_size;
-                if (buf > 0) {
-                    udpsocket.setReceiveBufferSize(buf);
+                // loop until any exception
+                while (true) {
+                    selector.select();
+                    selector.selectedKeys().clear();
+
+                    var count = 0
+                    var addr = channel.receive(buffer)
+                    while (addr != null) {
+                        buffer.asInstanceOf[java.nio.Buffer].flip();
+                        val data = new Array[Byte](buffer.remaining());
+                        buffer.get(data);
+                        buffer.asInstanceOf[java.nio.Buffer].clear();
+                        batch(count) = new NetData(data, addr.asInstanceOf[InetSocketAddress].getAddress());
+                        count += 1
+                        addr = if (count < BATCH_SIZE) channel.receive(buffer) else null
+                    }
+                    if (count > 0) {
+                        dropped += NetDataProcessor.add(batch, count);
+                        received += count
+                        java.util.Arrays.fill(batch.asInstanceOf[Array[AnyRef]], 0, count, null)
+                        ServerStat.put("udp.recv." + id + ".count", received);
+                        ServerStat.put("udp.recv." + id + ".drop", dropped);
+                    }
+                }
+            } catch {
+                case t: Throwable =>
+                    Logger.println("S151", 10, t);
+            }
+        }
+
+        def open(host: String, port: Int) {
+            Logger.println("udp listen " + host + ":" + port + " receiver=" + id);
+            Logger.println("\tudp_host=" + host);
+            Logger.println("\tudp_port=" + port);
+            Logger.println("\tudp_buffer=" + conf.net_udp_packet_buffer_size);
+            Logger.println("\tudp_so_rcvbuf=" + conf.net_udp_so_rcvbuf_size);
+
+            while (true) {
+                try {
+                    channel = DatagramChannel.open();
+                    val buf = conf.net_udp_so_rcvbuf_size;
+                    if (buf > 0) {
+                        channel.setOption[java.lang.Integer](StandardSocketOptions.SO_RCVBUF, buf);
+                    }
+                    if (receiverCount > 1) {
+                        channel.setOption[java.lang.Boolean](reusePort, true);
+                    }
+                    channel.bind(new InetSocketAddress(InetAddress.getByName(host), port));
+                    channel.configureBlocking(false);
+                    selector = Selector.open();
+                    channel.register(selector, SelectionKey.OP_READ);
+                    return ;
+                } catch {
+                    case e: Exception =>
+                        Logger.println("S157", 1, "udp data server port=" + port, e);
+                        close();
                 }
-                return ;
+                ThreadUtil.sleep(3000);
+            }
+        }
+
+        def close() {
+            try {
+                if (selector != null) selector.close();
+                if (channel != null) channel.close();
             } catch {
                 case e: Exception =>
-                    Logger.println("S157", 1, "udp data server port=" + port, e);
             }
-            ThreadUtil.sleep(3000);
+            selector = null;
+            channel = null;
         }
     }
 }
@@ -22,14 +22,14 @@ import scouter.io.{DataInputX, DataOutputX}
 import scouter.lang.{CounterKey, TimeTypeEnum}
 import scouter.lang.counters.CounterConstants
 import scouter.lang.pack.MapPack
-import scouter.lang.value.{DoubleValue, MapValue, Value}
+import scouter.lang.value.{DoubleSummary, DoubleValue, MapValue, Value}
 import scouter.net.{RequestCmd, TcpFlag}
-import scouter.server.core.AgentManager
+import scouter.server.core.{AgentManager, CounterRollup}
 import scouter.server.core.AgentManager.objMap
 import scouter.server.core.cache.CounterCache
 import scouter.server.db.{ObjectRD, RealtimeCounterRD}
 import scouter.server.netio.service.anotation.ServiceHandler
-import scouter.server.util.TimedSeries
+import scouter.server.util.{EnumerScala, TimedSeries}
 import scouter.util.{CastUtil, DateUtil, IntKeyMap, StringUtil}
 
 import scala.collection.JavaConversions._
@@ -219,6 +219,10 @@ class CounterService {
         dout.writeValue(new DoubleValue(vvv));
     }
 
+    /**
+      * a counter's values of an object in the day of stime.
+      * with points, a rollup giving at least that many points is read, see getPastTimeAll.
+      */
     @ServiceHandler(RequestCmd.COUNTER_PAST_TIME)
     def getPastTime(din: DataInputX, dout: DataOutputX, login: Boolean) {
         val param = din.readPack().asInstanceOf[MapPack];
@@ -236,6 +240,37 @@ class CounterService {
         val date = DateUtil.yyyymmdd(stime);
         val objName = getObjName(date, objHash);
 
+        val resolution = CounterRollup.resolutionFor(stime, etime, param.getInt("points"))
+        if (resolution >= 0) {
+            val series = new RollupSeries(CounterRollup.RESOLUTIONS(resolution))
+            val rollupHandler = (time: Long, data: MapValue) => {
+                series.addRollup(time, data.get(counter))
+            }
+            RealtimeCounterRD.read(objName, date, stime, etime, rollupHandler, CounterRollup.NAMES(resolution))
+            CounterRollup.readCurrent(resolution, stime, etime, (data: MapValue) => {
+                if (data.getInt(CounterConstants.COMMON_OBJHASH) == objHash) {
+                    rollupHandler(data.getLong(CounterConstants.COMMON_TIME), data)
+                }
+            })
+            if (series.isEmpty() == false) {
+                //the part of the range out of the rollup(ex. before the rollup was enabled) is read from the raw counters
+                val rawHandler = (time: Long, data: MapValue) => {
+                    series.addRaw(time, data.get(counter))
+                }
+                if (series.coveredFrom() > stime) {
+                    RealtimeCounterRD.read(objName, date, stime, series.coveredFrom() - 1, rawHandler)
+                }
+                if (series.coveredTo() <= etime) {
+                    RealtimeCounterRD.read(objName, date, series.coveredTo(), etime, rawHandler)
+                }
+                series.writeTo(mpack)
+                dout.writeByte(TcpFlag.HasNEXT);
+                dout.writePack(mpack);
+                return
+            }
+            //no rollup for the range, the raw counters only
+        }
+
         val handler = (time: Long, data: MapValue) => {
             val value = data.get(counter);
             if (value != null) {
@@ -250,11 +285,133 @@ class CounterService {
         dout.writePack(mpack);
     }
 
+    /**
+      * the rows of a rollup for one object in time order, with the raw counters of the range the rollup doesn't cover.
+      * a rollup row gives the average of the period with min and max, and a raw row gives its value for all three.
+      */
+    private class RollupSeries(resolution: Long) {
+        private val rows = new java.util.TreeMap[Long, (Value, Value, Value)]()
+        private var rollupFrom = Long.MaxValue
+        private var rollupTo = Long.MinValue
+
+        def addRollup(time: Long, value: Value) {
+            value match {
+                case sum: DoubleSummary if sum.count > 0 =>
+                    rows.put(time, (new DoubleValue(sum.sum / sum.count), new DoubleValue(sum.min), new DoubleValue(sum.max)))
+                    rollupFrom = Math.min(rollupFrom, time)
+                    rollupTo = Math.max(rollupTo, time + resolution)
+                case _ =>
+            }
+        }
+
+        /**
+          * a raw row inside the periods of the rollup is ignored.
+          */
+        def addRaw(time: Long, value: Value) {
+            if (value != null && (time < rollupFrom || time >= rollupTo)) {
+                rows.put(time, (value, value, value))
+            }
+        }
+
+        def isEmpty(): Boolean = rollupFrom == Long.MaxValue
+
+        /**
+          * the start of the first rollup period, Long.MaxValue when there is no rollup row.
+          */
+        def coveredFrom(): Long = rollupFrom
+
+        /**
+          * the end(exclusive) of the last rollup period, Long.MinValue when there is no rollup row.
+          */
+        def coveredTo(): Long = rollupTo
+
+        def writeTo(pack: MapPack) {
+            val timeLv = pack.getList("time")
+            val valueLv = pack.getList("value")
+            val minLv = pack.newList("min")
+            val maxLv = pack.newList("max")
+            val itr = rows.entrySet().iterator()
+            while (itr.hasNext()) {
+                val e = itr.next()
+                timeLv.add(e.getKey())
+                valueLv.add(e.getValue()._1)
+                minLv.add(e.getValue()._2)
+                maxLv.add(e.getValue()._3)
+            }
+        }
+    }
+
+    /**
+      * reads the counter of the objects in mapPackMap from the rollup chosen by the requested points.
+      * the value is the average of the period and min[], max[] are added to each pack.
+      * the range an object's rollup doesn't cover is filled from the raw counters.
+      *
+      * @return false when no rollup fits the request or the rollup has no data for the range
+      */
+    private def readRollupBulk(date: String, stime: Long, etime: Long, points: Int, counter: String,
+                               mapPackMap: IntKeyMap[MapPack]): Boolean = {
+        val resolution = CounterRollup.resolutionFor(stime, etime, points)
+        if (resolution < 0)
+            return false
+
+        val seriesMap = new IntKeyMap[RollupSeries]()
+        EnumerScala.foreach(mapPackMap.keys(), (objHash: Int) => {
+            seriesMap.put(objHash, new RollupSeries(CounterRollup.RESOLUTIONS(resolution)))
+        })
+        val handler = (mapValue: MapValue) => {
+            if (mapValue != null) {
+                val series = seriesMap.get(mapValue.getInt(CounterConstants.COMMON_OBJHASH))
+                if (series != null) {
+                    series.addRollup(mapValue.getLong(CounterConstants.COMMON_TIME), mapValue.get(counter))
+                }
+            }
+        }
+        RealtimeCounterRD.readBulk(date, stime, etime, handler, CounterRollup.NAMES(resolution))
+        CounterRollup.readCurrent(resolution, stime, etime, handler)
+
+        var found = false
+        var headEnd = stime
+        var tailStart = etime + 1
+        EnumerScala.foreach(seriesMap.values(), (series: RollupSeries) => {
+            if (series.isEmpty()) {
+                headEnd = etime + 1
+            } else {
+                found = true
+                headEnd = Math.max(headEnd, series.coveredFrom())
+                tailStart = Math.min(tailStart, series.coveredTo())
+            }
+        })
+        if (found == false)
+            return false
+
+        //the part of the range out of the rollup(ex. before the rollup was enabled) is read from the raw counters
+        val rawHandler = (mapValue: MapValue) => {
+            if (mapValue != null) {
+                val series = seriesMap.get(mapValue.getInt(CounterConstants.COMMON_OBJHASH))
+                if (series != null) {
+                    series.addRaw(mapValue.getLong(CounterConstants.COMMON_TIME), mapValue.get(counter))
+                }
+            }
+        }
+        if (headEnd > stime) {
+            RealtimeCounterRD.readBulk(date, stime, headEnd - 1, rawHandler)
+        }
+        if (Math.max(tailStart, headEnd) <= etime) {
+            RealtimeCounterRD.readBulk(date, Math.max(tailStart, headEnd), etime, rawHandler)
+        }
+        EnumerScala.foreach(mapPackMap.keys(), (objHash: Int) => {
+            seriesMap.get(objHash).writeTo(mapPackMap.get(objHash))
+        })
+        return true
+    }
+
     /**
       * get a counter's values for specific object type or hashes
+      * the range is read from the day of stime, so the rollups serve a range within a day.
+      * the ranges over days(COUNTER_PAST_LONGDATE_*) read the daily counters without the rollups.
       *
-      * @param din MapPack{stime, etime, counter, (objType or objHashLv)}
-      * @param dout MapPack{objHash[], time[], value[]}
+      * @param din MapPack{stime, etime, counter, (objType or objHashLv), points(optional, use the rollups)}
+      * @param dout MapPack{objHash[], time[], value[], (min[], max[] of the rollups)}
       * @param login
       */
     @ServiceHandler(RequestCmd.COUNTER_PAST_TIME_ALL)
@@ -302,7 +459,9 @@ class CounterService {
         }
 
 //        val start = System.currentTimeMillis()
-        RealtimeCounterRD.readBulk(date, stime, etime, handler)
+        if (readRollupBulk(date, stime, etime, param.getInt("points"), counter, mapPackMap) == false) {
+            RealtimeCounterRD.readBulk(date, stime, etime, handler)
+        }
 //        val end = System.currentTimeMillis()
 //        println("[elapsed]" + (end-start))
 
@@ -452,7 +611,9 @@ class CounterService {
             }
         }
 
-        RealtimeCounterRD.readBulk(date, stime, etime, handler)
+        if (readRollupBulk(date, stime, etime, param.getInt("points"), counter, mapPackMap) == false) {
+            RealtimeCounterRD.readBulk(date, stime, etime, handler)
+        }
 
         for (i <- 0 to objHashLv.size() - 1) {
             dout.writeByte(TcpFlag.HasNEXT);
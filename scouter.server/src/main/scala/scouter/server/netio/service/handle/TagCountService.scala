@@ -22,6 +22,7 @@ import scouter.lang.constants.TagConstants
 import scouter.lang.pack.AlertPack
 import scouter.lang.pack.MapPack
 import scouter.lang.pack.XLogPack
+import scouter.lang.pack.XLogPackView
 import scouter.lang.value.MapValue
 import scouter.lang.value.TextValue
 import scouter.net.TcpFlag
@@ -155,13 +156,14 @@ class TagCountService {
             var txid = param.getLong("txid");
             var ok = if (txid == 0) true else false;
             var cnt = 0;
+            val x = new XLogPackView()
             val handler = (time: Long, data: Array[Byte]) => {
-                val x = new DataInputX(data).readPack().asInstanceOf[XLogPack];
-                if (objHashSet.contains(x.objHash)) {
+                x.wrap(data)
+                if (objHashSet.contains(x.getObjHash())) {
                     if (ok == false) {
-                        ok = x.txid == txid;
+                        ok = x.getTxid() == txid;
                     } else {
-                        if (filterMv == null || serviceFilterOk(filterMv.asInstanceOf[MapValue], x)) {
+                        if (filterMv == null || serviceFilterOk(filterMv.asInstanceOf[MapValue], x.toPack())) {
                             dout.writeByte(TcpFlag.HasNEXT);
                             dout.write(data);
                             dout.flush();
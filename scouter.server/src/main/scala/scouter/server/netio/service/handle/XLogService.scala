@@ -27,8 +27,9 @@ import scouter.lang.value._
 import scouter.net.{RequestCmd, TcpFlag}
 import scouter.server.Configure
 import scouter.server.core.app.SpanStepBuilder
-import scouter.server.core.cache.XLogCache
-import scouter.server.db.{TextRD, XLogProfileRD, XLogRD, ZipkinSpanRD}
+import scouter.server.core.cache.{XLogCache, XLogFilter}
+import scouter.server.db.xlog.XLogIndex
+import scouter.server.db.{TextRD, XLogProfileRD, XLogRD, XLogRangeRD, XLogWR, ZipkinSpanRD}
 import scouter.server.netio.service.anotation.ServiceHandler
 import scouter.server.util.EnumerScala
 import scouter.util._
@@ -164,7 +165,7 @@ class XLogService {
 
     /**
       * get latest XLog data
-      * @param din MapPack{index, loop, objHash[]}
+      * @param din MapPack{index, loop, limit, objHash[], service[]?, onlyError?, minCpu?, minSqlCount?, minApicallCount?}
       * @param dout {MapPack{loop, index}, XLogPack[]}
       * @param login
       */
@@ -175,19 +176,17 @@ class XLogService {
         val loop = param.getLong("loop");
         var limit = param.getInt("limit");
         limit = Math.max(Configure.getInstance().xlog_realtime_lower_bound_ms, limit);
-        val objHashLv = param.getList("objHash");
-
-        val intSet = if(objHashLv == null || objHashLv.size() < 1)
-                     null
-                     else new IntSet(objHashLv.size(), 1.0f)
 
-        EnumerScala.foreach(objHashLv, (obj: DecimalValue) => {
-            intSet.add(obj.intValue());
-        })
+        val filter = new XLogFilter()
+        filter.objHashSet = toIntSet(param.getList("objHash"))
+        filter.serviceSet = toIntSet(param.getList("service"))
+        filter.minElapsed = limit
+        filter.onlyError = param.getBoolean("onlyError")
+        filter.minCpu = param.getInt("minCpu")
+        filter.minSqlCount = param.getInt("minSqlCount")
+        filter.minApicallCount = param.getInt("minApicallCount")
 
-        val d = if(intSet != null)
-                XLogCache.get(intSet, loop, index, limit)
-                else XLogCache.get(loop, index, limit)
+        val d = XLogCache.get(filter, loop, index)
 
         if (d == null) return ;
 
@@ -205,6 +204,17 @@ class XLogService {
 
     }
 
+    private def toIntSet(lv: ListValue): IntSet = {
+        if (lv == null || lv.size() < 1) {
+            return null
+        }
+        val set = new IntSet(lv.size(), 1.0f)
+        EnumerScala.foreach(lv, (obj: DecimalValue) => {
+            set.add(obj.intValue());
+        })
+        set
+    }
+
     /**
       * get latest XLog data
       * @param din MapPack{index, loop, count, objHash[]}
@@ -277,9 +287,10 @@ class XLogService {
         })
 
         var cnt = 0;
+        val x = new XLogPackView()
         val handler = (time: Long, data: Array[Byte]) => {
-            val x = new DataInputX(data).readPack().asInstanceOf[XLogPack];
-            if (objHashSet.contains(x.objHash) && x.elapsed > limit) {
+            x.wrap(data)
+            if (objHashSet.contains(x.getObjHash()) && x.getElapsed() > limit) {
                 dout.writeByte(TcpFlag.HasNEXT);
                 dout.write(data);
                 dout.flush();
@@ -341,7 +352,8 @@ class XLogService {
         })
 
         var lastTime = 0L
-        var lastData: XLogPack = null
+        var lastTxid = 0L
+        val xLog = new XLogPackView()
         var count: Int = 0;
 
         var start = true
@@ -352,19 +364,19 @@ class XLogService {
         var hasMore = false
 
         val handler = (time: Long, data: Array[Byte]) =>  {
-            val xLog = new DataInputX(data).readPack().asInstanceOf[XLogPack]
+            xLog.wrap(data)
             if(!start) {
-                if(xLog.txid == txid) {
+                if(xLog.getTxid() == txid) {
                     start = true
                 }
             } else {
-                if (objHashSet.contains(xLog.objHash)) {
+                if (objHashSet.contains(xLog.getObjHash())) {
                     if(count < limitCount) {
                         dout.writeByte(TcpFlag.HasNEXT)
                         dout.write(data)
                         dout.flush()
                         lastTime = time
-                        lastData = xLog
+                        lastTxid = xLog.getTxid()
                     } else {
                         hasMore = true
                     }
@@ -376,7 +388,7 @@ class XLogService {
         XLogRD.readByTimeLimitCount(date, stime, etime, lastBucketTime, limitCount, handler)
 
         if(lastTime > 0L) {
-            writeHistoryPerfGroupV2MetaPack(dout, hasMore, lastTime, lastData.txid)
+            writeHistoryPerfGroupV2MetaPack(dout, hasMore, lastTime, lastTxid)
         } else {
             writeHistoryPerfGroupV2MetaPack(dout, false, 0, 0)
         }
@@ -572,6 +584,7 @@ class XLogService {
         val objHash = param.getInt("objHash");
         val ip = param.getText("ip");
         val login = param.getText("login");
+        val error = param.getText("error");
         val desc = param.getText("desc");
         val text1 = param.getText("text1");
         val text2 = param.getText("text2");
@@ -582,6 +595,7 @@ class XLogService {
         val serviceMatch = if (service == null) null else new StrMatch(service);
         val ipMatch = if (ip == null) null else new StrMatch(ip);
         val loginMatch = if (login == null) null else new StrMatch(login);
+        val errorMatch = if (error == null) null else new StrMatch(error);
         val descMatch = if (desc == null) null else new StrMatch(desc);
         val text1Match = if (text1 == null) null else new StrMatch(text1);
         val text2Match = if (text2 == null) null else new StrMatch(text2);
@@ -589,102 +603,91 @@ class XLogService {
         val text4Match = if (text4 == null) null else new StrMatch(text4);
         val text5Match = if (text5 == null) null else new StrMatch(text5);
 
-        val date = DateUtil.yyyymmdd(stime);
-        val date2 = DateUtil.yyyymmdd(etime);
-        var mtime = 0L;
-        var twoDays = false;
-        var loadCount = 0;
-        if (date.equals(date2) == false) {
-            mtime = DateUtil.yyyymmdd(date2);
-            twoDays = true;
-        }
-
-        val handler = (time: Long, data: Array[Byte]) => {
-            if (loadCount >= Configure.getInstance().req_search_xlog_max_count) {
-                return ;
+        //the conditions are checked by their cost and the record is decoded only up to the fields they need.
+        //the fields in the record come first, the text lookups last.
+        def accept(x: XLogPackView, time: Long, data: Array[Byte]): Boolean = {
+            x.wrap(data)
+            if (objHash != 0 && x.getObjHash() != objHash) {
+                return false
             }
-            val x = new DataInputX(data).readPack().asInstanceOf[XLogPack];
-            var ok = true
             if (ipMatch != null) {
-                if (x.ipaddr == null) {
-                    ok = false;
-                }
-                if (ipMatch.include(IPUtil.toString(x.ipaddr)) == false) {
-                    ok = false;
+                val ipaddr = x.getIpaddr()
+                if (ipaddr == null || ipMatch.include(IPUtil.toString(ipaddr)) == false) {
+                    return false
                 }
             }
-            if (objHash != 0 && x.objHash != objHash) {
-                ok = false;
+            if (text1Match != null && text1Match.include(x.getText1()) == false) {
+                return false
             }
-            if (serviceMatch != null) {
-                var serviceName = TextRD.getString(DateUtil.yyyymmdd(time), TextTypes.SERVICE, x.service);
-                if (serviceMatch.include(serviceName) == false) {
-                    ok = false;
-                }
+            if (text2Match != null && text2Match.include(x.getText2()) == false) {
+                return false
             }
-            if (loginMatch != null) {
-                var loginName = TextRD.getString(DateUtil.yyyymmdd(time), TextTypes.LOGIN, x.login);
-                if (loginMatch.include(loginName) == false) {
-                    ok = false;
-                }
+            if (text3Match != null && text3Match.include(x.getText3()) == false) {
+                return false
             }
-            if (descMatch != null) {
-                var descName = TextRD.getString(DateUtil.yyyymmdd(time), TextTypes.DESC, x.desc);
-                if (descMatch.include(descName) == false) {
-                    ok = false;
-                }
+            if (text4Match != null && text4Match.include(x.getText4()) == false) {
+                return false
             }
-
-            if (text1Match != null) {
-                var text1Name = x.text1;
-                if (text1Match.include(text1Name) == false) {
-                    ok = false;
-                }
+            if (text5Match != null && text5Match.include(x.getText5()) == false) {
+                return false
             }
-
-            if (text2Match != null) {
-                var text2Name = x.text2;
-                if (text2Match.include(text2Name) == false) {
-                    ok = false;
-                }
+            if (serviceMatch == null && loginMatch == null && errorMatch == null && descMatch == null) {
+                return true
             }
-
-            if (text3Match != null) {
-                var text3Name = x.text3;
-                if (text3Match.include(text3Name) == false) {
-                    ok = false;
-                }
+            val yyyymmdd = DateUtil.yyyymmdd(time)
+            if (serviceMatch != null && serviceMatch.include(TextRD.getString(yyyymmdd, TextTypes.SERVICE, x.getService())) == false) {
+                return false
             }
-
-            if (text4Match != null) {
-                var text4Name = x.text4;
-                if (text4Match.include(text4Name) == false) {
-                    ok = false;
-                }
+            if (errorMatch != null && errorMatch.include(TextRD.getString(yyyymmdd, TextTypes.ERROR, x.getError())) == false) {
+                return false
             }
-
-            if (text5Match != null) {
-                var text5Name = x.text5;
-                if (text5Match.include(text5Name) == false) {
-                    ok = false;
-                }
+            if (loginMatch != null && loginMatch.include(TextRD.getString(yyyymmdd, TextTypes.LOGIN, x.getLogin())) == false) {
+                return false
             }
-
-            if (ok) {
-                //TODO adjust caller in the case of Sapn
-                dout.writeByte(TcpFlag.HasNEXT);
-                dout.write(data);
-                dout.flush();
-                loadCount += 1;
+            if (descMatch != null && descMatch.include(TextRD.getString(yyyymmdd, TextTypes.DESC, x.getDesc())) == false) {
+                return false
             }
+            true
         }
 
-        if (twoDays) {
-            XLogRD.readByTime(date, stime, mtime - 1, handler);
-            XLogRD.readByTime(date2, mtime, etime, handler);
-        } else {
-            XLogRD.readByTime(date, stime, etime, handler);
+        //the filters run on the reader threads, one view for each segment.
+        val newFilter = () => {
+            val x = new XLogPackView()
+            (time: Long, data: Array[Byte]) => accept(x, time, data)
         }
+        val handler = (time: Long, data: Array[Byte]) => {
+            //TODO adjust caller in the case of Sapn
+            dout.writeByte(TcpFlag.HasNEXT);
+            dout.write(data);
+            dout.flush();
+        }
+
+        //exact conditions are looked up from the search indexes, wildcard ones are checked by the handler only.
+        val searchKeys = new mutable.ArrayBuffer[(Int, Int)]()
+        if (objHash != 0) {
+            searchKeys += ((XLogIndex.SEARCH_OBJ, objHash))
+        }
+        if (isExact(service)) {
+            searchKeys += ((XLogIndex.SEARCH_SERVICE, HashUtil.hash(service)))
+        }
+        if (isExact(error)) {
+            searchKeys += ((XLogIndex.SEARCH_ERROR, HashUtil.hash(error)))
+        }
+        if (isExact(login)) {
+            searchKeys += ((XLogIndex.SEARCH_LOGIN, HashUtil.hash(login)))
+        }
+        if (isExact(ip)) {
+            val ipaddr = IPUtil.toBytes(ip)
+            if (ipaddr != null && ipaddr.length > 0) {
+                searchKeys += ((XLogIndex.SEARCH_IP, XLogWR.getIpKey(ipaddr)))
+            }
+        }
+
+        XLogRangeRD.read(stime, etime, searchKeys.toArray, Configure.getInstance().req_search_xlog_max_count, newFilter, handler)
+    }
+
+    private def isExact(pattern: String): Boolean = {
+        StringUtil.isNotEmpty(pattern) && pattern.indexOf('*') < 0
     }
 
 }
@@ -25,6 +25,7 @@ import java.util.Map
 
 import scouter.lang.value.Value
 import scouter.server.tagcnt.core.TagCountUtil
+import scouter.server.tagcnt.core.TagTopN
 import scouter.server.tagcnt.core.Top100FileCache
 import scouter.server.tagcnt.core.ValueCount
 import scouter.server.tagcnt.core.ValueCountTotal
@@ -43,6 +44,10 @@ object TagCountProxy {
     }
 
     def getTagValueCountWithCache(date: String, objType: String, tagKey: Long, limit: Int): ValueCountTotal = {
+        val top = TagTopN.getTop(date, objType, tagKey, limit);
+        if (top != null) {
+            return top;
+        }
         val pack = Top100FileCache.readTop100Cache(date, objType, tagKey);
         if (pack != null) {
             return pack;
@@ -107,11 +112,13 @@ object TagCountProxy {
             val tagName = en.nextLong();
             if (BitUtil.getHigh(tagName) == divHash) {
                 val count = tagmap.get(tagName).size();
-                var wrap: ValueCountTotal = null;
-                if (count >= 100) {
-                    wrap = TagCountProxy.getTagValueCountWithCache(date, objType, tagName, limit);
-                } else {
-                    wrap = TagCountProxy.getTagValueCount(date, objType, tagName, limit);
+                var wrap = TagTopN.getTop(date, objType, tagName, limit);
+                if (wrap == null) {
+                    if (count >= 100) {
+                        wrap = TagCountProxy.getTagValueCountWithCache(date, objType, tagName, limit);
+                    } else {
+                        wrap = TagCountProxy.getTagValueCount(date, objType, tagName, limit);
+                    }
                 }
                 map2.put(tagName, wrap);
             }
@@ -120,13 +127,14 @@ object TagCountProxy {
     }
 
     def add(time: Long, objType: String, tag: TagCountConfig.Tag, tagValue: Value, cnt: Int) {
-         FirstTagCountDB.add(new FirstTCData(objType, time, tag.key, tagValue, cnt.toFloat));
+        add(time, objType, tag.key, tagValue, cnt.toFloat);
     }
     def add(time: Long, objType: String, tag: TagCountConfig.Tag, tagValue: Value, cnt: Float) {
-        FirstTagCountDB.add(new FirstTCData(objType, time, tag.key, tagValue, cnt));
+        add(time, objType, tag.key, tagValue, cnt);
     }
 
     def add(time: Long, objType: String, tagKey: Long, tagValue: Value, cnt: Float) {
         FirstTagCountDB.add(new FirstTCData(objType, time, tagKey, tagValue, cnt));
+        TagTopN.add(time, objType, tagKey, tagValue, cnt);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.tagcnt.core;
+
+import java.util.ArrayList
+import java.util.HashMap
+
+import scouter.lang.value.Value
+import scouter.server.{Configure, Logger}
+import scouter.server.util.EnumerScala
+import scouter.util.{DateUtil, FileUtil, LongKeyMap, SpaceSavingTopN}
+
+/**
+  * realtime top values of every tag in memory, one Space-Saving sketch for each (date, objType, tag).
+  * the counts are added as they come in, so a top-N query needs no disk read.
+  * the sketches are saved into the top100 files periodically, and a sketch of a tag starts from its top100 file
+  * so the counts before a restart are not lost.
+  */
+object TagTopN {
+
+    class Item(capacity: Int) {
+        val sketch = new SpaceSavingTopN[Value](capacity)
+        //the total and the kinds of the values before the sketch started, out of the saved top100
+        var baseTotal = 0d
+        var baseKinds = 0
+    }
+
+    private val table = new HashMap[Key, LongKeyMap[Item]]()
+
+    def add(time: Long, objType: String, tagKey: Long, tagValue: Value, cnt: Float) {
+        val conf = Configure.getInstance()
+        if (conf.tagcnt_topn_enabled == false)
+            return
+        val date = DateUtil.yyyymmdd(time)
+        val key = new Key(date, objType)
+        table.synchronized {
+            val tags = table.get(key)
+            if (tags != null) {
+                val item = tags.get(tagKey)
+                if (item != null) {
+                    item.sketch.add(tagValue, cnt)
+                    return
+                }
+            }
+        }
+        //the top100 file is read out of the lock, and the item loaded first by another thread is kept.
+        val loaded = load(date, objType, tagKey, conf.tagcnt_topn_capacity)
+        table.synchronized {
+            var tags = table.get(key)
+            if (tags == null) {
+                tags = new LongKeyMap[Item]()
+                table.put(key, tags)
+            }
+            var item = tags.get(tagKey)
+            if (item == null) {
+                item = loaded
+                tags.put(tagKey, item)
+            }
+            item.sketch.add(tagValue, cnt)
+        }
+    }
+
+    private def load(date: String, objType: String, tagKey: Long, capacity: Int): Item = {
+        val item = new Item(capacity)
+        val saved = Top100FileCache.readTop100Cache(date, objType, tagKey)
+        if (saved != null) {
+            var sum = 0d
+            EnumerScala.forward(saved.values, (v: ValueCount) => {
+                item.sketch.add(v.tagValue, v.valueCount)
+                sum += v.valueCount
+            })
+            item.baseTotal = Math.max(0d, saved.totalCount - sum)
+            item.baseKinds = saved.howManyValues
+        }
+        return item
+    }
+
+    /**
+      * @return null when the tag of the day is not in memory
+      */
+    def getTop(date: String, objType: String, tagKey: Long, limit: Int): ValueCountTotal = {
+        val list = new ArrayList[ValueCount]()
+        var total = 0d
+        var kinds = 0
+        table.synchronized {
+            val tags = table.get(new Key(date, objType))
+            if (tags == null)
+                return null
+            val item = tags.get(tagKey)
+            if (item == null)
+                return null
+            val top = item.sketch.getTop(if (limit <= 0) item.sketch.getCapacity() else limit)
+            EnumerScala.forward(top, (c: SpaceSavingTopN.Counter[Value]) => {
+                list.add(new ValueCount(c.getKey(), c.getCount()))
+            })
+            total = item.baseTotal + item.sketch.getTotal()
+            //exact until a value is evicted, an upper bound after that
+            kinds = Math.max(item.baseKinds, item.sketch.size() + item.sketch.getEvicted().toInt)
+        }
+        return new ValueCountTotal(kinds, total.toFloat, list)
+    }
+
+    /**
+      * writes the top100 files of every tag in memory and drops the days before today.
+      */
+    def save() {
+        val today = DateUtil.yyyymmdd()
+        val works = new ArrayList[(Key, Long)]()
+        table.synchronized {
+            val itr = table.keySet().iterator()
+            while (itr.hasNext()) {
+                val key = itr.next()
+                val tags = table.get(key)
+                EnumerScala.foreach(tags.keys(), (tagKey: Long) => {
+                    works.add((key, tagKey))
+                })
+            }
+        }
+        EnumerScala.forward(works, (w: (Key, Long)) => {
+            val top = getTop(w._1.logDate, w._1.objType, w._2, 100)
+            if (top != null) {
+                try {
+                    FileUtil.save(Top100FileCache.getFileName(w._1.logDate, w._1.objType, w._2), top.toByteArray())
+                } catch {
+                    case e: Exception => Logger.println("S236", 10, e.toString())
+                }
+            }
+        })
+        table.synchronized {
+            val itr = table.keySet().iterator()
+            while (itr.hasNext()) {
+                if (itr.next().logDate != today) {
+                    itr.remove()
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Collections
 import java.util.Comparator
 import java.util.HashSet
 import scouter.lang.value.Value
+import scouter.server.Configure
 import scouter.server.core.CoreRun
 import scouter.server.tagcnt.first.FirstTagCountDB
 import scouter.server.tagcnt.next.IndexFile
@@ -60,11 +61,15 @@ object Top100FileCache {
             try {
                 val workSet = logSet;
                 logSet = new HashSet[Key]();
-                EnumerScala.foreach(workSet.iterator(), (key: Key) => {
-                    this.synchronized {
-                        makeTop100(key.logDate, key.objType,100)
-                    }
-                })
+                if (Configure.getInstance().tagcnt_topn_enabled) {
+                    TagTopN.save()
+                } else {
+                    EnumerScala.foreach(workSet.iterator(), (key: Key) => {
+                        this.synchronized {
+                            makeTop100(key.logDate, key.objType,100)
+                        }
+                    })
+                }
             } catch {
                 case e: Exception => e.printStackTrace();
             }
@@ -83,7 +88,7 @@ object Top100FileCache {
         }
         return null;
     }
-    private def getFileName(logDate: String, objType: String, tagName: Long): File = {
+    def getFileName(logDate: String, objType: String, tagName: Long): File = {
         val fileRef = new File(CountEnv.getDBPath(logDate));
         val fileUPFolder = new File(fileRef, objType);
         if (!fileUPFolder.exists()) {
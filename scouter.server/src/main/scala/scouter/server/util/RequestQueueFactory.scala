@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.util
+
+import scouter.server.Configure
+import scouter.util.{RequestQueue, RingRequestQueue}
+
+/**
+  * creates the queues between the stages of the server pipeline.
+  * the lock-free ring queue is used when _core_ring_queue_enabled is set.
+  */
+object RequestQueueFactory {
+
+    def create[T](capacity: Int, multiConsumer: Boolean = false): RequestQueue[T] = {
+        val conf = Configure.getInstance()
+        if (conf._core_ring_queue_enabled) {
+            new RingRequestQueue[T](capacity, multiConsumer, conf._core_ring_queue_spin_enabled)
+        } else {
+            new RequestQueue[T](capacity)
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.core;
+
+import org.junit.Test;
+import scouter.lang.counters.CounterConstants;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.DoubleSummary;
+import scouter.lang.value.FloatValue;
+import scouter.lang.value.MapValue;
+import scouter.lang.value.TextValue;
+import scouter.util.DateUtil;
+import scouter.util.HashUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CounterRollupBucketsTest {
+
+    private static final long MINUTE = 1500000000000L - 1500000000000L % DateUtil.MILLIS_PER_MINUTE;
+
+    private final List<Object[]> flushed = new ArrayList<Object[]>();
+    private final CounterRollupBuckets buckets = new CounterRollupBuckets(DateUtil.MILLIS_PER_MINUTE, new CounterRollupBuckets.Flusher() {
+        public void flush(String objName, long time, MapValue data) {
+            flushed.add(new Object[] { objName, time, data });
+        }
+    });
+
+    @Test
+    public void summary_has_the_min_max_and_average() {
+        buckets.add("/a", MINUTE + 1000, counter(10));
+        buckets.add("/a", MINUTE + 2000, counter(2));
+        buckets.add("/a", MINUTE + 3000, counter(6));
+
+        MapValue data = current();
+        DoubleSummary tps = (DoubleSummary) data.get("TPS");
+        assertEquals(3, tps.count);
+        assertEquals(18, tps.sum, 0);
+        assertEquals(2, tps.min, 0);
+        assertEquals(10, tps.max, 0);
+        assertEquals(6, tps.doubleAvg(), 0);
+        assertNull(data.get("name"));
+        assertEquals(HashUtil.hash("/a"), data.getInt(CounterConstants.COMMON_OBJHASH));
+        assertEquals(MINUTE, data.getLong(CounterConstants.COMMON_TIME));
+    }
+
+    @Test
+    public void the_next_period_flushes_the_bucket() {
+        buckets.add("/a", MINUTE, counter(1));
+        buckets.add("/b", MINUTE, counter(5));
+        buckets.add("/a", MINUTE + DateUtil.MILLIS_PER_MINUTE - 1, counter(3));
+        assertEquals(0, flushed.size());
+
+        buckets.add("/a", MINUTE + DateUtil.MILLIS_PER_MINUTE, counter(7));
+        assertEquals(1, flushed.size());
+        assertEquals("/a", flushed.get(0)[0]);
+        assertEquals(MINUTE, flushed.get(0)[1]);
+        DoubleSummary tps = (DoubleSummary) ((MapValue) flushed.get(0)[2]).get("TPS");
+        assertEquals(2, tps.count);
+        assertEquals(4, tps.sum, 0);
+
+        List<MapValue> rows = new ArrayList<MapValue>();
+        buckets.readCurrent(MINUTE, MINUTE + DateUtil.MILLIS_PER_MINUTE, rows);
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    public void a_bucket_is_stale_a_minute_after_its_period() {
+        buckets.add("/a", MINUTE, counter(1));
+        buckets.flushStale(MINUTE + 2 * DateUtil.MILLIS_PER_MINUTE - 1);
+        assertEquals(0, flushed.size());
+
+        buckets.flushStale(MINUTE + 2 * DateUtil.MILLIS_PER_MINUTE);
+        assertEquals(1, flushed.size());
+        List<MapValue> rows = new ArrayList<MapValue>();
+        buckets.readCurrent(0, Long.MAX_VALUE, rows);
+        assertEquals(0, rows.size());
+    }
+
+    @Test
+    public void read_current_returns_copies() {
+        buckets.add("/a", MINUTE, counter(1));
+        MapValue copy = current();
+        ((DoubleSummary) copy.get("TPS")).add(100);
+        assertEquals(1, ((DoubleSummary) current().get("TPS")).sum, 0);
+
+        List<MapValue> rows = new ArrayList<MapValue>();
+        buckets.readCurrent(MINUTE + 1, Long.MAX_VALUE, rows);
+        assertEquals(0, rows.size());
+    }
+
+    private MapValue current() {
+        List<MapValue> rows = new ArrayList<MapValue>();
+        buckets.readCurrent(MINUTE, MINUTE, rows);
+        assertEquals(1, rows.size());
+        return rows.get(0);
+    }
+
+    private static MapValue counter(float tps) {
+        MapValue m = new MapValue();
+        m.put("TPS", new FloatValue(tps));
+        m.put("name", new TextValue("text is not summarized"));
+        m.put(CounterConstants.COMMON_OBJHASH, new DecimalValue(1));
+        return m;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.core.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TextLfuCacheTest {
+
+    @Test
+    public void put_and_get() {
+        TextLfuCache cache = new TextLfuCache(64 * 1024);
+        cache.put(1, "service-1");
+        assertEquals("service-1", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.getHit());
+        assertEquals(1, cache.getMiss());
+    }
+
+    @Test
+    public void bounded_by_bytes() {
+        long max = 64 * 1024;
+        TextLfuCache cache = new TextLfuCache(max);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, "select * from table_" + i);
+        }
+        assertTrue(cache.getBytes() <= max);
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void burst_of_one_off_texts_keeps_hot_texts() {
+        TextLfuCache cache = new TextLfuCache(64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "/hot/service/" + i);
+        }
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < 100; i++) {
+                cache.get(i);
+            }
+        }
+        for (int i = 1000; i < 20000; i++) {
+            cache.put(i, "select one_off_column_" + i + " from some_table where id = ?");
+            if (i % 10 == 0) {
+                cache.get(i / 10 % 100);
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get(i) != null) {
+                kept++;
+            }
+        }
+        assertTrue("kept=" + kept, kept >= 95);
+    }
+
+    @Test
+    public void rejected_candidate_evicts_nothing() {
+        //main segment of 768 bytes holds a cold and a hot text of 384 bytes
+        TextLfuCache cache = new TextLfuCache(1024);
+        cache.put(1, repeat('a', 160));
+        cache.put(2, repeat('b', 160));
+        for (int n = 0; n < 4; n++) {
+            cache.get(2);
+        }
+        //the candidate needs both to be evicted, and it's colder than the hot one
+        cache.get(3);
+        cache.put(3, repeat('c', 200));
+        assertTrue(cache.containsKey(1));
+        assertTrue(cache.containsKey(2));
+        assertFalse(cache.containsKey(3));
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.db;
+
+import org.junit.Test;
+import scala.runtime.AbstractFunction2;
+import scala.runtime.BoxedUnit;
+import scouter.lang.counters.CounterConstants;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.DoubleSummary;
+import scouter.lang.value.MapValue;
+import scouter.server.Configure;
+import scouter.server.core.CounterRollup;
+import scouter.util.DateUtil;
+import scouter.util.HashUtil;
+import scouter.util.ThreadUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CounterRollupWRTest {
+
+    @Test
+    public void rollup_is_read_back_from_its_resolution_directory() {
+        Configure conf = Configure.getInstance();
+        String dbDir = conf.db_dir;
+        conf.db_dir = new File(System.getProperty("java.io.tmpdir"), "scouter-rollup-" + System.nanoTime()).getPath();
+        try {
+            String objName = "/junit/rollup";
+            long time = System.currentTimeMillis() / DateUtil.MILLIS_PER_MINUTE * DateUtil.MILLIS_PER_MINUTE;
+            MapValue data = new MapValue();
+            data.put(CounterConstants.COMMON_OBJHASH, new DecimalValue(HashUtil.hash(objName)));
+            data.put(CounterConstants.COMMON_TIME, new DecimalValue(time));
+            DoubleSummary tps = new DoubleSummary();
+            tps.add(2);
+            tps.add(10);
+            data.put("TPS", tps);
+            CounterRollupWR.add(0, objName, time, data);
+
+            final List<MapValue> rows = new ArrayList<MapValue>();
+            AbstractFunction2<Object, MapValue, Object> handler = new AbstractFunction2<Object, MapValue, Object>() {
+                public Object apply(Object t, MapValue m) {
+                    rows.add(m);
+                    return BoxedUnit.UNIT;
+                }
+            };
+            String date = DateUtil.yyyymmdd(time);
+            for (int i = 0; i < 100 && rows.isEmpty(); i++) {
+                ThreadUtil.sleep(100);
+                RealtimeCounterRD.read(objName, date, time, time, handler, CounterRollup.NAMES()[0]);
+            }
+            assertEquals(1, rows.size());
+            DoubleSummary read = (DoubleSummary) rows.get(0).get("TPS");
+            assertEquals(2, read.count);
+            assertEquals(12, read.sum, 0);
+            assertEquals(2, read.min, 0);
+            assertEquals(10, read.max, 0);
+
+            rows.clear();
+            RealtimeCounterRD.read(objName, date, time, time, handler);
+            assertEquals(0, rows.size());
+        } finally {
+            conf.db_dir = dbDir;
+        }
+    }
+}
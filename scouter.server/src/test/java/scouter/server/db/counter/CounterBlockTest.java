@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.db.counter;
+
+import org.junit.Test;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.DoubleValue;
+import scouter.lang.value.FloatValue;
+import scouter.lang.value.MapValue;
+import scouter.lang.value.TextValue;
+import scouter.util.StringIntMap;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CounterBlockTest {
+
+    @Test
+    public void encodeAndDecode() throws Exception {
+        StringIntMap tags = new StringIntMap().setNullValue(-1);
+        tags.put("TPS", 1);
+        tags.put("Cpu", 2);
+        tags.put("Heap", 3);
+        tags.put("Name", 4);
+        tags.put("Rate", 5);
+
+        Random r = new Random(7);
+        CounterBlock block = new CounterBlock(1234);
+        long time = 1500000000000L;
+        long tps = 100;
+        while (block.isFull() == false) {
+            time += 2000 + r.nextInt(40) - 20;
+            MapValue m = new MapValue();
+            tps += r.nextInt(5) - 2;
+            m.put("TPS", new DecimalValue(tps));
+            m.put("Cpu", new FloatValue(r.nextFloat() * 100));
+            if (block.size() % 3 != 0) {
+                m.put("Heap", new DoubleValue(r.nextDouble()));
+            }
+            m.put("Name", new TextValue("jvm"));
+            m.put("Rate", block.size() % 2 == 0 ? new DecimalValue(3) : new FloatValue(1.5f));
+            block.add(time, m, tags);
+        }
+
+        byte[] bytes = block.encode();
+        CounterBlock decoded = CounterBlock.decode(bytes);
+        assertEquals(1234, decoded.objHash);
+        assertEquals(block.size(), decoded.size());
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(block.getTime(i), decoded.getTime(i));
+            assertArrayEquals(block.getRow(i), decoded.getRow(i));
+        }
+    }
+
+    @Test
+    public void constantCountersAreSmall() throws Exception {
+        StringIntMap tags = new StringIntMap().setNullValue(-1);
+        tags.put("TPS", 1);
+        CounterBlock block = new CounterBlock(1);
+        int rows = 0;
+        for (int i = 0; i < 30; i++) {
+            MapValue m = new MapValue();
+            m.put("TPS", new DecimalValue(10));
+            block.add(1500000000000L + i * 2000L, m, tags);
+            rows += block.getRow(i).length + 4;
+        }
+        assertTrue(block.encode().length * 4 < rows);
+    }
+}
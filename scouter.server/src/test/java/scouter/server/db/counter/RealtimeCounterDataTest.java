@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.db.counter;
+
+import org.junit.Test;
+import scouter.io.DataInputX;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.MapValue;
+import scouter.util.StringIntMap;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class RealtimeCounterDataTest {
+
+    @Test
+    public void readBulkFromTheMiddleOfABlock() throws Exception {
+        File base = new File(System.getProperty("java.io.tmpdir"), "scouter-counter-" + System.nanoTime());
+        base.mkdirs();
+        RealtimeCounterData data = RealtimeCounterData.open(base.getPath() + "/real", true);
+        try {
+            StringIntMap tags = new StringIntMap().setNullValue(-1);
+            tags.put("TPS", 1);
+            long minute = 1500000000000L;
+            long[] positionsOfA = new long[30];
+            for (int i = 0; i < 30; i++) {
+                long time = minute + i * 2000L;
+                //the block of object 2 is created first in the minute
+                data.write(2, time, tags, row(i));
+                positionsOfA[i] = data.write(1, time, tags, row(i));
+            }
+
+            byte[] bulk = data.readBulk(positionsOfA[5], positionsOfA[20]);
+            DataInputX in = new DataInputX(bulk);
+            int rows = 0;
+            while (in.available() > 0) {
+                in.read(in.readInt());
+                rows++;
+            }
+            assertEquals(2 * 16, rows);
+        } finally {
+            data.close();
+            File[] files = base.listFiles();
+            for (int i = 0; files != null && i < files.length; i++) {
+                files[i].delete();
+            }
+            base.delete();
+        }
+    }
+
+    private static MapValue row(int i) {
+        MapValue m = new MapValue();
+        m.put("TPS", new DecimalValue(i));
+        return m;
+    }
+}
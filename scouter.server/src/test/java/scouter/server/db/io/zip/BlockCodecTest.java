@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouter.server.db.io.zip;
+
+import org.junit.Test;
+import scouter.util.CompressUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class BlockCodecTest {
+
+    private static byte[] sample() {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 97);
+        }
+        return data;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        byte[] data = sample();
+        for (byte id : new byte[]{BlockCodec.GZIP, BlockCodec.LZ4, BlockCodec.ZSTD}) {
+            byte[] stored = BlockCodec.getCodec(id).encode(data);
+            assertArrayEquals(data, BlockCodec.decode(stored));
+        }
+    }
+
+    @Test
+    public void readLegacyGzipBlock() throws Exception {
+        byte[] data = sample();
+        assertArrayEquals(data, BlockCodec.decode(CompressUtil.doZip(data)));
+    }
+}
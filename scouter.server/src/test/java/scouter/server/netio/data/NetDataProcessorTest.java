@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package scouter.server.netio.data;
+
+import org.junit.Test;
+import scouter.io.DataInputX;
+import scouter.io.DataOutputX;
+import scouter.lang.TimeTypeEnum;
+import scouter.lang.counters.CounterConstants;
+import scouter.lang.pack.PerfCounterPack;
+import scouter.lang.value.DecimalValue;
+import scouter.lang.value.LazyMapValue;
+import scouter.lang.value.MapValue;
+import scouter.lang.value.Value;
+import scouter.server.db.counter.RealtimeCounterDBHelper;
+import scouter.util.HashUtil;
+import scouter.util.StringIntMap;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetDataProcessorTest {
+
+    @Test
+    public void received_counter_stays_lazy_to_the_writer() throws Exception {
+        PerfCounterPack sent = new PerfCounterPack();
+        sent.objName = "/junit/netdata";
+        sent.time = System.currentTimeMillis();
+        sent.timetype = TimeTypeEnum.REALTIME;
+        sent.put("TPS", 10.5f);
+        sent.put("ActiveService", new DecimalValue(3));
+        byte[] wire = new DataOutputX().writePack(sent).toByteArray();
+
+        PerfCounterPack received = (PerfCounterPack) new DataInputX(wire).readPack();
+        NetDataProcessor.process(received, InetAddress.getByName("127.0.0.1"));
+
+        assertTrue(received.data instanceof LazyMapValue);
+        LazyMapValue data = (LazyMapValue) received.data;
+        assertTrue(data.isLazy());
+        assertEquals(HashUtil.hash(sent.objName), data.getInt(CounterConstants.COMMON_OBJHASH));
+        assertEquals(sent.time, data.getLong(CounterConstants.COMMON_TIME));
+
+        StringIntMap tags = new StringIntMap().setNullValue(-1);
+        tags.put("TPS", 1);
+        tags.put("ActiveService", 2);
+        tags.put(CounterConstants.COMMON_OBJHASH, 3);
+        tags.put(CounterConstants.COMMON_TIME, 4);
+        byte[] row = RealtimeCounterDBHelper.getTagBytes(tags, data);
+        assertTrue(data.isLazy());
+
+        MapValue eager = new MapValue();
+        for (String key : data.keySet()) {
+            eager.put(key, data.get(key));
+        }
+        assertEquals(readRow(RealtimeCounterDBHelper.getTagBytes(tags, eager)), readRow(row));
+        assertEquals(4, readRow(row).size());
+    }
+
+    private static Map<Integer, Value> readRow(byte[] row) throws Exception {
+        DataInputX in = new DataInputX(row);
+        int count = (int) in.readDecimal();
+        Map<Integer, Value> m = new HashMap<Integer, Value>();
+        for (int i = 0; i < count; i++) {
+            int idx = (int) in.readDecimal();
+            m.put(idx, in.readValue());
+        }
+        return m;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouterx.webapp.framework.client.model;
+
+import scouter.lang.pack.XLogPack;
+import scouter.util.IntEnumer;
+import scouter.util.IntLongLinkedMap;
+import scouter.util.IntSet;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dictionary texts already sent on one streaming connection.
+ * Texts of a batch of xlogs are loaded with one request, and only the texts not sent before are returned,
+ * so a text crosses the wire once per connection.
+ * A text not found yet is kept pending and tried again on every call until it is found or expires.
+ */
+public class SessionTextDictionary {
+	private static final int MAX_SENT_COUNT = 100000;
+	private static final int MAX_PENDING_COUNT = 10000;
+	private static final long PENDING_EXPIRE = 60 * 1000L;
+
+	private final int serverId;
+	private final EnumMap<TextTypeEnum, IntSet> sentHashes = new EnumMap<>(TextTypeEnum.class);
+	//hash -> the time it was first not found
+	private final EnumMap<TextTypeEnum, IntLongLinkedMap> pendingHashes = new EnumMap<>(TextTypeEnum.class);
+	private int sentCount;
+
+	public SessionTextDictionary(int serverId) {
+		this.serverId = serverId;
+	}
+
+	/**
+	 * @return true if some texts are not found yet, then takeUnsent should be called even without new xlogs.
+	 */
+	public boolean hasPending() {
+		return !pendingHashes.isEmpty();
+	}
+
+	/**
+	 * load texts of the xlogs and the pending texts, and return those not yet sent on this connection.
+	 * a text not found yet is not marked as sent, it is kept pending until it is found or expires.
+	 *
+	 * @param packs - xlogs to be sent, may be empty
+	 * @return type name -> (hash -> text)
+	 */
+	public Map<String, Map<Integer, String>> takeUnsent(List<XLogPack> packs) {
+		if (sentCount > MAX_SENT_COUNT) {
+			sentHashes.clear();
+			sentCount = 0;
+		}
+
+		EnumMap<TextTypeEnum, IntSet> unsent = new EnumMap<>(TextTypeEnum.class);
+		for (XLogPack p : packs) {
+			add(unsent, TextTypeEnum.SERVICE, p.service);
+			add(unsent, TextTypeEnum.HASH_MSG, p.threadNameHash);
+			add(unsent, TextTypeEnum.ERROR, p.error);
+			add(unsent, TextTypeEnum.USER_AGENT, p.userAgent);
+			add(unsent, TextTypeEnum.REFERRER, p.referer);
+			add(unsent, TextTypeEnum.GROUP, p.group);
+			add(unsent, TextTypeEnum.CITY, p.city);
+			add(unsent, TextTypeEnum.LOGIN, p.login);
+			add(unsent, TextTypeEnum.DESC, p.desc);
+			add(unsent, TextTypeEnum.HASH_MSG, p.queuingHostHash);
+			add(unsent, TextTypeEnum.HASH_MSG, p.queuing2ndHostHash);
+		}
+		for (Map.Entry<TextTypeEnum, IntLongLinkedMap> e : pendingHashes.entrySet()) {
+			IntEnumer hashes = e.getValue().keys();
+			while (hashes.hasMoreElements()) {
+				add(unsent, e.getKey(), hashes.nextInt());
+			}
+		}
+
+		Map<String, Map<Integer, String>> dict = new TreeMap<>();
+		if (unsent.isEmpty()) {
+			return dict;
+		}
+		load(unsent);
+
+		long now = currentTime();
+		for (Map.Entry<TextTypeEnum, IntSet> e : unsent.entrySet()) {
+			TextTypeEnum type = e.getKey();
+			Map<Integer, String> texts = null;
+			IntEnumer hashes = e.getValue().values();
+			while (hashes.hasMoreElements()) {
+				int hash = hashes.nextInt();
+				String text = getText(type, hash);
+				if (text == null) {
+					keepPending(type, hash, now);
+					continue;
+				}
+				removePending(type, hash);
+				if (texts == null) {
+					texts = new TreeMap<>();
+					dict.put(type.getTypeName(), texts);
+				}
+				texts.put(hash, text);
+				sentHashes.computeIfAbsent(type, k -> new IntSet()).add(hash);
+				sentCount++;
+			}
+		}
+		return dict;
+	}
+
+	private void keepPending(TextTypeEnum type, int hash, long now) {
+		IntLongLinkedMap pending = pendingHashes.get(type);
+		if (pending == null) {
+			pending = new IntLongLinkedMap().setMax(MAX_PENDING_COUNT);
+			pendingHashes.put(type, pending);
+		}
+		if (!pending.containsKey(hash)) {
+			pending.put(hash, now);
+		} else if (now - pending.get(hash) > PENDING_EXPIRE) {
+			removePending(type, hash);
+		}
+	}
+
+	private void removePending(TextTypeEnum type, int hash) {
+		IntLongLinkedMap pending = pendingHashes.get(type);
+		if (pending == null) {
+			return;
+		}
+		pending.remove(hash);
+		if (pending.isEmpty()) {
+			pendingHashes.remove(type);
+		}
+	}
+
+	private void add(EnumMap<TextTypeEnum, IntSet> unsent, TextTypeEnum type, int hash) {
+		if (hash == 0) {
+			return;
+		}
+		IntSet sent = sentHashes.get(type);
+		if (sent != null && sent.contains(hash)) {
+			return;
+		}
+		unsent.computeIfAbsent(type, k -> new IntSet()).add(hash);
+	}
+
+	/**
+	 * load the texts of the hashes from the collector with one request.
+	 */
+	protected void load(EnumMap<TextTypeEnum, IntSet> hashes) {
+		TextLoader loader = new TextLoader(serverId);
+		for (Map.Entry<TextTypeEnum, IntSet> e : hashes.entrySet()) {
+			IntEnumer values = e.getValue().values();
+			while (values.hasMoreElements()) {
+				loader.addTextHash(e.getKey(), values.nextInt());
+			}
+		}
+		loader.loadAll();
+	}
+
+	/**
+	 * @return the text loaded, or null if it is not found yet
+	 */
+	protected String getText(TextTypeEnum type, int hash) {
+		return type.getTextModel().getCachedText(hash);
+	}
+
+	protected long currentTime() {
+		return System.currentTimeMillis();
+	}
+}
@@ -47,6 +47,8 @@ public interface ConfigureAdaptor {
     boolean isTrace();
     int getNetWebappTcpClientPoolSize();
     int getNetWebappTcpClientPoolTimeout();
+    int getNetHttpApiXlogStreamMaxCount();
+    int getNetHttpApiXlogStreamThreadCount();
     boolean isNetHttpApiSwaggerEnabled();
     String getNetHttpApiSwaggerHostIp();
     String getNetHttpApiCorsAllowOrigin();
@@ -132,6 +132,16 @@ public class EmbeddedConfigureAdaptor implements ConfigureAdaptor {
         return conf.net_webapp_tcp_client_pool_timeout;
     }
 
+    @Override
+    public int getNetHttpApiXlogStreamMaxCount() {
+        return conf.net_http_api_xlog_stream_max_count;
+    }
+
+    @Override
+    public int getNetHttpApiXlogStreamThreadCount() {
+        return conf.net_http_api_xlog_stream_thread_count;
+    }
+
     @Override
     public boolean isNetHttpApiSwaggerEnabled() {
         return conf.net_http_api_swagger_enabled;
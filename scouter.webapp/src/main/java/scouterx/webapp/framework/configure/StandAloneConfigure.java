@@ -69,6 +69,10 @@ public class StandAloneConfigure extends Thread {
 	@ConfigValueType(ValueType.COMMA_SEPARATED_VALUE)
 	public String net_collector_ip_port_id_pws = "127.0.0.1:6100:admin:admin";
 
+	@ConfigDesc("max number of realtime xlog streams open at once. a stream over it is refused with 503.")
+	public int net_http_api_xlog_stream_max_count = 100;
+	@ConfigDesc("number of threads which run the ticks of the realtime xlog streams.(restart required)")
+	public int net_http_api_xlog_stream_thread_count = 4;
 	@ConfigDesc("size of webapp connection pool to collector")
 	public int net_webapp_tcp_client_pool_size = 100;
 	@ConfigDesc("timeout of web app connection pool to collector(It depends on net_tcp_client_so_timeout_ms)")
@@ -194,6 +198,8 @@ public class StandAloneConfigure extends Thread {
 
 		this.net_collector_ip_port_id_pws = getValue("net_collector_ip_port_id_pws", "127.0.0.1:6100:admin:admin");
 
+		this.net_http_api_xlog_stream_max_count = getInt("net_http_api_xlog_stream_max_count", 100);
+		this.net_http_api_xlog_stream_thread_count = getInt("net_http_api_xlog_stream_thread_count", 4);
 		this.net_webapp_tcp_client_pool_size = getInt("net_webapp_tcp_client_pool_size", 100);
 		this.net_webapp_tcp_client_pool_timeout = getInt("net_webapp_tcp_client_pool_timeout", 15000);
 
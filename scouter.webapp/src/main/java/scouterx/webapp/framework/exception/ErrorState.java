@@ -43,6 +43,7 @@ public enum ErrorState {
 	SESSION_EXPIRED(Response.Status.UNAUTHORIZED, Response.Status.UNAUTHORIZED.getStatusCode(), "authorization token or session is expired."),
 	NOT_IMPLEMENTED(Response.Status.NOT_IMPLEMENTED, Response.Status.NOT_IMPLEMENTED.getStatusCode(), "This API is not yet implemented."),
 	VALIDATE_ERROR(Response.Status.BAD_REQUEST, Response.Status.BAD_REQUEST.getStatusCode(), "fail to validate input parameters. : "),
+	TOO_MANY_STREAMS(Response.Status.SERVICE_UNAVAILABLE, Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), "too many realtime streams are open."),
 	;
 
 	private final Response.Status status;
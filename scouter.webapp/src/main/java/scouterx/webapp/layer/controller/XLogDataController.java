@@ -19,9 +19,11 @@
 package scouterx.webapp.layer.controller;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.glassfish.jersey.server.ChunkedOutput;
 import scouter.lang.constants.ParamConstant;
 import scouter.lang.pack.MapPack;
 import scouter.lang.pack.Pack;
@@ -29,13 +31,18 @@ import scouter.lang.pack.PackEnum;
 import scouter.lang.pack.XLogPack;
 import scouter.util.IntSet;
 import scouterx.webapp.framework.cache.XLogLoopCache;
+import scouterx.webapp.framework.client.model.SessionTextDictionary;
 import scouterx.webapp.framework.client.model.TextModel;
 import scouterx.webapp.framework.client.net.INetReader;
 import scouterx.webapp.framework.client.server.Server;
 import scouterx.webapp.framework.client.server.ServerManager;
+import scouterx.webapp.framework.configure.ConfigureAdaptor;
+import scouterx.webapp.framework.configure.ConfigureManager;
+import scouterx.webapp.framework.exception.ErrorState;
 import scouterx.webapp.layer.service.XLogService;
 import scouterx.webapp.model.XLogData;
 import scouterx.webapp.model.XLogPackWrapper;
+import scouterx.webapp.model.scouter.SXLog;
 import scouterx.webapp.request.GxidXLogRequest;
 import scouterx.webapp.request.MultiXLogRequest;
 import scouterx.webapp.request.PageableXLogRequest;
@@ -55,9 +62,17 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -71,6 +86,21 @@ import java.util.function.Consumer;
 @Slf4j
 public class XLogDataController {
     private final static long WAITING_DELAY_FOR_DICTIONARY_COMPLETE = 2000L;
+    private final static String SSE_MEDIA_TYPE = "text/event-stream";
+    private final static long STREAM_INTERVAL = 1000L;
+    private final static long STREAM_MAX_DURATION = 10 * 60 * 1000L;
+    private final static byte[] SSE_KEEP_ALIVE = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private final static byte[] SSE_EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private final static ObjectMapper streamMapper = new ObjectMapper();
+    private final static ConfigureAdaptor conf = ConfigureManager.getConfigure();
+    //a tick blocks on the dictionary load, so the threads and the streams sharing them are both bounded by the config.
+    private final static ScheduledExecutorService streamScheduler = Executors.newScheduledThreadPool(
+            Math.max(1, conf.getNetHttpApiXlogStreamThreadCount()), r -> {
+        Thread t = new Thread(r, "XLogEventStream");
+        t.setDaemon(true);
+        return t;
+    });
+    private final static AtomicInteger streamCount = new AtomicInteger();
     private final XLogService xLogService;
 
     public XLogDataController() {
@@ -147,6 +177,147 @@ public class XLogDataController {
         return Response.ok().entity(streamingOutput).type(MediaType.APPLICATION_JSON).build();
     }
 
+    /**
+     * stream xlogs created after the given offsets as server-sent events until the client disconnects.
+     * each event carries compact xlogs (text fields are dictionary hashes) and the dictionary texts
+     * not yet sent on this connection, so no separate dictionary request is needed.
+     * uri : /xlog-data/realTime/stream/0/0?objHashes=10001,10002
+     * event : id: {offset1}:{offset2}, data: {"offset1":..,"offset2":..,"dict":{"service":{"hash":"text"}},"xlogs":[..]}
+     * a comment line is sent while there is no xlog to check the connection.
+     */
+    @GET
+    @Path("/realTime/stream/{offset1}/{offset2}")
+    @Produces(SSE_MEDIA_TYPE)
+    public Response streamRealTimeXLogEvents(@BeanParam @Valid final RealTimeXLogDataRequest xLogRequest) {
+        Server server = ServerManager.getInstance().getServerIfNullDefault(xLogRequest.getServerId());
+        IntSet objHashSet = new IntSet();
+        for (Integer objHash : xLogRequest.getObjHashes()) {
+            objHashSet.add(objHash);
+        }
+
+        if (streamCount.incrementAndGet() > conf.getNetHttpApiXlogStreamMaxCount()) {
+            streamCount.decrementAndGet();
+            throw ErrorState.TOO_MANY_STREAMS.newBizException();
+        }
+        ChunkedOutput<byte[]> output = new ChunkedOutput<>(byte[].class);
+        XLogEventStream stream = new XLogEventStream(server.getId(), objHashSet, output);
+        stream.countBucket.setLoop(xLogRequest.getXLogLoop());
+        stream.countBucket.setIndex(xLogRequest.getXLogIndex());
+        streamScheduler.execute(stream);
+
+        return Response.ok().entity(output).type(SSE_MEDIA_TYPE)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .build();
+    }
+
+    /**
+     * one streaming connection. each tick runs on the stream scheduler, writes the xlogs created since the last tick
+     * and schedules the next tick, so no request thread is held while the connection is open.
+     * the connection is closed at the max duration or when a write fails, and then it leaves the stream count.
+     */
+    private static class XLogEventStream implements Runnable {
+        private final int serverId;
+        private final IntSet objHashSet;
+        private final ChunkedOutput<byte[]> output;
+        private final SessionTextDictionary dictionary;
+        private final XLogCountBucket countBucket = new XLogCountBucket();
+        private final List<XLogPack> packs = new ArrayList<>();
+        private final long until = System.currentTimeMillis() + STREAM_MAX_DURATION;
+        private boolean closed;
+
+        private XLogEventStream(int serverId, IntSet objHashSet, ChunkedOutput<byte[]> output) {
+            this.serverId = serverId;
+            this.objHashSet = objHashSet;
+            this.output = output;
+            this.dictionary = new SessionTextDictionary(serverId);
+        }
+
+        @Override
+        public void run() {
+            if (output.isClosed()) {
+                close();
+                return;
+            }
+            if (System.currentTimeMillis() >= until) {
+                close();
+                return;
+            }
+            try {
+                packs.clear();
+                XLogLoopCache.getOf(serverId).getAndHandleRealTimeXLog(
+                        objHashSet, countBucket.getLoop(), countBucket.getIndex(), 10000,
+                        WAITING_DELAY_FOR_DICTIONARY_COMPLETE, xLogPackWrapper -> {
+                            packs.add(xLogPackWrapper.getPack());
+                            countBucket.setLoop(xLogPackWrapper.getLoop());
+                            countBucket.setIndex(xLogPackWrapper.getIndex());
+                        });
+
+                //texts not found before are retried on every tick, and sent as soon as they are found.
+                byte[] event = null;
+                if (!packs.isEmpty() || dictionary.hasPending()) {
+                    event = toXLogEvent(dictionary, packs, countBucket);
+                }
+                output.write(event == null ? SSE_KEEP_ALIVE : event);
+            } catch (Exception e) {
+                //the client is gone
+                close();
+                return;
+            }
+            streamScheduler.schedule(this, STREAM_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            streamCount.decrementAndGet();
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.debug("close of xlog stream failed : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * make one event of xlogs with the dictionary texts not sent yet.
+     * texts of all the xlogs in the batch are loaded with one request.
+     * @return null when there is neither an xlog nor a text to send
+     */
+    private static byte[] toXLogEvent(SessionTextDictionary dictionary, List<XLogPack> packs,
+                                      XLogCountBucket countBucket) throws IOException {
+        TextModel.startScope();
+        Map<String, Map<Integer, String>> dict;
+        try {
+            dict = dictionary.takeUnsent(packs);
+        } finally {
+            TextModel.endScope();
+        }
+        if (packs.isEmpty() && dict.isEmpty()) {
+            return null;
+        }
+
+        ByteArrayOutputStream event = new ByteArrayOutputStream(packs.size() * 256);
+        String head = "id: " + countBucket.getLoop() + ":" + countBucket.getIndex() + "\nevent: xlogs\ndata: ";
+        event.write(head.getBytes(StandardCharsets.UTF_8));
+        try (JsonGenerator jg = streamMapper.getFactory().createGenerator(event)) {
+            jg.writeStartObject();
+            jg.writeNumberField("offset1", countBucket.getLoop());
+            jg.writeNumberField("offset2", countBucket.getIndex());
+            jg.writeObjectField("dict", dict);
+            jg.writeArrayFieldStart("xlogs");
+            for (XLogPack pack : packs) {
+                jg.writeObject(SXLog.of(pack));
+            }
+            jg.writeEndArray();
+            jg.writeEndObject();
+        }
+        event.write(SSE_EVENT_END);
+        return event.toByteArray();
+    }
+
     /**
      * request xlog data within given time range
      * uri : /xlog-data/{yyyymmdd}?startTime=... @see {@link PageableXLogRequest}
@@ -135,6 +135,8 @@ public class WebAppMain extends Application {
         jerseyHolder.setInitParameter("javax.ws.rs.Application", "scouterx.webapp.main.WebAppMain");
         jerseyHolder.setInitParameter("jersey.config.server.provider.packages", providerPackages);
         jerseyHolder.setInitOrder(1);
+        //the realtime xlog stream is written from a scheduler after the request thread is released.
+        jerseyHolder.setAsyncSupported(true);
 
         final ServletContextHandler servletContextHandler = new ServletContextHandler();
         servletContextHandler.setSessionHandler(new SessionHandler());
@@ -152,10 +154,10 @@ public class WebAppMain extends Application {
     }
 
     private static void addFilter (ServletContextHandler servletContextHandler) {
-        servletContextHandler.addFilter(LoggingInitServletFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST));
-        servletContextHandler.addFilter(CorsFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST));
-        servletContextHandler.addFilter(NoCacheFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST));
-        servletContextHandler.addFilter(ReleaseResourceFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST));
+        servletContextHandler.addFilter(LoggingInitServletFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
+        servletContextHandler.addFilter(CorsFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
+        servletContextHandler.addFilter(NoCacheFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
+        servletContextHandler.addFilter(ReleaseResourceFilter.class, "/scouter/*", EnumSet.of(DispatcherType.REQUEST)).setAsyncSupported(true);
     }
 
     private static ServletHolder setSwaggerBootstrapHandler () {
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2015 the original author or authors.
+ *  @https://github.com/scouter-project/scouter
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package scouterx.webapp.framework.client.model;
+
+import org.junit.Test;
+import scouter.lang.pack.XLogPack;
+import scouter.util.IntSet;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionTextDictionaryTest {
+
+    private final Map<Integer, String> texts = new HashMap<>();
+    private int loadCount;
+    private long now = 1500000000000L;
+
+    private final SessionTextDictionary dictionary = new SessionTextDictionary(0) {
+        @Override
+        protected void load(EnumMap<TextTypeEnum, IntSet> hashes) {
+            loadCount++;
+        }
+
+        @Override
+        protected String getText(TextTypeEnum type, int hash) {
+            return texts.get(hash);
+        }
+
+        @Override
+        protected long currentTime() {
+            return now;
+        }
+    };
+
+    @Test
+    public void text_is_sent_once() {
+        texts.put(1, "/index.jsp");
+
+        Map<String, Map<Integer, String>> dict = dictionary.takeUnsent(xlogs(1));
+        assertEquals("/index.jsp", dict.get(TextTypeEnum.SERVICE.getTypeName()).get(1));
+        assertEquals(1, loadCount);
+
+        assertTrue(dictionary.takeUnsent(xlogs(1)).isEmpty());
+        assertEquals(1, loadCount);
+    }
+
+    @Test
+    public void text_not_found_is_retried_until_found() {
+        assertTrue(dictionary.takeUnsent(xlogs(2)).isEmpty());
+        assertTrue(dictionary.hasPending());
+
+        now += 1000;
+        assertTrue(dictionary.takeUnsent(Collections.emptyList()).isEmpty());
+        assertTrue(dictionary.hasPending());
+
+        texts.put(2, "/late.jsp");
+        Map<String, Map<Integer, String>> dict = dictionary.takeUnsent(Collections.emptyList());
+        assertEquals("/late.jsp", dict.get(TextTypeEnum.SERVICE.getTypeName()).get(2));
+        assertFalse(dictionary.hasPending());
+        assertEquals(3, loadCount);
+    }
+
+    @Test
+    public void pending_text_expires() {
+        dictionary.takeUnsent(xlogs(3));
+        assertTrue(dictionary.hasPending());
+
+        now += 60 * 1000L;
+        dictionary.takeUnsent(Collections.emptyList());
+        assertTrue(dictionary.hasPending());
+
+        now += 1;
+        dictionary.takeUnsent(Collections.emptyList());
+        assertFalse(dictionary.hasPending());
+
+        assertTrue(dictionary.takeUnsent(Collections.emptyList()).isEmpty());
+        assertEquals(3, loadCount);
+    }
+
+    private static List<XLogPack> xlogs(int service) {
+        XLogPack p = new XLogPack();
+        p.service = service;
+        return Collections.singletonList(p);
+    }
+}